@@ -0,0 +1,68 @@
+package io.supabase.benchmark;
+
+import io.supabase.GoTrueClient;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.exceptions.JwtSecretNotFoundException;
+import io.supabase.exceptions.MalformedHeadersException;
+import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.jwt.JwtVerifier;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates a batch of distinct tokens one by one against {@link GoTrueClient#validateAll}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BatchValidationBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    private GoTrueClient client;
+    private List<String> jwts;
+
+    @Setup
+    public void setup() throws UrlNotFoundException, MalformedHeadersException {
+        System.setProperty("gotrue.url", "http://localhost:9999");
+        client = GoTrueClient.getInstance();
+        client.setJwtVerifier(new JwtVerifier(JwtVerifierBenchmark.SECRET));
+        byte[] key = JwtVerifierBenchmark.SECRET.getBytes(StandardCharsets.UTF_8);
+        Date exp = new Date(System.currentTimeMillis() + 3_600_000);
+        jwts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            jwts.add(Jwts.builder()
+                    .setSubject("user-" + i)
+                    .setExpiration(exp)
+                    .claim("role", "authenticated")
+                    .signWith(SignatureAlgorithm.HS256, key)
+                    .compact());
+        }
+    }
+
+    @Benchmark
+    public int validateSerial() throws JwtSecretNotFoundException {
+        int valid = 0;
+        for (String jwt : jwts) {
+            if (client.validate(jwt)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    public List<Boolean> validateAll() throws JwtSecretNotFoundException {
+        return client.validateAll(jwts);
+    }
+}
@@ -0,0 +1,54 @@
+package io.supabase.benchmark;
+
+import io.supabase.exceptions.FailureHint;
+import io.supabase.exceptions.GotrueException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link FailureHint#detectReason} for typical GoTrue error responses, from an early match to no match at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FailureHintBenchmark {
+
+    @Param({"badLogin", "badEmail", "badPassword", "unmatched"})
+    private String response;
+
+    private GotrueException exception;
+
+    @Setup
+    public void setup() {
+        int status;
+        String content;
+        switch (response) {
+            case "badLogin":
+                status = 400;
+                content = "{\"error\":\"invalid_grant\",\"error_description\":\"Invalid login credentials\"}";
+                break;
+            case "badEmail":
+                status = 400;
+                content = "{\"code\":400,\"msg\":\"Unable to validate email address: invalid format\"}";
+                break;
+            case "badPassword":
+                status = 422;
+                content = "{\"code\":422,\"msg\":\"Password should be at least 6 characters\"}";
+                break;
+            default:
+                status = 422;
+                content = "{\"code\":422,\"msg\":\"Signups not allowed for this instance\"}";
+        }
+        exception = new GotrueException("Request Failed");
+        exception.setStatusCode(status);
+        exception.setContent(content);
+    }
+
+    @Benchmark
+    public FailureHint.Reason detectReason() {
+        return FailureHint.detectReason(exception);
+    }
+}
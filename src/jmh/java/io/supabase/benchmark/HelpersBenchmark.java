@@ -0,0 +1,108 @@
+package io.supabase.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.dto.CredentialsDto;
+import io.supabase.data.dto.Session;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.schemas.User;
+import io.supabase.utils.Helpers;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Helpers#makeRequest} round trips against an in-process HTTP stub returning GoTrue shaped
+ * sessions and users, next to the bare Jackson serialization and deserialization of the same payloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HelpersBenchmark {
+    static final String USER_JSON = """
+            {"id":"a942b3d1-3a52-4457-8c4f-88d07c2dbe30","aud":"authenticated","role":"authenticated",\
+            "email":"email@example.com","email_confirmed_at":"2024-05-01T10:00:00.000000Z","phone":"",\
+            "confirmed_at":"2024-05-01T10:00:00.000000Z","last_sign_in_at":"2024-05-02T08:30:00.000000Z",\
+            "app_metadata":{"provider":"email","providers":["email"]},"user_metadata":{"name":"Jane","age":42},\
+            "identities":[{"identity_id":"0c0b3a52-8f5e-4a1e-9d43-1f7c6b2a9e10","id":"a942b3d1-3a52-4457-8c4f-88d07c2dbe30",\
+            "user_id":"a942b3d1-3a52-4457-8c4f-88d07c2dbe30","identity_data":{"email":"email@example.com",\
+            "email_verified":false,"sub":"a942b3d1-3a52-4457-8c4f-88d07c2dbe30"},"provider":"email",\
+            "last_sign_in_at":"2024-05-01T10:00:00.000000Z","created_at":"2024-05-01T10:00:00.000000Z",\
+            "updated_at":"2024-05-01T10:00:00.000000Z","email":"email@example.com"}],\
+            "created_at":"2024-05-01T10:00:00.000000Z","updated_at":"2024-05-02T08:30:00.000000Z","is_anonymous":false}""";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private HttpServer server;
+    private String url;
+    private Map<String, String> headers;
+    private CredentialsDto credentials;
+    private String sessionJson;
+
+    @Setup
+    public void setup() throws IOException {
+        sessionJson = String.format("{\"access_token\":\"%s\",\"token_type\":\"bearer\",\"expires_in\":3600,"
+                + "\"expires_at\":1714640000,\"refresh_token\":\"kJ2cV5pM0bQe7tXw\",\"user\":%s}",
+                JwtVerifierBenchmark.token(), USER_JSON);
+        // without it the stub waits for delayed acks and the round trips measure the tcp stack instead of the client
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/token", exchange -> respond(exchange, sessionJson));
+        server.createContext("/user", exchange -> respond(exchange, USER_JSON));
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+        headers = Map.of("apikey", "anonKey", "Authorization", "Bearer " + JwtVerifierBenchmark.token());
+        credentials = new CredentialsDto();
+        credentials.setEmail("email@example.com");
+        credentials.setPassword("secret");
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public Session makeRequestSession() throws GotrueException {
+        return Helpers.makeRequest(HttpMethod.POST, url + "/token?grant_type=password", credentials, headers, Session.class);
+    }
+
+    @Benchmark
+    public User makeRequestUser() throws GotrueException {
+        return Helpers.makeRequest(HttpMethod.GET, url + "/user", null, headers, User.class);
+    }
+
+    @Benchmark
+    public Session deserializeSession() throws JsonProcessingException {
+        return mapper.readValue(sessionJson, Session.class);
+    }
+
+    @Benchmark
+    public User deserializeUser() throws JsonProcessingException {
+        return mapper.readValue(USER_JSON, User.class);
+    }
+
+    @Benchmark
+    public String serializeCredentials() throws JsonProcessingException {
+        return mapper.writeValueAsString(credentials);
+    }
+}
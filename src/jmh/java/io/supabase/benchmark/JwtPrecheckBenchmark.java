@@ -0,0 +1,89 @@
+package io.supabase.benchmark;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.supabase.jwt.JwtVerifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates a mix of tokens of which half are expired, comparing a plain parser that verifies the signature first
+ * against the verifier, which rejects the expired tokens before any cryptographic work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtPrecheckBenchmark {
+    private static final int TOKENS = 1024;
+
+    @Param({"50"})
+    private int expiredPercent;
+
+    private String[] tokens;
+    private int next;
+    private JwtParser signatureFirst;
+    private JwtVerifier verifier;
+
+    @Setup
+    public void setup() {
+        byte[] key = JwtVerifierBenchmark.SECRET.getBytes(StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis();
+        List<String> mix = new ArrayList<>(TOKENS);
+        for (int i = 0; i < TOKENS; i++) {
+            boolean expired = i * 100 < expiredPercent * TOKENS;
+            mix.add(Jwts.builder()
+                    .setSubject("user-" + i)
+                    .setExpiration(new Date(expired ? now - 3_600_000 : now + 3_600_000))
+                    .claim("email", "email@example.com")
+                    .claim("role", "authenticated")
+                    .signWith(SignatureAlgorithm.HS256, key)
+                    .compact());
+        }
+        Collections.shuffle(mix, new Random(42));
+        tokens = mix.toArray(new String[0]);
+        signatureFirst = Jwts.parser().setSigningKey(key);
+        verifier = new JwtVerifier(JwtVerifierBenchmark.SECRET);
+    }
+
+    private String nextToken() {
+        String jwt = tokens[next];
+        next = (next + 1) & (TOKENS - 1);
+        return jwt;
+    }
+
+    @Benchmark
+    public boolean validateSignatureFirst() {
+        try {
+            signatureFirst.parseClaimsJws(nextToken());
+            return true;
+        } catch (JwtException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean validateFullParse() {
+        try {
+            verifier.parse(nextToken());
+            return true;
+        } catch (JwtException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean validateFastPath() {
+        return verifier.validate(nextToken());
+    }
+}
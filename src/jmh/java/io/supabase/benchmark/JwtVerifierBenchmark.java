@@ -0,0 +1,93 @@
+package io.supabase.benchmark;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.exceptions.JwtSecretNotFoundException;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.TokenCache;
+import io.supabase.utils.ClientUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares parsing with a configuration lookup per call against a shared, prebuilt verifier,
+ * validation through a full parse against the HS256 byte level fast path,
+ * and reading the subject from a fully parsed token against a lazily parsed one.
+ * Run with {@code -prof gc} to compare the allocations per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtVerifierBenchmark {
+    static final String SECRET = "superSecretJwtToken";
+
+    private String jwt;
+    private JwtVerifier verifier;
+    private TokenCache cache;
+
+    static String token() {
+        return Jwts.builder()
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .claim("email", "email@example.com")
+                .claim("role", "authenticated")
+                .signWith(SignatureAlgorithm.HS256, SECRET.getBytes(StandardCharsets.UTF_8))
+                .compact();
+    }
+
+    @Setup
+    public void setup() {
+        System.setProperty("gotrue.jwt.secret", SECRET);
+        jwt = token();
+        verifier = new JwtVerifier(SECRET);
+        cache = new TokenCache(1024);
+        cache.put(jwt, verifier.parse(jwt), 0);
+    }
+
+    @Benchmark
+    public ParsedToken parsePerCallLookup() throws JwtSecretNotFoundException {
+        return ClientUtils.parseJwt(jwt);
+    }
+
+    @Benchmark
+    public ParsedToken parseSharedVerifier() {
+        return verifier.parse(jwt);
+    }
+
+    @Benchmark
+    public boolean validateFullParse() {
+        try {
+            verifier.parse(jwt);
+            return true;
+        } catch (JwtException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean validateSharedVerifier() {
+        return verifier.validate(jwt);
+    }
+
+    @Benchmark
+    public String subjectFullParse() {
+        return verifier.parse(jwt).getSub();
+    }
+
+    @Benchmark
+    public String subjectLazyParse() {
+        return verifier.parseLazy(jwt).getSub();
+    }
+
+    @Benchmark
+    public ParsedToken parseCacheHit() {
+        return cache.get(jwt);
+    }
+}
@@ -0,0 +1,86 @@
+package io.supabase.benchmark;
+
+import io.supabase.GoTrueClient;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.exceptions.MalformedHeadersException;
+import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.http.TransportRequest;
+import io.supabase.http.TransportResponse;
+import io.supabase.schemas.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the client side work of a {@link GoTrueClient#getUser} call, with a transport answering in-process: the
+ * request building alone against a 204 response, and including the decoding of a user.
+ * Run with {@code -prof gc} for the allocations per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RequestBuildingBenchmark {
+
+    /**
+     * A client of its own per benchmark, its transport is set once so the measured calls do not write the shared
+     * transport field.
+     */
+    @State(Scope.Benchmark)
+    public abstract static class ClientState {
+        GoTrueClient client;
+        String jwt;
+
+        @Setup
+        public void setup(Blackhole blackhole) throws UrlNotFoundException, MalformedHeadersException {
+            System.setProperty("gotrue.url", "http://localhost:9999");
+            System.setProperty("gotrue.headers", "apikey=anonKey");
+            // not the singleton, which the other states would share
+            client = new GoTrueClient() {
+            };
+            jwt = JwtVerifierBenchmark.token();
+            TransportResponse response = response();
+            client.setTransport(request -> {
+                consume(blackhole, request);
+                return response;
+            });
+        }
+
+        abstract TransportResponse response();
+    }
+
+    public static class NoContent extends ClientState {
+        @Override
+        TransportResponse response() {
+            return new TransportResponse(204, Map.of(), null);
+        }
+    }
+
+    public static class Found extends ClientState {
+        @Override
+        TransportResponse response() {
+            return new TransportResponse(200, Map.of(), HelpersBenchmark.USER_JSON);
+        }
+    }
+
+    // stands in for a transport writing the request to the wire
+    private static void consume(Blackhole blackhole, TransportRequest request) {
+        blackhole.consume(request.uri());
+        request.headers().forEach((name, value) -> {
+            blackhole.consume(name);
+            blackhole.consume(value);
+        });
+    }
+
+    @Benchmark
+    public User getUserNoContent(NoContent state) throws GotrueException {
+        return state.client.getUser(state.jwt);
+    }
+
+    @Benchmark
+    public User getUser(Found state) throws GotrueException {
+        return state.client.getUser(state.jwt);
+    }
+}
@@ -0,0 +1,67 @@
+package io.supabase.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.supabase.data.dto.CredentialsDto;
+import io.supabase.data.dto.RefreshTokenDto;
+import io.supabase.utils.Helpers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Encodes sign-in and refresh request bodies with {@link Helpers#toJsonBytes} and with a default {@link ObjectMapper},
+ * on the benchmark thread and on a fresh virtual thread per request, where Jackson's thread local buffers are never
+ * reused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RequestEncodingBenchmark {
+
+    @Param({"pooled", "default"})
+    public String encoder;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private CredentialsDto credentials;
+    private RefreshTokenDto refreshToken;
+
+    @Setup
+    public void setup() {
+        credentials = new CredentialsDto();
+        credentials.setEmail("email@example.com");
+        credentials.setPassword("secret");
+        refreshToken = new RefreshTokenDto();
+        refreshToken.setRefreshToken("kJ2cV5pM0bQe7tXw");
+    }
+
+    private byte[] encode(Object data) throws JsonProcessingException {
+        return "pooled".equals(encoder) ? Helpers.toJsonBytes(data) : mapper.writeValueAsBytes(data);
+    }
+
+    @Benchmark
+    public byte[] signIn() throws JsonProcessingException {
+        return encode(credentials);
+    }
+
+    @Benchmark
+    public byte[] refresh() throws JsonProcessingException {
+        return encode(refreshToken);
+    }
+
+    @Benchmark
+    public byte[] signInOnVirtualThread() throws InterruptedException {
+        AtomicReference<byte[]> body = new AtomicReference<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                body.set(encode(credentials));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }).join();
+        return body.get();
+    }
+}
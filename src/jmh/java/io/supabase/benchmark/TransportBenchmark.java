@@ -0,0 +1,66 @@
+package io.supabase.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.http.RestTemplateTransport;
+import io.supabase.schemas.User;
+import io.supabase.utils.Helpers;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the latency distribution (p50/p99 in the JMH percentiles) of a getUser round trip per transport
+ * against an in-process HTTP stub.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransportBenchmark {
+    @Param({"httpClient", "restTemplate"})
+    public String transport;
+
+    private HttpServer server;
+    private GoTrueTransport goTrueTransport;
+    private String url;
+    private Map<String, String> headers;
+
+    @Setup
+    public void setup() throws IOException {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        byte[] body = HelpersBenchmark.USER_JSON.getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/user", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/user";
+        headers = Map.of("apikey", "anonKey", "Authorization", "Bearer " + JwtVerifierBenchmark.token());
+        goTrueTransport = "httpClient".equals(transport) ? new HttpClientTransport() : new RestTemplateTransport();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public User getUser() throws GotrueException {
+        return Helpers.makeRequest(goTrueTransport, HttpMethod.GET, url, null, headers, User.class);
+    }
+}
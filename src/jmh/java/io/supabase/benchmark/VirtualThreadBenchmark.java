@@ -0,0 +1,108 @@
+package io.supabase.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.GoTrueClient;
+import io.supabase.exceptions.MalformedHeadersException;
+import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.http.ConcurrencyLimitedTransport;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.HttpClientTransport;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@value #CALLS} concurrent {@link GoTrueClient#getUser} calls against a stub answering after
+ * {@value #LATENCY_MILLIS}ms, once with a virtual thread per call on four carrier threads and once on the usual
+ * pool of platform threads, both with {@value #CONNECTIONS} requests in flight.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djdk.virtualThreadScheduler.parallelism=4", "-Djdk.virtualThreadScheduler.maxPoolSize=4"})
+public class VirtualThreadBenchmark {
+    static final int CALLS = 10_000;
+    static final int CONNECTIONS = 256;
+    static final int LATENCY_MILLIS = 5;
+
+    private HttpServer server;
+    private GoTrueClient client;
+    private GoTrueTransport virtualTransport;
+    private GoTrueTransport platformTransport;
+    // one per call, concurrent reads of the same jwt would share a request
+    private String[] jwts;
+
+    @Setup
+    public void setup() throws IOException, UrlNotFoundException, MalformedHeadersException {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        byte[] body = HelpersBenchmark.USER_JSON.getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), CONNECTIONS * 2);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/user", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        System.setProperty("gotrue.url", "http://localhost:" + server.getAddress().getPort());
+        client = GoTrueClient.getInstance();
+        virtualTransport = new ConcurrencyLimitedTransport(HttpClientTransport.ofVirtualThreads(), CONNECTIONS);
+        platformTransport = new HttpClientTransport();
+        jwts = new String[CALLS];
+        for (int i = 0; i < CALLS; i++) {
+            jwts[i] = "jwt-" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public int virtualThreads() throws InterruptedException, ExecutionException {
+        client.setTransport(virtualTransport);
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            return getUsers(callers);
+        }
+    }
+
+    @Benchmark
+    public int platformThreads() throws InterruptedException, ExecutionException {
+        client.setTransport(platformTransport);
+        try (ExecutorService callers = Executors.newFixedThreadPool(CONNECTIONS)) {
+            return getUsers(callers);
+        }
+    }
+
+    private int getUsers(ExecutorService callers) throws InterruptedException, ExecutionException {
+        List<Future<?>> calls = new ArrayList<>(CALLS);
+        for (String jwt : jwts) {
+            calls.add(callers.submit(() -> client.getUser(jwt)));
+        }
+        for (Future<?> call : calls) {
+            call.get();
+        }
+        return calls.size();
+    }
+}
@@ -2,27 +2,262 @@ package io.supabase;
 
 import io.supabase.data.dto.*;
 import io.supabase.exceptions.ApiException;
+import io.supabase.exceptions.FailureHint;
 import io.supabase.exceptions.GotrueException;
 import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.http.CircuitBreaker;
+import io.supabase.http.CircuitBreakerTransport;
+import io.supabase.http.Deadline;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.RateLimitedTransport;
+import io.supabase.http.RateLimiter;
+import io.supabase.http.HeaderTemplate;
+import io.supabase.http.ResponseHandler;
+import io.supabase.http.RetryPolicy;
+import io.supabase.http.RetryingTransport;
+import io.supabase.http.TimeoutPolicy;
+import io.supabase.http.TimeoutTransport;
+import io.supabase.jwt.AdminUserCache;
 import io.supabase.data.dto.Session;
 import io.supabase.responses.BaseResponse;
 import io.supabase.schemas.User;
 import io.supabase.utils.Helpers;
+import io.supabase.utils.SingleFlight;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 
-import java.util.HashMap;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The endpoints of the GoTrue server.
+ * <p>
+ * The endpoint uris and the request headers are resolved once, when the api is created, so changing the map of
+ * headers afterwards has no effect on the requests.
+ * <p>
+ * Requests are sent through a pipeline decorating the transport, which applies the {@link TimeoutPolicy}, the
+ * {@link RetryPolicy}, the {@link CircuitBreaker} and the {@link RateLimiter}. Retries happen within the timeouts, the
+ * total timeout covers all attempts of a request, and every attempt asks the circuit breaker and takes a token of the
+ * rate limiter, neither is retried once it rejects one.
+ * <p>
+ * Concurrent identical reads of the settings and of the user of a JWT share one request and its decoded result, see
+ * {@link SingleFlight}, the callers then get the same instance. The settings and the users read by id can be cached,
+ * see {@link SettingsCache} and {@link AdminUserCache}.
+ */
 public class GoTrueApi {
+    /**
+     * The number of requests {@link #getUsersByIds(String, Collection)} keeps in flight.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
     protected String url;
     protected Map<String, String> headers;
+    protected volatile GoTrueTransport transport;
+    private volatile TimeoutPolicy timeoutPolicy = TimeoutPolicy.DEFAULT;
+    private volatile RetryPolicy retryPolicy;
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile RateLimiter rateLimiter;
+    private volatile SettingsCache settingsCache;
+    private volatile AdminUserCache adminUserCache;
+    // the transport wrapped in the decorators of the configured policies, shared with GoTrueAsyncApi
+    volatile GoTrueTransport pipeline;
+    private final ReentrantLock pipelineLock = new ReentrantLock();
+
+    private static final ResponseHandler<Settings> SETTINGS_HANDLER = Helpers.valueHandler(Settings.class);
+
+    // resolved once, shared with GoTrueAsyncApi
+    final URI settingsUri;
+    final URI userUri;
+    final URI passwordTokenUri;
+    final URI refreshTokenUri;
+    final URI signupUri;
+    final URI logoutUri;
+    final URI magicLinkUri;
+    final URI recoverUri;
+    // the default headers plus Accept, for requests without a body
+    final HeaderTemplate getHeaders;
+    // the default headers plus Accept and Content-Type, for requests with a json body
+    final HeaderTemplate bodyHeaders;
+    // the reads in flight, shared with GoTrueAsyncApi
+    final SingleFlight<URI, SettingsCache.Entry> settingsFlights = new SingleFlight<>();
+    final SingleFlight<String, User> userFlights = new SingleFlight<>();
 
     protected GoTrueApi(String url, Map<String, String> headers) throws UrlNotFoundException {
+        this(url, headers, Helpers.getDefaultTransport());
+    }
+
+    protected GoTrueApi(String url, Map<String, String> headers, GoTrueTransport transport) throws UrlNotFoundException {
         if (url == null || url.isEmpty()) {
             throw new UrlNotFoundException();
         }
         this.url = url;
         this.headers = headers;
+        useTransport(transport);
+
+        settingsUri = endpoint("settings");
+        userUri = endpoint("user");
+        passwordTokenUri = endpoint("token?grant_type=password");
+        refreshTokenUri = endpoint("token?grant_type=refresh_token");
+        signupUri = endpoint("signup");
+        logoutUri = endpoint("logout");
+        magicLinkUri = endpoint("magiclink");
+        recoverUri = endpoint("recover");
+        getHeaders = new HeaderTemplate(headers != null ? headers : Map.of())
+                .withDefault(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        bodyHeaders = getHeaders.withDefault(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    private URI endpoint(String path) {
+        try {
+            return URI.create(String.format("%s/%s", url, path));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("The url >%s< is not valid!", url), e);
+        }
+    }
+
+    public GoTrueTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the transport the requests to the GoTrue server are sent with.
+     *
+     * @param transport the transport to use.
+     * @throws IllegalArgumentException if the transport is not specified.
+     */
+    public void setTransport(GoTrueTransport transport) {
+        useTransport(transport);
+    }
+
+    // not overridable, so the constructor does not hand out the instance before subclasses are initialized
+    private void useTransport(GoTrueTransport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("The transport is required!");
+        }
+        pipelineLock.lock();
+        try {
+            this.transport = transport;
+            rebuildPipeline();
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    public TimeoutPolicy getTimeoutPolicy() {
+        return timeoutPolicy;
+    }
+
+    /**
+     * Sets the read and total timeouts of the requests, by default {@link TimeoutPolicy#DEFAULT}.
+     *
+     * @param timeoutPolicy the timeouts to apply.
+     * @throws IllegalArgumentException if the timeout policy is not specified.
+     */
+    public void setTimeoutPolicy(TimeoutPolicy timeoutPolicy) {
+        if (timeoutPolicy == null) {
+            throw new IllegalArgumentException("The timeout policy is required!");
+        }
+        pipelineLock.lock();
+        try {
+            this.timeoutPolicy = timeoutPolicy;
+            rebuildPipeline();
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets when and how often requests are retried, by default they are not.
+     *
+     * @param retryPolicy the retries to apply, or null to disable retries.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        pipelineLock.lock();
+        try {
+            this.retryPolicy = retryPolicy;
+            rebuildPipeline();
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets the circuit breaker rejecting requests to failing endpoints, by default there is none.
+     *
+     * @param circuitBreaker the circuit breaker to ask before sending, or null to always send.
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        pipelineLock.lock();
+        try {
+            this.circuitBreaker = circuitBreaker;
+            rebuildPipeline();
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Sets the rate limiter keeping the requests under the limits of the server, by default there is none.
+     *
+     * @param rateLimiter the rate limiter to take tokens from, or null to send at any rate.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        pipelineLock.lock();
+        try {
+            this.rateLimiter = rateLimiter;
+            rebuildPipeline();
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of calls to {@link #getSettings()} and {@link #getUser(String)}, blocking or not, that shared
+     * the request of an identical call in flight instead of sending their own.
+     */
+    public long getCoalescedCount() {
+        return settingsFlights.getCoalescedCount() + userFlights.getCoalescedCount();
+    }
+
+    // called with the pipeline lock held
+    private void rebuildPipeline() {
+        GoTrueTransport decorated = transport;
+        if (rateLimiter != null) {
+            decorated = new RateLimitedTransport(decorated, rateLimiter);
+        }
+        if (circuitBreaker != null) {
+            decorated = new CircuitBreakerTransport(decorated, circuitBreaker);
+        }
+        if (retryPolicy != null) {
+            decorated = new RetryingTransport(decorated, retryPolicy);
+        }
+        pipeline = new TimeoutTransport(decorated, timeoutPolicy);
     }
 
     /**
@@ -32,12 +267,10 @@ public class GoTrueApi {
      * @throws GotrueException if the underlying http request throws an error of any kind.
      */
     public BaseResponse magicLink(String email) throws GotrueException {
-        String urlMagicLink = String.format("%s/magiclink", url);
-
         EmailDto emailDto = new EmailDto();
         emailDto.setEmail(email);
 
-        return Helpers.makeRequest(HttpMethod.POST, urlMagicLink, emailDto, headers);
+        return Helpers.makeRequest(pipeline, HttpMethod.POST, magicLinkUri, emailDto, bodyHeaders.asMap());
     }
 
     /**
@@ -47,12 +280,10 @@ public class GoTrueApi {
      * @throws GotrueException if the underlying http request throws an error of any kind.
      */
     public BaseResponse recoverPassword(String email) throws GotrueException {
-        String urlRecover = String.format("%s/recover", url);
-
         EmailDto emailDto = new EmailDto();
         emailDto.setEmail(email);
 
-        return Helpers.makeRequest(HttpMethod.POST, urlRecover, emailDto, headers);
+        return Helpers.makeRequest(pipeline, HttpMethod.POST, recoverUri, emailDto, bodyHeaders.asMap());
     }
 
     /**
@@ -62,9 +293,50 @@ public class GoTrueApi {
      * @throws GotrueException if the underlying http request throws an error of any kind.
      */
     public Settings getSettings() throws GotrueException {
-        String urlSettings = String.format("%s/settings", url);
+        SettingsCache cache = settingsCache;
+        return cache != null ? cache.get(this) : loadSettings(null).settings();
+    }
+
+    public SettingsCache getSettingsCache() {
+        return settingsCache;
+    }
+
+    /**
+     * Sets the cache of the settings, by default there is none and every read asks the server.
+     *
+     * @param settingsCache the cache to use, or null to disable caching.
+     */
+    public void setSettingsCache(SettingsCache settingsCache) {
+        this.settingsCache = settingsCache;
+    }
+
+    /**
+     * Loads the settings, or joins an identical load in flight.
+     *
+     * @param cached the settings loaded before to revalidate, or null to load them unconditionally.
+     * @return the loaded settings, or the given ones if the server confirmed them.
+     */
+    SettingsCache.Entry loadSettings(SettingsCache.Entry cached) throws GotrueException {
+        return settingsFlights.call(settingsUri, () -> Helpers.makeRequest(pipeline, HttpMethod.GET, settingsUri, null, settingsHeaders(cached), settingsHandler(cached)));
+    }
 
-        return Helpers.makeRequest(HttpMethod.GET, urlSettings, null, headers, Settings.class);
+    CompletableFuture<SettingsCache.Entry> loadSettingsAsync(SettingsCache.Entry cached) {
+        return settingsFlights.callAsync(settingsUri,
+                () -> Helpers.makeRequestAsync(pipeline, HttpMethod.GET, settingsUri, null, settingsHeaders(cached), settingsHandler(cached)));
+    }
+
+    private Map<String, String> settingsHeaders(SettingsCache.Entry cached) {
+        return cached != null && cached.etag() != null ? getHeaders.asMapWith(HttpHeaders.IF_NONE_MATCH, cached.etag()) : getHeaders.asMap();
+    }
+
+    private static ResponseHandler<SettingsCache.Entry> settingsHandler(SettingsCache.Entry cached) {
+        return (statusCode, headers, body) -> {
+            if (statusCode == 304 && cached != null) {
+                return cached.confirmed(SettingsCache.etag(headers));
+            }
+            Settings settings = SETTINGS_HANDLER.handle(statusCode, headers, body);
+            return new SettingsCache.Entry(settings, SettingsCache.etag(headers), System.nanoTime(), false);
+        };
     }
 
     /**
@@ -86,9 +358,7 @@ public class GoTrueApi {
      * @throws GotrueException if the underlying http request throws an error of any kind.
      */
     public User updateUser(String jwt, UserAttributesDto attributes) throws GotrueException {
-        String urlUser = String.format("%s/user", url);
-
-        return Helpers.makeRequest(HttpMethod.PUT, urlUser, attributes, headersWithJWT(jwt), User.class);
+        return Helpers.makeRequest(pipeline, HttpMethod.PUT, userUri, attributes, bodyHeadersWithJWT(jwt), User.class);
     }
 
     // TODO: Ver porqué en C# también se pasa como parámetro el AccessToken
@@ -100,12 +370,10 @@ public class GoTrueApi {
      * @throws GotrueException if the underlying http request throws an error of any kind.
      */
     public Session refreshAccessToken(String refreshToken) throws GotrueException {
-        String urlToken = String.format("%s/token?grant_type=refresh_token", url);
-
         RefreshTokenDto refreshTokenDto = new RefreshTokenDto();
         refreshTokenDto.setRefreshToken(refreshToken);
 
-        return Helpers.makeRequest(HttpMethod.POST, urlToken, refreshTokenDto, headers, Session.class);
+        return Helpers.makeRequest(pipeline, HttpMethod.POST, refreshTokenUri, refreshTokenDto, bodyHeaders.asMap(), Session.class);
     }
 
     /**
@@ -116,12 +384,12 @@ public class GoTrueApi {
      * @throws GotrueException if the underlying http request throws an error of any kind.
      */
     public User getUser(String jwt) throws GotrueException {
-        String urlUser = String.format("%s/user", url);
-
-        return Helpers.makeRequest(HttpMethod.GET, urlUser, null, headersWithJWT(jwt), User.class);
+        if (jwt == null) {
+            return Helpers.makeRequest(pipeline, HttpMethod.GET, userUri, null, headersWithJWT(jwt), User.class);
+        }
+        return userFlights.call(jwt, () -> Helpers.makeRequest(pipeline, HttpMethod.GET, userUri, null, headersWithJWT(jwt), User.class));
     }
 
-    // TODO: Test this method
     /**
      * Get user details by Id
      * @param jwt A valid JWT. Must be a full-access API Key (e.g. service_role key)
@@ -129,9 +397,106 @@ public class GoTrueApi {
      * @return User
      */
     public User getUserById(String jwt, String userId) throws GotrueException {
-        String urlUser = String.format("%s/admin/users/%s", url, userId);
+        AdminUserCache cache = adminUserCache;
+        User user = cache != null ? cache.get(userId, jwt) : null;
+        if (user == null) {
+            user = Helpers.makeRequest(pipeline, HttpMethod.GET, adminUserUrl(userId), null, headersWithJWT(jwt), User.class);
+            if (cache != null) {
+                cache.put(userId, jwt, user);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Get the details of several users by Id, with at most {@value #DEFAULT_MAX_IN_FLIGHT} requests in flight, see
+     * {@link #getUsersByIds(String, Collection, int)}.
+     *
+     * @param jwt     A valid JWT. Must be a full-access API Key (e.g. service_role key)
+     * @param userIds The user IDs to get details for
+     * @return the users, keyed by their id in the iteration order of the given ids.
+     * @throws GotrueException          if any of the requests failed.
+     * @throws IllegalArgumentException if the user ids or one of them are not specified.
+     */
+    public Map<String, User> getUsersByIds(String jwt, Collection<String> userIds) throws GotrueException {
+        return getUsersByIds(jwt, userIds, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * Get the details of several users by Id. The users found in the {@link AdminUserCache} are not asked for, the
+     * others are requested concurrently without blocking, with a bounded number of requests in flight.
+     * The first failed request fails the call and aborts the requests still in flight, the users loaded until then
+     * are cached nevertheless.
+     *
+     * @param jwt         A valid JWT. Must be a full-access API Key (e.g. service_role key)
+     * @param userIds     The user IDs to get details for, duplicates are requested once.
+     * @param maxInFlight the maximum number of concurrent requests.
+     * @return the users, keyed by their id in the iteration order of the given ids.
+     * @throws GotrueException          if any of the requests failed, or the deadline of the call passed.
+     * @throws IllegalArgumentException if the user ids or one of them are not specified, or the max in flight is not
+     *                                  positive.
+     */
+    public Map<String, User> getUsersByIds(String jwt, Collection<String> userIds, int maxInFlight) throws GotrueException {
+        if (userIds == null) {
+            throw new IllegalArgumentException("The user ids are required!");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException(String.format("The max in flight >%s< must be positive!", maxInFlight));
+        }
+        AdminUserCache cache = adminUserCache;
+        Map<String, User> users = new LinkedHashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String userId : userIds) {
+            if (userId == null) {
+                throw new IllegalArgumentException("The user id is required!");
+            }
+            if (!users.containsKey(userId)) {
+                User cached = cache != null ? cache.get(userId, jwt) : null;
+                users.put(userId, cached);
+                if (cached == null) {
+                    misses.add(userId);
+                }
+            }
+        }
+        if (!misses.isEmpty()) {
+            User[] loaded = new UserBatch(jwt, misses, Deadline.current()).load(maxInFlight);
+            for (int i = 0; i < loaded.length; i++) {
+                users.put(misses.get(i), loaded[i]);
+            }
+        }
+        return users;
+    }
+
+    public AdminUserCache getAdminUserCache() {
+        return adminUserCache;
+    }
 
-        return Helpers.makeRequest(HttpMethod.GET, urlUser, null, headersWithJWT(jwt), User.class);
+    /**
+     * Sets the cache of the users read by id, by default there is none and every read asks the server.
+     *
+     * @param adminUserCache the cache to use, or null to disable caching.
+     */
+    public void setAdminUserCache(AdminUserCache adminUserCache) {
+        this.adminUserCache = adminUserCache;
+    }
+
+    /**
+     * Loads a user by id without blocking and caches it.
+     */
+    CompletableFuture<User> loadUserByIdAsync(String jwt, String userId) {
+        AdminUserCache cache = adminUserCache;
+        CompletableFuture<User> load = Helpers.makeRequestAsync(pipeline, HttpMethod.GET, adminUserUrl(userId), null, headersWithJWT(jwt), User.class);
+        if (cache == null) {
+            return load;
+        }
+        return GoTrueAsyncApi.map(load, user -> {
+            cache.put(userId, jwt, user);
+            return user;
+        });
+    }
+
+    private String adminUserUrl(String userId) {
+        return String.format("%s/admin/users/%s", url, userId);
     }
 
     // TODO: Ver lo de SignOutScope (Global, Local, others)
@@ -142,9 +507,7 @@ public class GoTrueApi {
      * @throws GotrueException if the underlying http request throws an error of any kind.
      */
     public BaseResponse signOut(String jwt) throws GotrueException {
-        String urlLogout = String.format("%s/logout", url);
-
-        return Helpers.makeRequest(HttpMethod.POST, urlLogout, null, headersWithJWT(jwt));
+        return Helpers.makeRequest(pipeline, HttpMethod.POST, logoutUri, null, headersWithJWT(jwt));
     }
 
 
@@ -157,13 +520,11 @@ public class GoTrueApi {
      * @throws GotrueException if the underlying http request throws an error of any kind.
      */
     public Session signInWithEmail(String email, String password) throws GotrueException {
-        String urlToken = String.format("%s/token?grant_type=password", url);
-
         CredentialsDto credentials = new CredentialsDto();
         credentials.setEmail(email);
         credentials.setPassword(password);
 
-        return Helpers.makeRequest(HttpMethod.POST, urlToken, credentials, headers, Session.class);
+        return Helpers.makeRequest(pipeline, HttpMethod.POST, passwordTokenUri, credentials, bodyHeaders.asMap(), Session.class);
     }
 
 
@@ -180,9 +541,7 @@ public class GoTrueApi {
         credentials.setEmail(email);
         credentials.setPassword(password);
 
-        String urlSignup = String.format("%s/signup", url);
-
-        return Helpers.makeRequest(HttpMethod.POST, urlSignup, credentials, headers, Session.class);
+        return Helpers.makeRequest(pipeline, HttpMethod.POST, signupUri, credentials, bodyHeaders.asMap(), Session.class);
     }
 
 
@@ -192,10 +551,120 @@ public class GoTrueApi {
      * @param jwt the token to be added to the headers.
      * @return the default headers plus the Authorization header.
      */
-    private Map<String, String> headersWithJWT(String jwt) {
-        Map<String, String> newHeaders = new HashMap<>(headers);
-        newHeaders.put("Authorization", String.format("Bearer %s", jwt));
+    Map<String, String> headersWithJWT(String jwt) {
+        return getHeaders.asMapWith(HttpHeaders.AUTHORIZATION, "Bearer " + jwt);
+    }
+
+    /**
+     * Get the default headers for a json body plus the Authorization header.
+     *
+     * @param jwt the token to be added to the headers.
+     * @return the default headers for a json body plus the Authorization header.
+     */
+    Map<String, String> bodyHeadersWithJWT(String jwt) {
+        return bodyHeaders.asMapWith(HttpHeaders.AUTHORIZATION, "Bearer " + jwt);
+    }
 
-        return newHeaders;
+    /**
+     * Loads users by id with a bounded number of requests in flight. Every completed request starts the next one, a
+     * request completing at once is followed in a loop rather than from its callback, so the stack stays flat.
+     */
+    private final class UserBatch {
+        private final String jwt;
+        private final List<String> userIds;
+        // the deadline of the caller, the next requests are sent from the callbacks of other threads
+        private final Deadline deadline;
+        private final User[] users;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final Set<CompletableFuture<User>> inFlight = ConcurrentHashMap.newKeySet();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        UserBatch(String jwt, List<String> userIds, Deadline deadline) {
+            this.jwt = jwt;
+            this.userIds = userIds;
+            this.deadline = deadline;
+            this.users = new User[userIds.size()];
+            this.remaining = new AtomicInteger(userIds.size());
+        }
+
+        User[] load(int maxInFlight) throws GotrueException {
+            for (int i = 0; i < Math.min(maxInFlight, userIds.size()); i++) {
+                sendNext();
+            }
+            try {
+                if (deadline == null) {
+                    done.get();
+                } else {
+                    done.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+                }
+                return users;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof GotrueException) {
+                    throw (GotrueException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new GotrueException(cause.getMessage(), FailureHint.Reason.Unknown, cause);
+            } catch (TimeoutException e) {
+                throw new GotrueException("Request timed out: deadline exceeded while waiting for the users", FailureHint.Reason.Offline, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GotrueException("Interrupted while waiting for the users", e);
+            } finally {
+                abort();
+            }
+        }
+
+        private void sendNext() {
+            while (!done.isDone()) {
+                int index = next.getAndIncrement();
+                if (index >= users.length) {
+                    return;
+                }
+                CompletableFuture<User> request;
+                try {
+                    request = deadline == null ? send(index) : Deadline.call(deadline, () -> send(index));
+                } catch (RuntimeException | Error e) {
+                    done.completeExceptionally(e);
+                    return;
+                }
+                if (!request.isDone()) {
+                    inFlight.add(request);
+                    request.whenComplete((user, error) -> {
+                        inFlight.remove(request);
+                        complete(index, user, error);
+                        sendNext();
+                    });
+                    return;
+                }
+                request.whenComplete((user, error) -> complete(index, user, error));
+            }
+        }
+
+        private CompletableFuture<User> send(int index) {
+            return loadUserByIdAsync(jwt, userIds.get(index));
+        }
+
+        private void complete(int index, User user, Throwable error) {
+            if (error != null) {
+                done.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                return;
+            }
+            users[index] = user;
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+
+        private void abort() {
+            done.cancel(false);
+            for (CompletableFuture<User> request : inFlight) {
+                request.cancel(true);
+            }
+        }
     }
 }
@@ -0,0 +1,176 @@
+package io.supabase;
+
+import io.supabase.data.dto.*;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.jwt.AdminUserCache;
+import io.supabase.responses.BaseResponse;
+import io.supabase.schemas.User;
+import io.supabase.utils.Helpers;
+import org.springframework.http.HttpMethod;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * The non-blocking counterpart of {@link GoTrueApi}.
+ * <p>
+ * Requests are sent with {@link io.supabase.http.GoTrueTransport#exchangeAsync} through the pipeline of the api, so no
+ * thread waits for the response.
+ * The returned futures complete exceptionally with a {@link GotrueException} in the same cases the blocking methods
+ * throw one, and cancelling them aborts the request in flight.
+ */
+public class GoTrueAsyncApi {
+    private final GoTrueApi api;
+
+    /**
+     * Creates an async api sending its requests to the url, with the headers and on the transport of the given api.
+     *
+     * @param api the blocking api to share the configuration with.
+     * @throws IllegalArgumentException if the api is not specified.
+     */
+    public GoTrueAsyncApi(GoTrueApi api) {
+        if (api == null) {
+            throw new IllegalArgumentException("The api is required!");
+        }
+        this.api = api;
+    }
+
+    /**
+     * Send a magic-link to a given email.
+     *
+     * @param email the email the link should be sent to.
+     */
+    public CompletableFuture<BaseResponse> magicLink(String email) {
+        EmailDto emailDto = new EmailDto();
+        emailDto.setEmail(email);
+
+        return Helpers.makeRequestAsync(api.pipeline, HttpMethod.POST, api.magicLinkUri, emailDto, api.bodyHeaders.asMap());
+    }
+
+    /**
+     * Send a password-recovery link to a given email.
+     *
+     * @param email the email a recovery link should be sent to.
+     */
+    public CompletableFuture<BaseResponse> recoverPassword(String email) {
+        EmailDto emailDto = new EmailDto();
+        emailDto.setEmail(email);
+
+        return Helpers.makeRequestAsync(api.pipeline, HttpMethod.POST, api.recoverUri, emailDto, api.bodyHeaders.asMap());
+    }
+
+    /**
+     * Get the settings from the gotrue server.
+     *
+     * @return settings from the gotrue server.
+     */
+    public CompletableFuture<Settings> getSettings() {
+        SettingsCache cache = api.getSettingsCache();
+        return cache != null ? cache.getAsync(api) : api.loadSettingsAsync(null).thenApply(SettingsCache.Entry::settings);
+    }
+
+    /**
+     * Update a user.
+     *
+     * @param jwt        A valid JWT.
+     * @param attributes The data you want to update
+     * @return details of the updated user.
+     */
+    public CompletableFuture<User> updateUser(String jwt, UserAttributesDto attributes) {
+        return Helpers.makeRequestAsync(api.pipeline, HttpMethod.PUT, api.userUri, attributes, api.bodyHeadersWithJWT(jwt), User.class);
+    }
+
+    /**
+     * Generates a new JWT
+     *
+     * @param refreshToken A valid refresh token that was returned on login.
+     * @return The updated information with the refreshed token
+     */
+    public CompletableFuture<Session> refreshAccessToken(String refreshToken) {
+        RefreshTokenDto refreshTokenDto = new RefreshTokenDto();
+        refreshTokenDto.setRefreshToken(refreshToken);
+
+        return Helpers.makeRequestAsync(api.pipeline, HttpMethod.POST, api.refreshTokenUri, refreshTokenDto, api.bodyHeaders.asMap(), Session.class);
+    }
+
+    /**
+     * Gets details about the user.
+     *
+     * @param jwt A valid, logged-in JWT.
+     * @return details about the user.
+     */
+    public CompletableFuture<User> getUser(String jwt) {
+        if (jwt == null) {
+            return Helpers.makeRequestAsync(api.pipeline, HttpMethod.GET, api.userUri, null, api.headersWithJWT(jwt), User.class);
+        }
+        return api.userFlights.callAsync(jwt,
+                () -> Helpers.makeRequestAsync(api.pipeline, HttpMethod.GET, api.userUri, null, api.headersWithJWT(jwt), User.class));
+    }
+
+    /**
+     * Get user details by Id
+     *
+     * @param jwt    A valid JWT. Must be a full-access API Key (e.g. service_role key)
+     * @param userId The user ID to get details for
+     * @return User
+     */
+    public CompletableFuture<User> getUserById(String jwt, String userId) {
+        AdminUserCache cache = api.getAdminUserCache();
+        User cached = cache != null ? cache.get(userId, jwt) : null;
+
+        return cached != null ? CompletableFuture.completedFuture(cached) : api.loadUserByIdAsync(jwt, userId);
+    }
+
+    /**
+     * Removes a logged-in session.
+     *
+     * @param jwt A valid, logged-in JWT.
+     */
+    public CompletableFuture<BaseResponse> signOut(String jwt) {
+        return Helpers.makeRequestAsync(api.pipeline, HttpMethod.POST, api.logoutUri, null, api.headersWithJWT(jwt));
+    }
+
+    /**
+     * Logs in an existing user using their email address.
+     *
+     * @param email    The email address of the user.
+     * @param password The password of the user.
+     * @return Details about the authentication.
+     */
+    public CompletableFuture<Session> signInWithEmail(String email, String password) {
+        CredentialsDto credentials = new CredentialsDto();
+        credentials.setEmail(email);
+        credentials.setPassword(password);
+
+        return Helpers.makeRequestAsync(api.pipeline, HttpMethod.POST, api.passwordTokenUri, credentials, api.bodyHeaders.asMap(), Session.class);
+    }
+
+    /**
+     * Creates a new user using their email address.
+     *
+     * @param email    The email address of the user.
+     * @param password The password of the user.
+     * @return Details about the authentication.
+     */
+    public CompletableFuture<Session> signUpWithEmail(String email, String password) {
+        CredentialsDto credentials = new CredentialsDto();
+        credentials.setEmail(email);
+        credentials.setPassword(password);
+
+        return Helpers.makeRequestAsync(api.pipeline, HttpMethod.POST, api.signupUri, credentials, api.bodyHeaders.asMap(), Session.class);
+    }
+
+    /**
+     * Applies a function to the result of a future, like {@link CompletableFuture#thenApply}, but cancelling the
+     * returned future also cancels the source and with it the request in flight.
+     */
+    static <T, R> CompletableFuture<R> map(CompletableFuture<T> source, Function<? super T, ? extends R> fn) {
+        CompletableFuture<R> result = source.thenApply(fn);
+        result.whenComplete((r, error) -> {
+            if (result.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return result;
+    }
+}
@@ -2,43 +2,79 @@ package io.supabase;
 
 import io.jsonwebtoken.JwtException;
 import io.supabase.data.dto.*;
+import io.supabase.data.jwt.ParseResult;
 import io.supabase.data.jwt.ParsedToken;
 import io.supabase.exceptions.*;
+import io.supabase.http.CircuitBreaker;
+import io.supabase.http.ConcurrencyLimitedTransport;
+import io.supabase.http.RateLimiter;
+import io.supabase.http.Deadline;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.http.RetryPolicy;
+import io.supabase.http.TimeoutPolicy;
+import io.supabase.jwt.AdminUserCache;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.LazyParsedToken;
+import io.supabase.jwt.RevocationList;
+import io.supabase.jwt.TokenCache;
+import io.supabase.jwt.UserCache;
 import io.supabase.responses.BaseResponse;
 import io.supabase.schemas.User;
 import io.supabase.utils.ClientUtils;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 public class GoTrueClient {
+    // tasks per thread of a batch, so uneven chunks still keep all threads busy
+    private static final int CHUNKS_PER_THREAD = 4;
     private static GoTrueClient client;
     private final GoTrueApi api;
+    private final GoTrueAsyncApi asyncApi;
     private final String url;
     private final Map<String, String> headers;
-    private Session currentAuth;
+    private volatile Session currentAuth;
+    private volatile JwtVerifier jwtVerifier;
+    private volatile TokenCache tokenCache;
+    private volatile UserCache userCache;
+    private volatile RevocationList revocationList = new RevocationList();
 
     protected GoTrueClient(String url, Map<String, String> headers) throws UrlNotFoundException, MalformedHeadersException {
         this.url = url != null ? url : ClientUtils.loadUrl();
         this.headers = headers != null ? headers : ClientUtils.loadHeaders();
         this.api = new GoTrueApi(this.url, this.headers);
+        this.asyncApi = new GoTrueAsyncApi(api);
     }
 
     protected GoTrueClient(Map<String, String> headers) throws UrlNotFoundException, MalformedHeadersException {
         this.url = ClientUtils.loadUrl();
         this.headers = headers != null ? headers : ClientUtils.loadHeaders();
         this.api = new GoTrueApi(this.url, headers);
+        this.asyncApi = new GoTrueAsyncApi(api);
     }
 
     protected GoTrueClient(String url) throws UrlNotFoundException, MalformedHeadersException {
         this.url = url != null ? url : ClientUtils.loadUrl();
         this.headers = ClientUtils.loadHeaders();
         this.api = new GoTrueApi(url, this.headers);
+        this.asyncApi = new GoTrueAsyncApi(api);
     }
 
     protected GoTrueClient() throws UrlNotFoundException, MalformedHeadersException {
         this.url = ClientUtils.loadUrl();
         this.headers = ClientUtils.loadHeaders();
         this.api = new GoTrueApi(this.url, this.headers);
+        this.asyncApi = new GoTrueAsyncApi(api);
     }
 
 
@@ -77,13 +113,32 @@ public class GoTrueClient {
      * @param jwt token to be parsed.
      * @return the parsed token.
      * @throws JwtSecretNotFoundException if the jwt secret is not specified
-     * @throws JwtException               if the given token is expired, malformed, unsupported or wrongly signed
+     * @throws JwtException               if the given token is expired, malformed, unsupported, wrongly signed or revoked
      * @throws IllegalArgumentException   if the jwt token is not specified.
      */
     public ParsedToken parseJwt(String jwt) throws JwtSecretNotFoundException {
         checkParam(jwt, "jwt");
 
-        return ClientUtils.parseJwt(jwt);
+        return parseCached(jwt);
+    }
+
+
+    /**
+     * Parses a jwt token, reading its claims only when they are accessed.
+     * The token cache is not consulted, the lazy token is cheap enough to create on every call.
+     *
+     * @param jwt token to be parsed.
+     * @return the verified token.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified
+     * @throws JwtException               if the given token is expired, malformed, unsupported, wrongly signed or revoked
+     * @throws IllegalArgumentException   if the jwt token is not specified.
+     */
+    public LazyParsedToken parseJwtLazy(String jwt) throws JwtSecretNotFoundException {
+        checkParam(jwt, "jwt");
+
+        LazyParsedToken parsed = getJwtVerifier().parseLazy(jwt);
+        checkRevoked(revocationList, jwt);
+        return parsed;
     }
 
 
@@ -97,15 +152,368 @@ public class GoTrueClient {
      */
     public boolean validate(String jwt) throws JwtSecretNotFoundException {
         checkParam(jwt, "jwt");
-        try {
-            ClientUtils.parseJwt(jwt);
 
-            // no error -> valid
-            return true;
-        } catch (JwtException e) {
+        return validate(getJwtVerifier(), tokenCache, revocationList, jwt);
+    }
 
-            return false;
+    /**
+     * Parses a batch of jwt tokens in parallel on the common fork-join pool.
+     *
+     * @param jwts tokens to be parsed.
+     * @return the results in the iteration order of the given tokens.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified
+     * @throws IllegalArgumentException   if the tokens are not specified.
+     */
+    public List<ParseResult> parseJwtAll(Collection<String> jwts) throws JwtSecretNotFoundException {
+        return parseJwtAll(jwts, null);
+    }
+
+    /**
+     * Parses a batch of jwt tokens in parallel. All tokens are checked with the same verifier and token cache.
+     *
+     * @param jwts     tokens to be parsed.
+     * @param executor executor to run the batch on, or null to use the common fork-join pool.
+     * @return the results in the iteration order of the given tokens.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified
+     * @throws IllegalArgumentException   if the tokens are not specified.
+     */
+    public List<ParseResult> parseJwtAll(Collection<String> jwts, Executor executor) throws JwtSecretNotFoundException {
+        checkParam(jwts, "jwts");
+        String[] tokens = jwts.toArray(new String[0]);
+        ParseResult[] results = new ParseResult[tokens.length];
+        JwtVerifier verifier = getJwtVerifier();
+        TokenCache cache = tokenCache;
+        RevocationList revocations = revocationList;
+        runBatch(tokens.length, executor, i -> {
+            String jwt = tokens[i];
+            try {
+                checkParam(jwt, "jwt");
+                results[i] = new ParseResult(jwt, parseCached(verifier, cache, revocations, jwt), null);
+            } catch (JwtException | IllegalArgumentException e) {
+                results[i] = new ParseResult(jwt, null, e);
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Validates a batch of jwt tokens in parallel on the common fork-join pool.
+     *
+     * @param jwts tokens to be validated.
+     * @return whether each token is valid, in the iteration order of the given tokens.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified
+     * @throws IllegalArgumentException   if the tokens are not specified.
+     */
+    public List<Boolean> validateAll(Collection<String> jwts) throws JwtSecretNotFoundException {
+        return validateAll(jwts, null);
+    }
+
+    /**
+     * Validates a batch of jwt tokens in parallel. All tokens are checked with the same verifier and token cache,
+     * unspecified tokens are reported as invalid.
+     *
+     * @param jwts     tokens to be validated.
+     * @param executor executor to run the batch on, or null to use the common fork-join pool.
+     * @return whether each token is valid, in the iteration order of the given tokens.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified
+     * @throws IllegalArgumentException   if the tokens are not specified.
+     */
+    public List<Boolean> validateAll(Collection<String> jwts, Executor executor) throws JwtSecretNotFoundException {
+        checkParam(jwts, "jwts");
+        String[] tokens = jwts.toArray(new String[0]);
+        boolean[] valid = new boolean[tokens.length];
+        JwtVerifier verifier = getJwtVerifier();
+        TokenCache cache = tokenCache;
+        RevocationList revocations = revocationList;
+        runBatch(tokens.length, executor, i -> valid[i] = validate(verifier, cache, revocations, tokens[i]));
+
+        List<Boolean> results = new ArrayList<>(valid.length);
+        for (boolean v : valid) {
+            results.add(v);
         }
+        return results;
+    }
+
+    /**
+     * Gets the verifier used to parse and validate jwt tokens.
+     * If none was set, it is loaded once from the environment or the properties and reused afterwards. The keys of
+     * asymmetric algorithms are fetched with the transport and policies of this client.
+     *
+     * @return the jwt verifier of this client.
+     * @throws JwtSecretNotFoundException if no verifier was set and the jwt secret is not specified
+     */
+    public JwtVerifier getJwtVerifier() throws JwtSecretNotFoundException {
+        JwtVerifier verifier = jwtVerifier;
+        if (verifier == null) {
+            // the keys are fetched through the current pipeline of the api, with its timeouts, retries and circuit breaker
+            verifier = ClientUtils.loadJwtVerifier(url, headers, request -> api.pipeline.send(request));
+            jwtVerifier = verifier;
+        }
+        return verifier;
+    }
+
+    /**
+     * Sets the verifier used to parse and validate jwt tokens.
+     *
+     * @param jwtVerifier the verifier to use, or null to load it from the configuration on next use.
+     */
+    public void setJwtVerifier(JwtVerifier jwtVerifier) {
+        this.jwtVerifier = jwtVerifier;
+        TokenCache cache = tokenCache;
+        if (cache != null) {
+            // tokens verified with the previous verifier might not be valid anymore
+            cache.clear();
+        }
+    }
+
+    /**
+     * Gets the cache of verified tokens.
+     *
+     * @return the token cache, or null if caching is disabled.
+     */
+    public TokenCache getTokenCache() {
+        return tokenCache;
+    }
+
+    /**
+     * Enables caching of verified tokens, so repeated validations of the same token skip the signature check.
+     *
+     * @param tokenCache the cache to use, or null to disable caching.
+     */
+    public void setTokenCache(TokenCache tokenCache) {
+        this.tokenCache = tokenCache;
+    }
+
+    /**
+     * Gets the cache of the users behind access tokens.
+     *
+     * @return the user cache, or null if caching is disabled.
+     */
+    public UserCache getUserCache() {
+        return userCache;
+    }
+
+    /**
+     * Enables caching of users, so {@link #getUser(String)} asks the server once per token instead of on every call.
+     * The cache is seeded with the user of every session this client signs in, signs up or refreshes, and drops the
+     * users that are updated or signed out through this client.
+     *
+     * @param userCache the cache to use, or null to disable caching.
+     */
+    public void setUserCache(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    /**
+     * Gets the transport the requests to the GoTrue server are sent with.
+     *
+     * @return the transport of this client.
+     */
+    public GoTrueTransport getTransport() {
+        return api.getTransport();
+    }
+
+    /**
+     * Sets the transport the requests to the GoTrue server are sent with, by default a shared {@link HttpClientTransport}
+     * with a bounded number of requests in flight.
+     *
+     * @param transport the transport to use.
+     * @throws IllegalArgumentException if the transport is not specified.
+     */
+    public void setTransport(GoTrueTransport transport) {
+        api.setTransport(transport);
+    }
+
+    /**
+     * Runs the requests of this client on virtual threads, for callers on virtual threads that should not pin or
+     * occupy a platform thread while waiting for GoTrue.
+     * Since virtual threads are not pooled, the number of requests in flight is capped instead, callers beyond it wait
+     * for a slot.
+     *
+     * @param maxConcurrentRequests the maximum number of requests in flight.
+     * @throws IllegalArgumentException if the maximum is not positive.
+     * @see HttpClientTransport#ofVirtualThreads()
+     */
+    public void useVirtualThreads(int maxConcurrentRequests) {
+        setTransport(new ConcurrencyLimitedTransport(HttpClientTransport.ofVirtualThreads(), maxConcurrentRequests));
+    }
+
+    /**
+     * Gets the timeouts of the requests to the GoTrue server.
+     *
+     * @return the timeout policy of this client.
+     */
+    public TimeoutPolicy getTimeoutPolicy() {
+        return api.getTimeoutPolicy();
+    }
+
+    /**
+     * Sets the read and total timeouts of the requests to the GoTrue server, by default {@link TimeoutPolicy#DEFAULT}.
+     * A request timing out fails with a {@link GotrueException} of reason {@link FailureHint.Reason#Offline}.
+     *
+     * @param timeoutPolicy the timeouts to apply.
+     * @throws IllegalArgumentException if the timeout policy is not specified.
+     */
+    public void setTimeoutPolicy(TimeoutPolicy timeoutPolicy) {
+        api.setTimeoutPolicy(timeoutPolicy);
+    }
+
+    /**
+     * Gets when and how often requests to the GoTrue server are retried.
+     *
+     * @return the retry policy of this client, or null if requests are not retried.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return api.getRetryPolicy();
+    }
+
+    /**
+     * Sets when and how often requests to the GoTrue server are retried, by default they are not. Only requests safe to
+     * repeat are retried, see {@link RetryPolicy}, and the policy counts the attempts and retries of this client.
+     *
+     * @param retryPolicy the retries to apply, or null to disable retries.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        api.setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * Gets the circuit breaker rejecting requests to failing endpoints of the GoTrue server.
+     *
+     * @return the circuit breaker of this client, or null if there is none.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return api.getCircuitBreaker();
+    }
+
+    /**
+     * Sets the circuit breaker rejecting requests to failing endpoints of the GoTrue server, by default there is none.
+     * While the circuit of an endpoint is open, its requests fail at once with a {@link GotrueException} of reason
+     * {@link FailureHint.Reason#Offline}, see {@link CircuitBreaker#addListener} for its state changes.
+     *
+     * @param circuitBreaker the circuit breaker to ask before sending, or null to always send.
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        api.setCircuitBreaker(circuitBreaker);
+    }
+
+    /**
+     * Gets the rate limiter keeping the requests under the limits of the GoTrue server.
+     *
+     * @return the rate limiter of this client, or null if there is none.
+     */
+    public RateLimiter getRateLimiter() {
+        return api.getRateLimiter();
+    }
+
+    /**
+     * Sets the rate limiter keeping the requests under the limits of the GoTrue server, by default there is none.
+     * Requests beyond the limit of their endpoint wait for their turn, or fail at once with a {@link GotrueException}
+     * of reason {@link FailureHint.Reason#UserTooManyRequests}. Clients behind one IP address share the limits of the
+     * server, a limiter shared by these clients keeps them under it together.
+     *
+     * @param rateLimiter the rate limiter to take tokens from, or null to send at any rate.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        api.setRateLimiter(rateLimiter);
+    }
+
+    /**
+     * Gets the number of reads of the settings and of users that shared the request of an identical read in flight.
+     * Concurrent calls to {@link #settings()}, or to {@link #getUser(String)} with the same JWT, send one request and
+     * all get its result.
+     *
+     * @return the number of coalesced calls.
+     */
+    public long getCoalescedCount() {
+        return api.getCoalescedCount();
+    }
+
+    public SettingsCache getSettingsCache() {
+        return api.getSettingsCache();
+    }
+
+    /**
+     * Sets the cache of the settings, by default there is none and every call to {@link #settings()} asks the server.
+     * A cache belongs to one client and must not be shared with clients of other servers.
+     *
+     * @param settingsCache the cache to use, or null to disable caching.
+     */
+    public void setSettingsCache(SettingsCache settingsCache) {
+        api.setSettingsCache(settingsCache);
+    }
+
+    public AdminUserCache getAdminUserCache() {
+        return api.getAdminUserCache();
+    }
+
+    /**
+     * Sets the cache of the users read by id, by default there is none and every call to
+     * {@link #getUserById(String, String)} asks the server.
+     *
+     * @param adminUserCache the cache to use, or null to disable caching.
+     */
+    public void setAdminUserCache(AdminUserCache adminUserCache) {
+        api.setAdminUserCache(adminUserCache);
+    }
+
+    /**
+     * Runs calls to this client within a deadline, e.g. a refresh followed by a user lookup. Every request sent from
+     * within the call, retries included, fails once the deadline passed, and requests sent without blocking keep the
+     * deadline of the call they were sent from.
+     *
+     * @param timeout the time the call may take.
+     * @param call    the call to run.
+     * @param <T>     the result of the call.
+     * @param <E>     the exception thrown by the call.
+     * @return the result of the call.
+     * @throws E if the call failed.
+     * @throws IllegalArgumentException if the timeout or the call is not specified.
+     */
+    public <T, E extends Exception> T withDeadline(Duration timeout, Deadline.Call<T, E> call) throws E {
+        checkParam(timeout, "timeout");
+        checkParam(call, "call");
+
+        return Deadline.call(timeout, call);
+    }
+
+    /**
+     * Gets the non-blocking api, sharing the url, headers and transport of this client.
+     *
+     * @return the async api of this client.
+     */
+    public GoTrueAsyncApi getAsyncApi() {
+        return asyncApi;
+    }
+
+    /**
+     * Gets an api streaming requests with backpressure, sharing the url, headers and transport of this client.
+     *
+     * @param maxInFlight the maximum number of requests in flight per subscription.
+     * @return a flow api on the async api of this client.
+     * @throws IllegalArgumentException if the max in flight is not positive.
+     */
+    public GoTrueFlowApi getFlowApi(int maxInFlight) {
+        return new GoTrueFlowApi(asyncApi, maxInFlight);
+    }
+
+    /**
+     * Gets the local deny-list of signed out sessions.
+     *
+     * @return the revocation list, or null if signed out tokens are not tracked.
+     */
+    public RevocationList getRevocationList() {
+        return revocationList;
+    }
+
+    /**
+     * Sets the local deny-list of signed out sessions, e.g. to share one between clients.
+     * Sessions signed out through this client are added to it, and parsing or validating their tokens fails afterwards.
+     *
+     * @param revocationList the revocation list to use, or null to stop tracking signed out tokens.
+     */
+    public void setRevocationList(RevocationList revocationList) {
+        this.revocationList = revocationList;
     }
 
 
@@ -146,7 +554,7 @@ public class GoTrueClient {
     public Session signIn(String email, String password) throws GotrueException {
         checkParam(email, "email");
         checkParam(password, "password");
-        currentAuth = api.signInWithEmail(email, password);
+        currentAuth = cacheUser(api.signInWithEmail(email, password));
 
         return currentAuth;
     }
@@ -164,7 +572,7 @@ public class GoTrueClient {
     public Session signUp(String email, String password) throws GotrueException {
         checkParam(email, "email");
         checkParam(password, "password");
-        currentAuth = api.signUpWithEmail(email, password);
+        currentAuth = cacheUser(api.signUpWithEmail(email, password));
 
         return currentAuth;
     }
@@ -183,7 +591,7 @@ public class GoTrueClient {
         checkAuthState();
         checkParam(attributes, "attributes");
 
-        return api.updateUser(currentAuth.getAccessToken(), attributes);
+        return update(currentAuth.getAccessToken(), attributes);
     }
 
     /**
@@ -200,7 +608,7 @@ public class GoTrueClient {
         checkParam(jwt, "jwt");
         checkParam(attributes, "attributes");
 
-        return api.updateUser(jwt, attributes);
+        return updateCachedUser(jwt, api.updateUser(jwt, attributes));
     }
 
     /**
@@ -211,11 +619,13 @@ public class GoTrueClient {
      */
     public void signOut() throws GotrueException {
         checkAuthState();
-        api.signOut(currentAuth.getAccessToken());
+        signOut(currentAuth.getAccessToken());
     }
 
     /**
      * Signs out the user of the given jwt.
+     * Once the server signed out the session, its tokens are added to the revocation list, so this client rejects them
+     * locally as well.
      *
      * @param jwt A valid jwt.
      * @throws GotrueException  if the underlying http request throws an error of any kind.
@@ -224,6 +634,20 @@ public class GoTrueClient {
     public void signOut(String jwt) throws GotrueException {
         checkParam(jwt, "jwt");
         api.signOut(jwt);
+        revoke(jwt);
+    }
+
+    // only once the server revoked the session, a failed sign out leaves the token valid
+    private void revoke(String jwt) {
+        UserCache users = userCache;
+        if (users != null) {
+            users.invalidate(jwt);
+        }
+        RevocationList revocations = revocationList;
+        if (revocations != null) {
+            JwtVerifier verifier = jwtVerifier;
+            revocations.revoke(jwt, verifier != null ? verifier.getAllowedClockSkewSeconds() : 0);
+        }
     }
 
     /**
@@ -247,11 +671,12 @@ public class GoTrueClient {
     public Session refresh() throws GotrueException {
         checkAuthState();
 
-        return api.refreshAccessToken(currentAuth.getRefreshToken());
+        return cacheUser(api.refreshAccessToken(currentAuth.getRefreshToken()));
     }
 
     /**
      * Gets details about the user.
+     * With a {@link UserCache}, the user is asked from the server only once per token.
      *
      * @param jwt A valid, logged-in JWT.
      * @return User details about the user.
@@ -261,10 +686,54 @@ public class GoTrueClient {
     public User getUser(String jwt) throws GotrueException {
         checkParam(jwt, "jwt");
 
-        return api.getUser(jwt);
+        UserCache users = userCache;
+        if (users == null) {
+            return api.getUser(jwt);
+        }
+        User user = users.get(jwt);
+        if (user == null) {
+            user = api.getUser(jwt);
+            users.put(jwt, user);
+        }
+        return user;
     }
 
 
+    /**
+     * Gets details about a user by id.
+     *
+     * @param jwt    A valid JWT. Must be a full-access API Key (e.g. service_role key)
+     * @param userId The user ID to get details for
+     * @return User details about the user.
+     * @throws GotrueException          if the underlying http request throws an error of any kind.
+     * @throws IllegalArgumentException if the jwt token or the user id is not specified.
+     */
+    public User getUserById(String jwt, String userId) throws GotrueException {
+        checkParam(jwt, "jwt");
+        checkParam(userId, "userId");
+
+        return api.getUserById(jwt, userId);
+    }
+
+    /**
+     * Gets details about several users by id, requesting the users not cached concurrently, see
+     * {@link GoTrueApi#getUsersByIds(String, Collection, int)}.
+     *
+     * @param jwt         A valid JWT. Must be a full-access API Key (e.g. service_role key)
+     * @param userIds     The user IDs to get details for
+     * @param maxInFlight the maximum number of concurrent requests.
+     * @return the users, keyed by their id in the iteration order of the given ids.
+     * @throws GotrueException          if any of the requests failed.
+     * @throws IllegalArgumentException if the jwt token or the user ids are not specified, or the max in flight is not
+     *                                  positive.
+     */
+    public Map<String, User> getUsersByIds(String jwt, Collection<String> userIds, int maxInFlight) throws GotrueException {
+        checkParam(jwt, "jwt");
+        checkParam(userIds, "userIds");
+
+        return api.getUsersByIds(jwt, userIds, maxInFlight);
+    }
+
     /**
      * Generates a new JWT.
      *
@@ -276,7 +745,7 @@ public class GoTrueClient {
     public Session refresh(String refreshToken) throws GotrueException {
         checkParam(refreshToken, "refreshToken");
 
-        return api.refreshAccessToken(refreshToken);
+        return cacheUser(api.refreshAccessToken(refreshToken));
     }
 
     /**
@@ -292,6 +761,225 @@ public class GoTrueClient {
         return api.recoverPassword(email);
     }
 
+    /**
+     * Logs in an existing user without blocking, see {@link #signIn(String, String)}.
+     *
+     * @param email    The email address of the user.
+     * @param password The password of the user.
+     * @return a future of the details about the authentication, failing with a {@link GotrueException} if the
+     * underlying http request throws an error of any kind.
+     * @throws IllegalArgumentException If either the email, password, or both are not specified.
+     */
+    public CompletableFuture<Session> signInAsync(String email, String password) {
+        checkParam(email, "email");
+        checkParam(password, "password");
+
+        return GoTrueAsyncApi.map(asyncApi.signInWithEmail(email, password), this::setCurrentAuth);
+    }
+
+    /**
+     * Creates a new user without blocking, see {@link #signUp(String, String)}.
+     *
+     * @param email    The email address of the user.
+     * @param password The password of the user.
+     * @return a future of the details about the authentication, failing with a {@link GotrueException} if the
+     * underlying http request throws an error of any kind.
+     * @throws IllegalArgumentException if the either or both email and password are not specified.
+     */
+    public CompletableFuture<Session> signUpAsync(String email, String password) {
+        checkParam(email, "email");
+        checkParam(password, "password");
+
+        return GoTrueAsyncApi.map(asyncApi.signUpWithEmail(email, password), this::setCurrentAuth);
+    }
+
+    /**
+     * Update attributes of given user without blocking.
+     *
+     * @param jwt        of the user you want to update.
+     * @param attributes The data you want to update
+     * @return a future of the details of the updated user, failing with a {@link GotrueException} if the underlying
+     * http request throws an error of any kind.
+     * @throws IllegalArgumentException if the jwt token is not specified.
+     * @throws IllegalArgumentException if the attributes are not specified.
+     */
+    public CompletableFuture<User> updateAsync(String jwt, UserAttributesDto attributes) {
+        checkParam(jwt, "jwt");
+        checkParam(attributes, "attributes");
+
+        return GoTrueAsyncApi.map(asyncApi.updateUser(jwt, attributes), user -> updateCachedUser(jwt, user));
+    }
+
+    /**
+     * Signs out the user of the given jwt without blocking, see {@link #signOut(String)}.
+     *
+     * @param jwt A valid jwt.
+     * @return a future completing once the session was signed out, failing with a {@link GotrueException} if the
+     * underlying http request throws an error of any kind.
+     * @throws IllegalArgumentException if the jwt token is not specified.
+     */
+    public CompletableFuture<Void> signOutAsync(String jwt) {
+        checkParam(jwt, "jwt");
+
+        return GoTrueAsyncApi.map(asyncApi.signOut(jwt), response -> {
+            revoke(jwt);
+            return null;
+        });
+    }
+
+    /**
+     * Get the settings from the gotrue server without blocking.
+     *
+     * @return a future of the settings, failing with a {@link GotrueException} if the underlying http request throws
+     * an error of any kind.
+     */
+    public CompletableFuture<Settings> settingsAsync() {
+
+        return asyncApi.getSettings();
+    }
+
+    /**
+     * Gets details about the user without blocking.
+     *
+     * @param jwt A valid, logged-in JWT.
+     * @return a future of the user, failing with a {@link GotrueException} if the underlying http request throws an
+     * error of any kind.
+     * @throws IllegalArgumentException if the jwt token is not specified.
+     */
+    public CompletableFuture<User> getUserAsync(String jwt) {
+        checkParam(jwt, "jwt");
+
+        UserCache users = userCache;
+        if (users == null) {
+            return asyncApi.getUser(jwt);
+        }
+        User user = users.get(jwt);
+        if (user != null) {
+            return CompletableFuture.completedFuture(user);
+        }
+        return GoTrueAsyncApi.map(asyncApi.getUser(jwt), loaded -> {
+            users.put(jwt, loaded);
+            return loaded;
+        });
+    }
+
+    /**
+     * Generates a new JWT without blocking.
+     *
+     * @param refreshToken A valid refresh token that was returned on login.
+     * @return a future of the refreshed session, failing with a {@link GotrueException} if the underlying http request
+     * throws an error of any kind.
+     * @throws IllegalArgumentException if the refresh token is not specified.
+     */
+    public CompletableFuture<Session> refreshAsync(String refreshToken) {
+        checkParam(refreshToken, "refreshToken");
+
+        return GoTrueAsyncApi.map(asyncApi.refreshAccessToken(refreshToken), this::cacheUser);
+    }
+
+    /**
+     * Send a password-recovery link to a given email without blocking.
+     *
+     * @param email the email a recovery link should be sent to.
+     * @return a future of the response, failing with a {@link GotrueException} if the underlying http request throws
+     * an error of any kind.
+     * @throws IllegalArgumentException if the email is not specified.
+     */
+    public CompletableFuture<BaseResponse> recoverAsync(String email) {
+        checkParam(email, "email");
+
+        return asyncApi.recoverPassword(email);
+    }
+
+    private Session setCurrentAuth(Session session) {
+        currentAuth = cacheUser(session);
+        return session;
+    }
+
+    // the session comes with its user, so the first lookup of the new token needs no request
+    private Session cacheUser(Session session) {
+        UserCache users = userCache;
+        if (users != null && session != null && session.getAccessToken() != null) {
+            users.put(session.getAccessToken(), session.getUser());
+        }
+        return session;
+    }
+
+    // the other sessions of the user still hold the user as it was before the update
+    private User updateCachedUser(String jwt, User user) {
+        UserCache users = userCache;
+        if (users != null && user != null) {
+            users.invalidateUser(user.getId());
+            users.put(jwt, user);
+        }
+        return user;
+    }
+
+    private ParsedToken parseCached(String jwt) throws JwtSecretNotFoundException {
+        return parseCached(getJwtVerifier(), tokenCache, revocationList, jwt);
+    }
+
+    private static ParsedToken parseCached(JwtVerifier verifier, TokenCache cache, RevocationList revocations, String jwt) {
+        ParsedToken parsed = cache != null ? cache.get(jwt) : null;
+        if (parsed == null) {
+            parsed = verifier.parse(jwt);
+            if (cache != null) {
+                cache.put(jwt, parsed, verifier.getAllowedClockSkewSeconds());
+            }
+        }
+        checkRevoked(revocations, jwt);
+        return parsed;
+    }
+
+    private static void checkRevoked(RevocationList revocations, String jwt) {
+        if (revocations != null && revocations.isRevoked(jwt)) {
+            throw new RevokedJwtException();
+        }
+    }
+
+    private static boolean validate(JwtVerifier verifier, TokenCache cache, RevocationList revocations, String jwt) {
+        if (cache == null) {
+            return verifier.validate(jwt) && (revocations == null || !revocations.isRevoked(jwt));
+        }
+        if (jwt == null || jwt.isEmpty()) {
+            return false;
+        }
+        try {
+            parseCached(verifier, cache, revocations, jwt);
+
+            // no error -> valid
+            return true;
+        } catch (JwtException e) {
+
+            return false;
+        }
+    }
+
+    /**
+     * Runs the task for every index of a batch, on the common fork-join pool or split into chunks on the given executor,
+     * and waits for all of them to finish.
+     * Without a second core to fan out to, the batch runs on the calling thread to spare the coordination overhead.
+     */
+    private static void runBatch(int size, Executor executor, IntConsumer task) {
+        if (executor == null) {
+            IntStream range = IntStream.range(0, size);
+            (ForkJoinPool.getCommonPoolParallelism() > 1 ? range.parallel() : range).forEach(task);
+            return;
+        }
+        int chunks = Math.min(size, Runtime.getRuntime().availableProcessors() * CHUNKS_PER_THREAD);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[chunks];
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) size * c / chunks);
+            int to = (int) ((long) size * (c + 1) / chunks);
+            futures[c] = CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    task.accept(i);
+                }
+            }, executor);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
     private void checkAuthState() {
         if (currentAuth == null) {
             throw new IllegalArgumentException("You need to be logged in to use this method!");
@@ -0,0 +1,98 @@
+package io.supabase;
+
+import io.supabase.data.dto.Session;
+import io.supabase.flow.BoundedMapPublisher;
+import io.supabase.flow.FlowResult;
+import io.supabase.schemas.User;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+
+/**
+ * Streams requests to the GoTrue server with backpressure, on top of {@link GoTrueAsyncApi}.
+ * <p>
+ * Each method takes a {@link Flow.Publisher} of requests and returns a publisher of their results. At most
+ * {@code maxInFlight} requests are pulled from the source and not yet delivered, and requests are only pulled while
+ * the subscriber has demand, so a slow GoTrue server throttles the source instead of queueing its requests.
+ * Results are emitted in completion order, failed requests are emitted with their {@link io.supabase.exceptions.GotrueException}.
+ *
+ * @see BoundedMapPublisher
+ */
+public class GoTrueFlowApi {
+    /**
+     * The number of requests in flight of apis created without one.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
+    private final GoTrueAsyncApi api;
+    private final int maxInFlight;
+
+    public GoTrueFlowApi(GoTrueAsyncApi api) {
+        this(api, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param api         the async api to send the requests with.
+     * @param maxInFlight the maximum number of requests in flight per subscription.
+     * @throws IllegalArgumentException if the api is not specified or the max in flight is not positive.
+     */
+    public GoTrueFlowApi(GoTrueAsyncApi api, int maxInFlight) {
+        if (api == null) {
+            throw new IllegalArgumentException("The api is required!");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException(String.format("The max in flight >%s< must be positive!", maxInFlight));
+        }
+        this.api = api;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Generates new JWTs.
+     *
+     * @param refreshTokens the refresh tokens to rotate.
+     * @return the refreshed sessions, keyed by their refresh token.
+     */
+    public Flow.Publisher<FlowResult<String, Session>> refreshAccessTokens(Flow.Publisher<String> refreshTokens) {
+        return map(refreshTokens, api::refreshAccessToken);
+    }
+
+    /**
+     * Gets details about the users of JWTs.
+     *
+     * @param jwts valid, logged-in JWTs.
+     * @return the users, keyed by their JWT.
+     */
+    public Flow.Publisher<FlowResult<String, User>> getUsers(Flow.Publisher<String> jwts) {
+        return map(jwts, api::getUser);
+    }
+
+    /**
+     * Resolves user ids to their details.
+     *
+     * @param jwt     A valid JWT. Must be a full-access API Key (e.g. service_role key)
+     * @param userIds the user ids to get details for.
+     * @return the users, keyed by their id.
+     */
+    public Flow.Publisher<FlowResult<String, User>> getUsersById(String jwt, Flow.Publisher<String> userIds) {
+        return map(userIds, userId -> api.getUserById(jwt, userId));
+    }
+
+    /**
+     * Runs any asynchronous operation for each request with the bounds of this api, e.g. to combine calls.
+     *
+     * @param requests  the publisher of the requests.
+     * @param operation the operation started for each request.
+     * @param <I>       the type of the requests.
+     * @param <R>       the type of the results.
+     * @return the results, keyed by their request.
+     */
+    public <I, R> Flow.Publisher<FlowResult<I, R>> map(Flow.Publisher<? extends I> requests, Function<? super I, ? extends CompletableFuture<? extends R>> operation) {
+        return new BoundedMapPublisher<>(requests, operation, maxInFlight);
+    }
+}
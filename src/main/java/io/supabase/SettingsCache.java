@@ -0,0 +1,204 @@
+package io.supabase;
+
+import io.supabase.data.dto.Settings;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.Deadline;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caches the settings of the GoTrue server, which change rarely, so reading them does not need a request.
+ * <p>
+ * Settings younger than the time to live are returned as they are. Once older, they are still returned during the
+ * stale-while-revalidate period while one request in the background refreshes them, so readers never wait for the
+ * refresh. Beyond that period, or before the first read, the reader loads them. When the server sent an
+ * {@code ETag}, the refresh asks with {@code If-None-Match} and a {@code 304 Not Modified} renews the cached settings
+ * without transferring them again.
+ * <p>
+ * A cache belongs to one api, see {@link GoTrueApi#setSettingsCache}. The cached {@link Settings} instance is shared
+ * between callers and must not be modified.
+ */
+public final class SettingsCache {
+    private final long ttlNanos;
+    private final long staleNanos;
+    private volatile Entry entry;
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder revalidationFailures = new LongAdder();
+
+    /**
+     * @param ttl                  the time the settings are returned without asking the server.
+     * @param staleWhileRevalidate the time after the time to live the settings are still returned while being
+     *                             refreshed in the background, zero to refresh them before returning.
+     * @throws IllegalArgumentException if the time to live is not positive or the stale period is negative.
+     */
+    public SettingsCache(Duration ttl, Duration staleWhileRevalidate) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("The ttl must be positive!");
+        }
+        if (staleWhileRevalidate == null || staleWhileRevalidate.isNegative()) {
+            throw new IllegalArgumentException("The stale while revalidate period must not be negative!");
+        }
+        this.ttlNanos = Deadline.saturatedNanos(ttl);
+        this.staleNanos = Deadline.saturatedNanos(staleWhileRevalidate);
+    }
+
+    public Duration getTtl() {
+        return Duration.ofNanos(ttlNanos);
+    }
+
+    public Duration getStaleWhileRevalidate() {
+        return Duration.ofNanos(staleNanos);
+    }
+
+    /**
+     * Drops the cached settings, the next read loads them.
+     */
+    public void invalidate() {
+        entry = null;
+    }
+
+    /**
+     * @return the number of reads answered with fresh settings.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of reads answered with stale settings while they were refreshed.
+     */
+    public long getStaleHitCount() {
+        return staleHits.sum();
+    }
+
+    /**
+     * @return the number of reads that waited for the settings to be loaded.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of requests answered with {@code 304 Not Modified}.
+     */
+    public long getNotModifiedCount() {
+        return notModified.sum();
+    }
+
+    /**
+     * @return the number of background refreshes that failed, the stale settings were kept.
+     */
+    public long getRevalidationFailureCount() {
+        return revalidationFailures.sum();
+    }
+
+    Settings get(GoTrueApi api) throws GotrueException {
+        Entry cached = entry;
+        if (cached != null && isUsable(cached, api)) {
+            return cached.settings();
+        }
+        misses.increment();
+        return store(api.loadSettings(cached)).settings();
+    }
+
+    CompletableFuture<Settings> getAsync(GoTrueApi api) {
+        Entry cached = entry;
+        if (cached != null && isUsable(cached, api)) {
+            return CompletableFuture.completedFuture(cached.settings());
+        }
+        misses.increment();
+        CompletableFuture<Entry> load = api.loadSettingsAsync(cached);
+        CompletableFuture<Settings> result = load.thenApply(loaded -> store(loaded).settings());
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                load.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return whether the entry is fresh, or stale within the period and being refreshed.
+     */
+    private boolean isUsable(Entry cached, GoTrueApi api) {
+        long age = System.nanoTime() - cached.loadedAt();
+        if (age < ttlNanos) {
+            hits.increment();
+            return true;
+        }
+        if (age - ttlNanos < staleNanos) {
+            staleHits.increment();
+            revalidate(api, cached);
+            return true;
+        }
+        return false;
+    }
+
+    private void revalidate(GoTrueApi api, Entry cached) {
+        if (!revalidating.compareAndSet(false, true)) {
+            return;
+        }
+        // sent from another thread, so the refresh is not bound to the deadline of the reader triggering it
+        CompletableFuture.supplyAsync(() -> api.loadSettingsAsync(cached)).thenCompose(Function.identity()).whenComplete((loaded, error) -> {
+            if (error == null) {
+                store(loaded);
+            } else {
+                revalidationFailures.increment();
+            }
+            revalidating.set(false);
+        });
+    }
+
+    private Entry store(Entry loaded) {
+        // a load shared by several readers is stored by each of them
+        if (loaded.notModified() && loaded != entry) {
+            notModified.increment();
+        }
+        entry = loaded;
+        return loaded;
+    }
+
+    /**
+     * Reads the {@code ETag} header.
+     *
+     * @param headers the response headers.
+     * @return the entity tag of the response, or null if there is none.
+     */
+    static String etag(Map<String, List<String>> headers) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("ETag".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Settings as loaded from the server.
+     *
+     * @param settings    the settings.
+     * @param etag        the entity tag to revalidate them with, or null if the server sent none.
+     * @param loadedAt    the {@link System#nanoTime()} the server last confirmed them.
+     * @param notModified whether the server confirmed previously loaded settings.
+     */
+    record Entry(Settings settings, String etag, long loadedAt, boolean notModified) {
+
+        /**
+         * @param etag the entity tag of the confirmation, or null to keep the current one.
+         * @return these settings, confirmed now.
+         */
+        Entry confirmed(String etag) {
+            return new Entry(settings, etag != null ? etag : this.etag, System.nanoTime(), true);
+        }
+    }
+}
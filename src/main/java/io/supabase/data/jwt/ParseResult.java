@@ -0,0 +1,16 @@
+package io.supabase.data.jwt;
+
+/**
+ * The outcome of parsing one token of a batch.
+ *
+ * @param jwt   the raw token.
+ * @param token the parsed token, or null if parsing failed.
+ * @param error the reason parsing failed, a {@link io.jsonwebtoken.JwtException} or an {@link IllegalArgumentException}
+ *              if the token was not specified, or null on success.
+ */
+public record ParseResult(String jwt, ParsedToken token, RuntimeException error) {
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
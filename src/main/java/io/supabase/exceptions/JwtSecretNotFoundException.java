@@ -4,4 +4,8 @@ public class JwtSecretNotFoundException extends Exception {
     public JwtSecretNotFoundException() {
         super("JWT Secret is not defined.");
     }
+
+    public JwtSecretNotFoundException(String message) {
+        super(message);
+    }
 }
@@ -0,0 +1,12 @@
+package io.supabase.exceptions;
+
+import io.jsonwebtoken.JwtException;
+
+/**
+ * Thrown when a token is valid but its session was signed out.
+ */
+public class RevokedJwtException extends JwtException {
+    public RevokedJwtException() {
+        super("JWT was revoked.");
+    }
+}
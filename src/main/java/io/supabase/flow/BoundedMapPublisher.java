@@ -0,0 +1,221 @@
+package io.supabase.flow;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Maps each request of a publisher through an asynchronous operation, with a bounded number of operations in flight.
+ * <p>
+ * Requests are only pulled from the source when the subscriber has demand for their results and fewer than
+ * {@code maxInFlight} requests are running or waiting to be delivered, so a slow operation or a slow subscriber
+ * throttles the source instead of buffering its requests. Results are emitted in completion order, a failed operation
+ * emits a {@link FlowResult} carrying the error and does not terminate the stream.
+ * <p>
+ * Cancelling the subscription cancels the source and the futures of the operations in flight.
+ *
+ * @param <I> the type of the requests.
+ * @param <R> the type of the results.
+ */
+public final class BoundedMapPublisher<I, R> implements Flow.Publisher<FlowResult<I, R>> {
+    private final Flow.Publisher<? extends I> source;
+    private final Function<? super I, ? extends CompletableFuture<? extends R>> operation;
+    private final int maxInFlight;
+
+    /**
+     * @param source      the publisher of the requests.
+     * @param operation   the operation started for each request.
+     * @param maxInFlight the maximum number of requests pulled from the source and not yet delivered to the subscriber.
+     * @throws IllegalArgumentException if the source or the operation is not specified, or the max in flight is not
+     *                                  positive.
+     */
+    public BoundedMapPublisher(Flow.Publisher<? extends I> source, Function<? super I, ? extends CompletableFuture<? extends R>> operation, int maxInFlight) {
+        if (source == null) {
+            throw new IllegalArgumentException("The source is required!");
+        }
+        if (operation == null) {
+            throw new IllegalArgumentException("The operation is required!");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException(String.format("The max in flight >%s< must be positive!", maxInFlight));
+        }
+        this.source = source;
+        this.operation = operation;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super FlowResult<I, R>> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("The subscriber is required!");
+        }
+        MapSubscription subscription = new MapSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        source.subscribe(subscription);
+    }
+
+    private final class MapSubscription implements Flow.Subscriber<I>, Flow.Subscription {
+        private final Flow.Subscriber<? super FlowResult<I, R>> downstream;
+        private final Queue<FlowResult<I, R>> completed = new ConcurrentLinkedQueue<>();
+        private final Set<CompletableFuture<? extends R>> inFlight = ConcurrentHashMap.newKeySet();
+        // serializes drain, signals arriving while it runs make the running drain loop again
+        private final AtomicInteger wip = new AtomicInteger();
+        // results requested by the subscriber and not yet delivered
+        private final AtomicLong demand = new AtomicLong();
+        // requests received from the source and not yet delivered as results
+        private final AtomicInteger active = new AtomicInteger();
+        // requests asked from the source and not yet received
+        private final AtomicLong pending = new AtomicLong();
+        private volatile Flow.Subscription upstream;
+        private volatile boolean upstreamDone;
+        private volatile Throwable upstreamError;
+        private volatile Throwable fatal;
+        private volatile boolean cancelled;
+        // only accessed by the drain loop
+        private boolean terminated;
+
+        MapSubscription(Flow.Subscriber<? super FlowResult<I, R>> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fatal = new IllegalArgumentException(String.format("The requested amount >%s< must be positive!", n));
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (upstream != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            drain();
+        }
+
+        @Override
+        public void onNext(I request) {
+            // counted as active before it stops being pending, so the sum never under-counts the requests out
+            active.incrementAndGet();
+            pending.decrementAndGet();
+            CompletableFuture<? extends R> future;
+            try {
+                future = operation.apply(request);
+                if (future == null) {
+                    throw new NullPointerException("The operation returned no future!");
+                }
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<? extends R> started = future;
+            inFlight.add(started);
+            started.whenComplete((result, error) -> {
+                inFlight.remove(started);
+                completed.add(new FlowResult<>(request, error == null ? result : null, unwrap(error)));
+                drain();
+            });
+            if (cancelled) {
+                started.cancel(true);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            upstreamError = throwable;
+            upstreamDone = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            upstreamDone = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (terminated) {
+                    completed.clear();
+                } else if (cancelled || fatal != null) {
+                    terminated = true;
+                    Flow.Subscription subscription = upstream;
+                    if (subscription != null) {
+                        subscription.cancel();
+                    }
+                    inFlight.forEach(future -> future.cancel(true));
+                    completed.clear();
+                    if (!cancelled) {
+                        downstream.onError(fatal);
+                    }
+                } else {
+                    emit();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            long requested = demand.get();
+            long emitted = 0;
+            FlowResult<I, R> result;
+            while (emitted < requested && !cancelled && (result = completed.poll()) != null) {
+                active.decrementAndGet();
+                emitted++;
+                downstream.onNext(result);
+            }
+            if (emitted > 0 && requested != Long.MAX_VALUE) {
+                demand.addAndGet(-emitted);
+            }
+            if (cancelled) {
+                return; // cleaned up on the next loop of drain
+            }
+
+            Flow.Subscription subscription = upstream;
+            if (upstreamDone && active.get() == 0) {
+                terminated = true;
+                Throwable error = upstreamError;
+                if (error != null) {
+                    downstream.onError(error);
+                } else {
+                    downstream.onComplete();
+                }
+            } else if (!upstreamDone && subscription != null) {
+                long wanted = Math.min(maxInFlight, demand.get()) - active.get() - pending.get();
+                if (wanted > 0) {
+                    pending.addAndGet(wanted);
+                    subscription.request(wanted);
+                }
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,18 @@
+package io.supabase.flow;
+
+/**
+ * The outcome of one request of a stream.
+ *
+ * @param request the request, e.g. a refresh token or a user id.
+ * @param result  the result, or null if the request failed or the response had no body.
+ * @param error   the reason the request failed, usually a {@link io.supabase.exceptions.GotrueException}, or null on
+ *                success.
+ * @param <I>     the type of the requests.
+ * @param <R>     the type of the results.
+ */
+public record FlowResult<I, R>(I request, R result, Throwable error) {
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
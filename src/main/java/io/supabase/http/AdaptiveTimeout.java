@@ -0,0 +1,138 @@
+package io.supabase.http;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Derives the read timeout of each endpoint from its observed latency, so requests fail fast once GoTrue degrades
+ * instead of waiting for a fixed timeout sized for the worst case.
+ * <p>
+ * The latencies of the last {@value #WINDOW} responses of an endpoint are kept, and the timeout becomes a percentile
+ * of them times a multiplier, clamped to a minimum and maximum. Until an endpoint has {@value #MIN_SAMPLES} responses
+ * the fixed read timeout applies. Recording is lock-free, the percentile is recomputed every
+ * {@value #RECOMPUTE_EVERY} responses.
+ * <p>
+ * Attempts that timed out are recorded too, see {@link #recordTimeout}, otherwise a latency shifting above the current
+ * timeout would never be observed and the endpoint would keep failing.
+ */
+public final class AdaptiveTimeout {
+    /**
+     * The number of latencies kept per endpoint.
+     */
+    public static final int WINDOW = 256;
+    /**
+     * The number of latencies needed before the timeout adapts.
+     */
+    public static final int MIN_SAMPLES = 32;
+    /**
+     * The number of latencies after which the timeout is recomputed.
+     */
+    public static final int RECOMPUTE_EVERY = 32;
+    // endpoints beyond it are not tracked, so unexpected paths cannot grow the map unbounded
+    private static final int MAX_ENDPOINTS = 64;
+
+    private final double percentile;
+    private final double multiplier;
+    private final long minNanos;
+    private final long maxNanos;
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * @param percentile the percentile of the latencies the timeout is based on, e.g. 0.99.
+     * @param multiplier the factor applied to the percentile, at least 1.
+     * @param min        the shortest timeout.
+     * @param max        the longest timeout.
+     * @throws IllegalArgumentException if the percentile is not within (0, 1], the multiplier is less than 1 or the
+     *                                  bounds are not positive and ordered.
+     */
+    public AdaptiveTimeout(double percentile, double multiplier, Duration min, Duration max) {
+        if (!(percentile > 0 && percentile <= 1)) {
+            throw new IllegalArgumentException(String.format("The percentile >%s< must be within (0, 1]!", percentile));
+        }
+        if (!(multiplier >= 1)) {
+            throw new IllegalArgumentException(String.format("The multiplier >%s< must be at least 1!", multiplier));
+        }
+        if (min == null || max == null || min.isNegative() || min.isZero() || max.compareTo(min) < 0) {
+            throw new IllegalArgumentException("The timeout bounds must be positive and ordered!");
+        }
+        this.percentile = percentile;
+        this.multiplier = multiplier;
+        this.minNanos = Deadline.saturatedNanos(min);
+        this.maxNanos = Deadline.saturatedNanos(max);
+    }
+
+    /**
+     * @param endpoint the endpoint, see {@link TransportRequest#endpoint()}.
+     * @param fallback the timeout while the endpoint has too few responses.
+     * @return the timeout of the endpoint.
+     */
+    public Duration timeoutFor(String endpoint, Duration fallback) {
+        Window window = windows.get(endpoint);
+        long nanos = window != null ? window.timeoutNanos : -1;
+        return nanos > 0 ? Duration.ofNanos(nanos) : fallback;
+    }
+
+    /**
+     * Records the latency of a response.
+     *
+     * @param endpoint the endpoint, see {@link TransportRequest#endpoint()}.
+     * @param nanos    the time from sending the request to receiving the response.
+     */
+    public void record(String endpoint, long nanos) {
+        Window window = windows.get(endpoint);
+        if (window == null) {
+            if (windows.size() >= MAX_ENDPOINTS) {
+                return;
+            }
+            window = windows.computeIfAbsent(endpoint, e -> new Window());
+        }
+        long count = window.count.incrementAndGet();
+        window.samples.set((int) ((count - 1) % WINDOW), nanos);
+        if (count >= MIN_SAMPLES && count % RECOMPUTE_EVERY == 0) {
+            window.timeoutNanos = Math.min(maxNanos, Math.max(minNanos, (long) (percentileOf(window, count) * multiplier)));
+        }
+    }
+
+    /**
+     * Records an attempt that timed out. Its latency is unknown but longer than the time waited, so it is recorded as
+     * twice that time, and repeated expirations grow the timeout until the responses arrive in time again.
+     *
+     * @param endpoint the endpoint, see {@link TransportRequest#endpoint()}.
+     * @param nanos    the time from sending the request to the expiration of its timeout.
+     */
+    public void recordTimeout(String endpoint, long nanos) {
+        record(endpoint, nanos > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : nanos * 2);
+    }
+
+    /**
+     * @param endpoint the endpoint, see {@link TransportRequest#endpoint()}.
+     * @return the latency percentile of the endpoint as of the last recomputation, or null if it did not adapt yet.
+     */
+    public Duration getLatency(String endpoint) {
+        Window window = windows.get(endpoint);
+        return window != null && window.timeoutNanos > 0 ? Duration.ofNanos(window.latencyNanos) : null;
+    }
+
+    private long percentileOf(Window window, long count) {
+        int size = (int) Math.min(count, WINDOW);
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = window.samples.get(i);
+        }
+        Arrays.sort(sorted);
+        long latency = sorted[Math.max(0, (int) Math.ceil(percentile * size) - 1)];
+        window.latencyNanos = latency;
+        return latency;
+    }
+
+    private static final class Window {
+        final AtomicLongArray samples = new AtomicLongArray(WINDOW);
+        final AtomicLong count = new AtomicLong();
+        volatile long latencyNanos;
+        volatile long timeoutNanos = -1;
+    }
+}
@@ -0,0 +1,325 @@
+package io.supabase.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stops sending requests to an endpoint of the GoTrue server that keeps failing, applied by a
+ * {@link CircuitBreakerTransport}.
+ * <p>
+ * Every endpoint has its own circuit. While it is {@link State#CLOSED closed}, the outcomes of the last requests are
+ * kept in a sliding window, and once the share of failures in it reaches the threshold the circuit opens. While
+ * {@link State#OPEN open}, requests fail at once with a {@link CircuitOpenException} instead of waiting for the server.
+ * After the open duration the circuit is {@link State#HALF_OPEN half-open} and lets a few probe requests through: if
+ * they all succeed it closes again, if one fails it opens again.
+ * <p>
+ * Failures are I/O errors, timeouts included, and 5xx responses. Other responses, 429 included, show that the server
+ * is up and count as successes.
+ */
+public final class CircuitBreaker {
+    // endpoints beyond it share one circuit, so unexpected paths cannot grow the map unbounded
+    private static final int MAX_ENDPOINTS = 64;
+    private static final String OTHER_ENDPOINTS = "*";
+
+    /**
+     * The state of the circuit of an endpoint.
+     */
+    public enum State {
+        /**
+         * Requests are sent and their outcomes recorded.
+         */
+        CLOSED,
+        /**
+         * Requests are rejected without being sent.
+         */
+        OPEN,
+        /**
+         * A limited number of probe requests is sent to find out whether the endpoint recovered.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Notified when the circuit of an endpoint changes its state, on the thread of the request causing the change.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param endpoint the endpoint, see {@link TransportRequest#endpoint()}.
+         * @param from     the previous state.
+         * @param to       the new state.
+         */
+        void onStateChange(String endpoint, State from, State to);
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int probes;
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param windowSize           the number of outcomes kept per endpoint.
+     * @param minimumCalls         the number of outcomes needed before the circuit may open.
+     * @param failureRateThreshold the share of failures opening the circuit, e.g. 0.5.
+     * @param openDuration         the time the circuit stays open before probing.
+     * @param probes               the number of probe requests while half-open.
+     * @throws IllegalArgumentException if a size is not positive, the minimum calls exceed the window, the threshold is
+     *                                  not within (0, 1] or the open duration is not positive.
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration, int probes) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException(String.format("The minimum calls >%s< must be within [1, %s]!", minimumCalls, windowSize));
+        }
+        if (!(failureRateThreshold > 0 && failureRateThreshold <= 1)) {
+            throw new IllegalArgumentException(String.format("The failure rate threshold >%s< must be within (0, 1]!", failureRateThreshold));
+        }
+        if (openDuration == null || openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("The open duration must be positive!");
+        }
+        if (probes < 1) {
+            throw new IllegalArgumentException(String.format("The probes >%s< must be positive!", probes));
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = Deadline.saturatedNanos(openDuration);
+        this.probes = probes;
+    }
+
+    /**
+     * @param endpoint the endpoint, see {@link TransportRequest#endpoint()}.
+     * @return the state of the circuit of the endpoint.
+     */
+    public State getState(String endpoint) {
+        Circuit circuit = circuits.get(endpoint);
+        if (circuit == null) {
+            return State.CLOSED;
+        }
+        circuit.lock.lock();
+        try {
+            return circuit.state;
+        } finally {
+            circuit.lock.unlock();
+        }
+    }
+
+    /**
+     * @param listener notified of every state change from now on.
+     */
+    public void addListener(Listener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("The listener is required!");
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the number of requests rejected while a circuit was open.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Asks to send a request.
+     *
+     * @param endpoint the endpoint of the request.
+     * @return the permit to report the outcome with.
+     * @throws CircuitOpenException if the circuit is open, or half-open with all probes in flight.
+     */
+    Permit acquire(String endpoint) throws CircuitOpenException {
+        Circuit circuit = circuit(endpoint);
+        boolean probing = false;
+        Permit permit;
+        circuit.lock.lock();
+        try {
+            if (circuit.state == State.OPEN && System.nanoTime() - circuit.openedAt >= openNanos) {
+                circuit.halfOpen();
+                probing = true;
+            }
+            if (circuit.state == State.CLOSED) {
+                permit = circuit.closedPermit;
+            } else if (circuit.state == State.HALF_OPEN && circuit.probesInFlight < probes) {
+                circuit.probesInFlight++;
+                permit = new Permit(circuit, true);
+            } else {
+                permit = null;
+            }
+        } finally {
+            circuit.lock.unlock();
+        }
+        if (probing) {
+            fireStateChange(circuit, State.OPEN, State.HALF_OPEN);
+        }
+        if (permit == null) {
+            rejected.increment();
+            throw new CircuitOpenException(circuit.endpoint);
+        }
+        return permit;
+    }
+
+    static boolean isFailure(int statusCode) {
+        return statusCode >= 500;
+    }
+
+    static boolean isFailure(IOException error) {
+        // a request held back by the local rate limiter never reached the server
+        if (error instanceof RateLimitedException) {
+            return false;
+        }
+        // an interrupted caller says nothing about the server, a timed out socket does
+        return !(error instanceof InterruptedIOException) || error instanceof SocketTimeoutException;
+    }
+
+    private Circuit circuit(String endpoint) {
+        Circuit circuit = circuits.get(endpoint);
+        if (circuit == null) {
+            String key = circuits.size() < MAX_ENDPOINTS ? endpoint : OTHER_ENDPOINTS;
+            circuit = circuits.computeIfAbsent(key, Circuit::new);
+        }
+        return circuit;
+    }
+
+    // called without holding the lock of the circuit, so listeners may query the breaker
+    private void fireStateChange(Circuit circuit, State from, State to) {
+        for (Listener listener : listeners) {
+            listener.onStateChange(circuit.endpoint, from, to);
+        }
+    }
+
+    /**
+     * The right to send one request, reporting its outcome exactly once.
+     */
+    final class Permit {
+        private final Circuit circuit;
+        private final boolean probe;
+
+        Permit(Circuit circuit, boolean probe) {
+            this.circuit = circuit;
+            this.probe = probe;
+        }
+
+        void onSuccess() {
+            record(false);
+        }
+
+        void onFailure() {
+            record(true);
+        }
+
+        /**
+         * Reports a request that ended without telling anything about the server, e.g. it was cancelled.
+         */
+        void onIgnored() {
+            if (probe) {
+                circuit.lock.lock();
+                try {
+                    if (circuit.state == State.HALF_OPEN) {
+                        circuit.probesInFlight--;
+                    }
+                } finally {
+                    circuit.lock.unlock();
+                }
+            }
+        }
+
+        private void record(boolean failure) {
+            State from;
+            State to;
+            circuit.lock.lock();
+            try {
+                from = circuit.state;
+                if (probe) {
+                    if (circuit.state == State.HALF_OPEN) {
+                        circuit.probesInFlight--;
+                        if (failure) {
+                            circuit.open();
+                        } else if (++circuit.probeSuccesses >= probes) {
+                            circuit.close();
+                        }
+                    }
+                } else if (circuit.state == State.CLOSED) {
+                    // outcomes of requests sent before the circuit opened are not recorded
+                    circuit.add(failure);
+                    if (circuit.count >= minimumCalls && circuit.failures >= failureRateThreshold * circuit.count) {
+                        circuit.open();
+                    }
+                }
+                to = circuit.state;
+            } finally {
+                circuit.lock.unlock();
+            }
+            if (from != to) {
+                fireStateChange(circuit, from, to);
+            }
+        }
+    }
+
+    private final class Circuit {
+        final String endpoint;
+        final ReentrantLock lock = new ReentrantLock();
+        final Permit closedPermit = new Permit(this, false);
+        // the outcomes of the window, true for a failure
+        final boolean[] outcomes = new boolean[windowSize];
+        int next;
+        int count;
+        int failures;
+        State state = State.CLOSED;
+        long openedAt;
+        int probesInFlight;
+        int probeSuccesses;
+
+        Circuit(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void add(boolean failure) {
+            if (count == outcomes.length) {
+                if (outcomes[next]) {
+                    failures--;
+                }
+            } else {
+                count++;
+            }
+            outcomes[next] = failure;
+            if (failure) {
+                failures++;
+            }
+            next = (next + 1) % outcomes.length;
+        }
+
+        void open() {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+
+        void halfOpen() {
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+        }
+
+        void close() {
+            state = State.CLOSED;
+            next = 0;
+            count = 0;
+            failures = 0;
+        }
+    }
+}
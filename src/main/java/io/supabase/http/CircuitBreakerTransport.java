@@ -0,0 +1,140 @@
+package io.supabase.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Sends the requests of a transport through a {@link CircuitBreaker}, requests to an endpoint whose circuit is open
+ * fail at once with a {@link CircuitOpenException}.
+ * <p>
+ * The outcome of a request is its status code as soon as the response arrives, so a streamed response counts as soon
+ * as its handler is called, whatever the handler does with it.
+ */
+public final class CircuitBreakerTransport implements GoTrueTransport {
+    private final GoTrueTransport delegate;
+    private final CircuitBreaker breaker;
+
+    /**
+     * @param delegate the transport sending the requests.
+     * @param breaker  the circuit breaker to ask before sending.
+     * @throws IllegalArgumentException if the transport or the circuit breaker is not specified.
+     */
+    public CircuitBreakerTransport(GoTrueTransport delegate, CircuitBreaker breaker) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("The transport is required!");
+        }
+        if (breaker == null) {
+            throw new IllegalArgumentException("The circuit breaker is required!");
+        }
+        this.delegate = delegate;
+        this.breaker = breaker;
+    }
+
+    public GoTrueTransport getDelegate() {
+        return delegate;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        CircuitBreaker.Permit permit = breaker.acquire(request.endpoint());
+        TransportResponse response;
+        try {
+            response = delegate.send(request);
+        } catch (IOException e) {
+            onError(permit, e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            permit.onIgnored();
+            throw e;
+        }
+        onStatus(permit, response.statusCode());
+        return response;
+    }
+
+    @Override
+    public <T> T exchange(TransportRequest request, ResponseHandler<T> handler) throws IOException {
+        CircuitBreaker.Permit permit = breaker.acquire(request.endpoint());
+        Outcome<T> outcome = new Outcome<>(permit, handler);
+        try {
+            return delegate.exchange(request, outcome);
+        } catch (IOException e) {
+            outcome.onError(e);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            outcome.onError(null);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> exchangeAsync(TransportRequest request, ResponseHandler<T> handler) {
+        CircuitBreaker.Permit permit;
+        try {
+            permit = breaker.acquire(request.endpoint());
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        Outcome<T> outcome = new Outcome<>(permit, handler);
+        CompletableFuture<T> result = delegate.exchangeAsync(request, outcome);
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                outcome.onError(cause instanceof IOException ? (IOException) cause : null);
+            }
+        });
+        return result;
+    }
+
+    private static void onStatus(CircuitBreaker.Permit permit, int statusCode) {
+        if (CircuitBreaker.isFailure(statusCode)) {
+            permit.onFailure();
+        } else {
+            permit.onSuccess();
+        }
+    }
+
+    private static void onError(CircuitBreaker.Permit permit, IOException error) {
+        if (error != null && CircuitBreaker.isFailure(error)) {
+            permit.onFailure();
+        } else {
+            permit.onIgnored();
+        }
+    }
+
+    /**
+     * Reports the status of the response to the circuit breaker before handing it to the handler, or the error if no
+     * response arrived.
+     */
+    private static final class Outcome<T> implements ResponseHandler<T> {
+        private final CircuitBreaker.Permit permit;
+        private final ResponseHandler<T> handler;
+        private volatile boolean reported;
+
+        Outcome(CircuitBreaker.Permit permit, ResponseHandler<T> handler) {
+            this.permit = permit;
+            this.handler = handler;
+        }
+
+        @Override
+        public T handle(int statusCode, Map<String, List<String>> headers, InputStream body) throws IOException {
+            reported = true;
+            onStatus(permit, statusCode);
+            return handler.handle(statusCode, headers, body);
+        }
+
+        void onError(IOException error) {
+            if (!reported) {
+                reported = true;
+                CircuitBreakerTransport.onError(permit, error);
+            }
+        }
+    }
+}
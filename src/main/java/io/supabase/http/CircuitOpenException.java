@@ -0,0 +1,22 @@
+package io.supabase.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request while the circuit of its endpoint is open, see {@link CircuitBreaker}.
+ */
+public class CircuitOpenException extends IOException {
+    private final String endpoint;
+
+    /**
+     * @param endpoint the endpoint of the rejected request, see {@link TransportRequest#endpoint()}.
+     */
+    public CircuitOpenException(String endpoint) {
+        super(String.format("The circuit of >%s< is open", endpoint));
+        this.endpoint = endpoint;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+}
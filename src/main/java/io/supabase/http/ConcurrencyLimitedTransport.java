@@ -0,0 +1,200 @@
+package io.supabase.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpTimeoutException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of requests a transport sends at once.
+ * <p>
+ * With virtual threads there is no pool size capping the concurrency anymore, so thousands of callers would open as
+ * many connections to the GoTrue server. This transport makes the callers beyond the limit wait for a permit instead,
+ * which only parks a virtual thread and does not pin its carrier. A request with a deadline waits until its deadline
+ * at most.
+ * <p>
+ * Streamed exchanges hold their permit until the handler returned. Requests sent without blocking do not wait on the
+ * calling thread, they are queued and started once a permit is released, and hold it until their future completes.
+ * Queued requests are served before blocking callers waiting for a permit.
+ */
+public final class ConcurrencyLimitedTransport implements GoTrueTransport {
+    private final GoTrueTransport delegate;
+    private final Semaphore permits;
+    private final int maxConcurrentRequests;
+    // the requests sent without blocking that wait for a permit
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param delegate              the transport sending the requests.
+     * @param maxConcurrentRequests the maximum number of requests in flight.
+     * @throws IllegalArgumentException if the transport is not specified or the maximum is not positive.
+     */
+    public ConcurrencyLimitedTransport(GoTrueTransport delegate, int maxConcurrentRequests) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("The transport is required!");
+        }
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException(String.format("The max concurrent requests >%s< must be positive!", maxConcurrentRequests));
+        }
+        this.delegate = delegate;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+    }
+
+    public GoTrueTransport getDelegate() {
+        return delegate;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * @return the number of requests currently in flight.
+     */
+    public int getInFlight() {
+        return maxConcurrentRequests - permits.availablePermits();
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        acquire(request);
+        try {
+            return delegate.send(request);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public <T> T exchange(TransportRequest request, ResponseHandler<T> handler) throws IOException {
+        acquire(request);
+        try {
+            return delegate.exchange(request, handler);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        return startAsync(request, () -> delegate.sendAsync(request));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> exchangeAsync(TransportRequest request, ResponseHandler<T> handler) {
+        return startAsync(request, () -> delegate.exchangeAsync(request, handler));
+    }
+
+    private void acquire(TransportRequest request) throws IOException {
+        try {
+            if (request.deadline() == null) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(request.deadline().remaining().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new HttpTimeoutException("Deadline exceeded while waiting for a request slot");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a request slot");
+        }
+    }
+
+    /**
+     * Hands the permit over to the next queued request, or returns it.
+     */
+    private void release() {
+        while (true) {
+            Waiter waiter;
+            while ((waiter = waiters.poll()) != null) {
+                if (waiter.claim()) {
+                    waiter.start.run();
+                    return;
+                }
+            }
+            permits.release();
+            // a request queued meanwhile may have missed the permit
+            if (waiters.isEmpty() || !permits.tryAcquire()) {
+                return;
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> startAsync(TransportRequest request, Supplier<CompletableFuture<T>> send) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (permits.tryAcquire()) {
+            start(send, result);
+            return result;
+        }
+        Waiter waiter = new Waiter(() -> start(send, result));
+        waiters.add(waiter);
+        // the permits may have been released before the request was queued
+        if (permits.tryAcquire()) {
+            if (waiter.claim()) {
+                waiters.remove(waiter);
+                waiter.start.run();
+            } else {
+                release();
+            }
+        }
+        if (request.deadline() != null) {
+            CompletableFuture.delayedExecutor(request.deadline().remaining().toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (waiter.claim()) {
+                    waiters.remove(waiter);
+                    result.completeExceptionally(new HttpTimeoutException("Deadline exceeded while waiting for a request slot"));
+                }
+            });
+        }
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled() && waiter.claim()) {
+                waiters.remove(waiter);
+            }
+        });
+        return result;
+    }
+
+    // called holding a permit, which is released once the request completed
+    private <T> void start(Supplier<CompletableFuture<T>> send, CompletableFuture<T> result) {
+        CompletableFuture<T> sent;
+        try {
+            sent = send.get();
+        } catch (RuntimeException | Error e) {
+            release();
+            result.completeExceptionally(e);
+            return;
+        }
+        sent.whenComplete((value, error) -> {
+            release();
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                sent.cancel(true);
+            }
+        });
+    }
+
+    private static final class Waiter {
+        final Runnable start;
+        // set by whoever takes the request out of the queue: a released permit, its deadline or its cancellation
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Waiter(Runnable start) {
+            this.start = start;
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
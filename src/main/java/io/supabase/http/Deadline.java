@@ -0,0 +1,148 @@
+package io.supabase.http;
+
+import java.time.Duration;
+
+/**
+ * The point in time a call to the GoTrue server has to be completed by, retries and waits included.
+ * <p>
+ * A deadline is scoped to the calling thread with {@link #call(Duration, Call)}, every request sent from within the
+ * scope, e.g. a refresh followed by a user lookup, shares it. Requests sent without blocking capture the deadline of
+ * the thread they are sent from.
+ */
+public final class Deadline {
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+
+    // System.nanoTime based, immune to wall clock changes
+    private final long nanos;
+
+    private Deadline(long nanos) {
+        this.nanos = nanos;
+    }
+
+    /**
+     * @param timeout the time left from now.
+     * @return a deadline the given time from now.
+     * @throws IllegalArgumentException if the timeout is not specified or negative.
+     */
+    public static Deadline after(Duration timeout) {
+        if (timeout == null || timeout.isNegative()) {
+            throw new IllegalArgumentException("The timeout must not be negative!");
+        }
+        return new Deadline(System.nanoTime() + saturatedNanos(timeout));
+    }
+
+    /**
+     * @return the deadline of the current scope, or null if the calling thread is not within one.
+     */
+    public static Deadline current() {
+        return current.get();
+    }
+
+    /**
+     * Runs a call with a deadline the given time from now, see {@link #call(Deadline, Call)}.
+     *
+     * @param timeout the time the call may take.
+     * @param call    the call to run.
+     * @param <T>     the result of the call.
+     * @param <E>     the exception thrown by the call.
+     * @return the result of the call.
+     * @throws E if the call failed.
+     */
+    public static <T, E extends Exception> T call(Duration timeout, Call<T, E> call) throws E {
+        return call(after(timeout), call);
+    }
+
+    /**
+     * Runs a call with the given deadline in scope. Within a scope that has an earlier deadline already, the earlier
+     * one remains in effect.
+     *
+     * @param deadline the deadline of the call.
+     * @param call     the call to run.
+     * @param <T>      the result of the call.
+     * @param <E>      the exception thrown by the call.
+     * @return the result of the call.
+     * @throws E if the call failed.
+     * @throws IllegalArgumentException if the deadline or the call is not specified.
+     */
+    public static <T, E extends Exception> T call(Deadline deadline, Call<T, E> call) throws E {
+        if (deadline == null) {
+            throw new IllegalArgumentException("The deadline is required!");
+        }
+        if (call == null) {
+            throw new IllegalArgumentException("The call is required!");
+        }
+        Deadline outer = current.get();
+        current.set(deadline.earliest(outer));
+        try {
+            return call.call();
+        } finally {
+            if (outer != null) {
+                current.set(outer);
+            } else {
+                current.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the time left until the deadline, zero once it passed.
+     */
+    public Duration remaining() {
+        long left = nanos - System.nanoTime();
+        return left > 0 ? Duration.ofNanos(left) : Duration.ZERO;
+    }
+
+    public boolean isExpired() {
+        return nanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @param other another deadline, or null.
+     * @return the earlier of both deadlines.
+     */
+    public Deadline earliest(Deadline other) {
+        return other == null || nanos - other.nanos <= 0 ? this : other;
+    }
+
+    /**
+     * Caps a timeout to the time left until the deadline.
+     *
+     * @param timeout a timeout, or null.
+     * @return the shorter of the timeout and the time left, zero once the deadline passed.
+     */
+    public Duration cap(Duration timeout) {
+        Duration left = remaining();
+        return timeout == null || timeout.compareTo(left) > 0 ? left : timeout;
+    }
+
+    /**
+     * Converts a duration to nanoseconds, saturated so that durations too long for a long, e.g. a ttl of
+     * {@code ChronoUnit.FOREVER}, still compare and add to {@link System#nanoTime()} without overflowing.
+     *
+     * @param duration the duration.
+     * @return the duration in nanoseconds.
+     */
+    public static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE / 2;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[remaining=" + remaining() + "]";
+    }
+
+    /**
+     * A call run within the scope of a deadline.
+     *
+     * @param <T> the result of the call.
+     * @param <E> the exception thrown by the call.
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+}
@@ -0,0 +1,36 @@
+package io.supabase.http;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+final class Futures {
+
+    private Futures() {
+    }
+
+    @FunctionalInterface
+    interface IOFunction<S, T> {
+        T apply(S source) throws IOException;
+    }
+
+    /**
+     * Applies a function to the result of a future, like {@link CompletableFuture#thenApply}, but cancelling the
+     * returned future also cancels the source, and with it the exchange in flight.
+     */
+    static <S, T> CompletableFuture<T> thenApplyCancellable(CompletableFuture<S> source, IOFunction<? super S, ? extends T> fn) {
+        CompletableFuture<T> result = source.thenApply(value -> {
+            try {
+                return fn.apply(value);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+package io.supabase.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends the HTTP requests of the GoTrue client.
+ * <p>
+ * Implementations return every response regardless of its status code, mapping error statuses to exceptions is left to
+ * the caller. They must be thread-safe, a single transport is shared by all requests of a client.
+ *
+ * @see HttpClientTransport
+ * @see RestTemplateTransport
+ */
+public interface GoTrueTransport {
+
+    /**
+     * Sends a request and waits for its response.
+     *
+     * @param request the request to send.
+     * @return the response, whatever its status code.
+     * @throws IOException if the request could not be sent or the response could not be read.
+     */
+    TransportResponse send(TransportRequest request) throws IOException;
+
+    /**
+     * Sends a request without blocking the calling thread.
+     * <p>
+     * Cancelling the returned future aborts the request. The default implementation runs {@link #send} on a virtual
+     * thread and interrupts it on cancellation, transports with a non-blocking client should override it.
+     *
+     * @param request the request to send.
+     * @return a future of the response, whatever its status code. It completes exceptionally with an
+     * {@link IOException} if the request could not be sent or the response could not be read.
+     */
+    default CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        CompletableFuture<TransportResponse> future = new CompletableFuture<>();
+        Thread worker = Thread.ofVirtual().name("gotrue-transport").unstarted(() -> {
+            try {
+                future.complete(send(request));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        future.whenComplete((response, error) -> {
+            if (future.isCancelled()) {
+                worker.interrupt();
+            }
+        });
+        worker.start();
+        return future;
+    }
+
+    /**
+     * Sends a request and hands its response to the handler while it is being received.
+     * <p>
+     * The default implementation buffers the response with {@link #send}, transports able to stream the body should
+     * override it.
+     *
+     * @param request the request to send.
+     * @param handler the handler consuming the response, whatever its status code.
+     * @param <T>     the type the response is turned into.
+     * @return the result of the handler.
+     * @throws IOException if the request could not be sent or the response could not be read.
+     */
+    default <T> T exchange(TransportRequest request, ResponseHandler<T> handler) throws IOException {
+        TransportResponse response = send(request);
+        try (InputStream body = bodyStream(response)) {
+            return handler.handle(response.statusCode(), response.headers(), body);
+        }
+    }
+
+    /**
+     * Sends a request without blocking the calling thread and hands its response to the handler.
+     * Cancelling the returned future aborts the request.
+     * <p>
+     * The default implementation buffers the response with {@link #sendAsync}.
+     *
+     * @param request the request to send.
+     * @param handler the handler consuming the response, whatever its status code.
+     * @param <T>     the type the response is turned into.
+     * @return a future of the result of the handler. It completes exceptionally with an {@link IOException} if the
+     * request could not be sent or the response could not be read.
+     */
+    default <T> CompletableFuture<T> exchangeAsync(TransportRequest request, ResponseHandler<T> handler) {
+        return Futures.thenApplyCancellable(sendAsync(request), response -> {
+            try (InputStream body = bodyStream(response)) {
+                return handler.handle(response.statusCode(), response.headers(), body);
+            }
+        });
+    }
+
+    private static InputStream bodyStream(TransportResponse response) {
+        return new ByteArrayInputStream(response.body() != null ? response.body().getBytes(StandardCharsets.UTF_8) : new byte[0]);
+    }
+}
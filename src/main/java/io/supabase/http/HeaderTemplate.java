@@ -0,0 +1,169 @@
+package io.supabase.http;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable set of request headers, built once per client and extended by a per-request header without copying.
+ * <p>
+ * Header names are matched exactly, like the maps the headers are configured with.
+ */
+public final class HeaderTemplate {
+    private final String[] names;
+    private final String[] values;
+    private final Map<String, String> map;
+
+    /**
+     * @param headers the headers of the template, copied.
+     */
+    public HeaderTemplate(Map<String, String> headers) {
+        this(headers.keySet().toArray(new String[0]), headers.values().toArray(new String[0]));
+    }
+
+    private HeaderTemplate(String[] names, String[] values) {
+        this.names = names;
+        this.values = values;
+        this.map = new Headers(null, null);
+    }
+
+    /**
+     * Builds a new template with a header added or replaced, meant for setting up templates and not per request.
+     *
+     * @param name  the header name.
+     * @param value the header value.
+     * @return the extended template.
+     */
+    public HeaderTemplate with(String name, String value) {
+        int index = indexOf(name);
+        String[] newNames = index < 0 ? Arrays.copyOf(names, names.length + 1) : names.clone();
+        String[] newValues = index < 0 ? Arrays.copyOf(values, values.length + 1) : values.clone();
+        newNames[index < 0 ? names.length : index] = name;
+        newValues[index < 0 ? values.length : index] = value;
+        return new HeaderTemplate(newNames, newValues);
+    }
+
+    /**
+     * Builds a new template with a header added unless the template has it already.
+     *
+     * @param name  the header name.
+     * @param value the header value.
+     * @return the extended template, or this one if it has the header.
+     */
+    public HeaderTemplate withDefault(String name, String value) {
+        return indexOf(name) >= 0 ? this : with(name, value);
+    }
+
+    /**
+     * @return the headers of the template as an immutable map.
+     */
+    public Map<String, String> asMap() {
+        return map;
+    }
+
+    /**
+     * Gets the headers of the template plus one more, e.g. the Authorization of a request, as an immutable view.
+     *
+     * @param name  the header name, replacing a header of the template with the same name.
+     * @param value the header value.
+     * @return the headers as an immutable map.
+     */
+    public Map<String, String> asMapWith(String name, String value) {
+        return new Headers(name, value);
+    }
+
+    private int indexOf(Object name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private final class Headers extends AbstractMap<String, String> {
+        private final String extraName;
+        private final String extraValue;
+        // the template header replaced by the extra one, or -1
+        private final int replaced;
+
+        Headers(String extraName, String extraValue) {
+            this.extraName = extraName;
+            this.extraValue = extraValue;
+            this.replaced = extraName != null ? indexOf(extraName) : -1;
+        }
+
+        @Override
+        public int size() {
+            return names.length + (extraName != null && replaced < 0 ? 1 : 0);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return (extraName != null && extraName.equals(key)) || indexOf(key) >= 0;
+        }
+
+        @Override
+        public String get(Object key) {
+            if (extraName != null && extraName.equals(key)) {
+                return extraValue;
+            }
+            int index = indexOf(key);
+            return index >= 0 ? values[index] : null;
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super String, ? super String> action) {
+            for (int i = 0; i < names.length; i++) {
+                if (i != replaced) {
+                    action.accept(names[i], values[i]);
+                }
+            }
+            if (extraName != null) {
+                action.accept(extraName, extraValue);
+            }
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return Headers.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<>() {
+                        private int next = replaced == 0 ? 1 : 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < names.length || (next == names.length && extraName != null);
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, String> entry = next < names.length
+                                    ? new SimpleImmutableEntry<>(names[next], values[next])
+                                    : new SimpleImmutableEntry<>(extraName, extraValue);
+                            next++;
+                            if (next == replaced) {
+                                next++;
+                            }
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package io.supabase.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * The default transport, based on {@link HttpClient}.
+ * <p>
+ * Connections are pooled and kept alive between requests, and HTTP/2 is used where the server supports it,
+ * so concurrent requests share a single connection instead of opening one each.
+ * The {@link TransportRequest#remainingTimeout() timeout} of a request bounds the wait for its response headers.
+ * <p>
+ * {@link HttpClient} has no per-client limit on its connections. Over HTTP/1.1 it opens one per request in flight,
+ * and only the idle ones are bounded, JVM-wide, by the {@code jdk.httpclient.connectionPoolSize} and
+ * {@code jdk.httpclient.keepalive.timeout} system properties. The open connections are bounded by limiting the
+ * requests in flight with a {@link ConcurrencyLimitedTransport}, as the default transport does with
+ * {@value #DEFAULT_MAX_CONCURRENT_REQUESTS} requests.
+ */
+public final class HttpClientTransport implements GoTrueTransport {
+    /**
+     * The connect timeout of transports created without one.
+     */
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    /**
+     * The requests in flight of the default transport, and so the connections it opens at most.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+    // managed by the http client itself, setting them on a request is rejected
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpClient client;
+
+    /**
+     * Creates a transport with the default connect timeout on the default executor of the http client.
+     */
+    public HttpClientTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT, null);
+    }
+
+    /**
+     * Creates a transport.
+     *
+     * @param connectTimeout the timeout for establishing connections.
+     * @param executor       the executor running the asynchronous tasks of the http client, or null for its default.
+     * @throws IllegalArgumentException if the connect timeout is not positive.
+     */
+    public HttpClientTransport(Duration connectTimeout, Executor executor) {
+        if (connectTimeout == null || connectTimeout.isNegative() || connectTimeout.isZero()) {
+            throw new IllegalArgumentException("The connect timeout must be positive!");
+        }
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(connectTimeout);
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        this.client = builder.build();
+    }
+
+    /**
+     * Creates a transport on a preconfigured http client.
+     *
+     * @param client the http client to send the requests with.
+     * @throws IllegalArgumentException if the client is not specified.
+     */
+    public HttpClientTransport(HttpClient client) {
+        if (client == null) {
+            throw new IllegalArgumentException("The http client is required!");
+        }
+        this.client = client;
+    }
+
+    /**
+     * Gets the transport whose http client runs its asynchronous tasks on virtual threads instead of its default
+     * pool of platform threads, for clients called from virtual threads.
+     * <p>
+     * Blocking {@link #send} only parks the calling virtual thread while waiting for the response, so its carrier is
+     * free to run other virtual threads. The transport is created once and shared by all callers, so they share its
+     * selector thread and connection pool instead of each opening their own.
+     *
+     * @return the shared transport on virtual threads with the default connect timeout.
+     */
+    public static HttpClientTransport ofVirtualThreads() {
+        return VirtualThreads.TRANSPORT;
+    }
+
+    // created on first use, the http client starts its selector thread right away
+    private static final class VirtualThreads {
+        static final HttpClientTransport TRANSPORT = new HttpClientTransport(DEFAULT_CONNECT_TIMEOUT,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gotrue-http-", 0).factory()));
+    }
+
+    public HttpClient getClient() {
+        return client;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        HttpResponse<String> response;
+        try {
+            response = client.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        }
+        return toResponse(response);
+    }
+
+    /**
+     * Sends the request on the non-blocking http client, cancelling the future aborts the exchange.
+     */
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        CompletableFuture<HttpResponse<String>> exchange;
+        try {
+            exchange = client.sendAsync(toHttpRequest(request), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (HttpTimeoutException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return Futures.thenApplyCancellable(exchange, HttpClientTransport::toResponse);
+    }
+
+    /**
+     * Hands the body to the handler as it is received from the connection, without buffering it first.
+     */
+    @Override
+    public <T> T exchange(TransportRequest request, ResponseHandler<T> handler) throws IOException {
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        }
+        try (InputStream body = response.body()) {
+            return handler.handle(response.statusCode(), response.headers().map(), body);
+        }
+    }
+
+    /**
+     * Receives the body as bytes and hands them to the handler once complete, reading a stream in a completion
+     * stage would block a thread of the http client executor until the body arrived.
+     */
+    @Override
+    public <T> CompletableFuture<T> exchangeAsync(TransportRequest request, ResponseHandler<T> handler) {
+        CompletableFuture<HttpResponse<byte[]>> exchange;
+        try {
+            exchange = client.sendAsync(toHttpRequest(request), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (HttpTimeoutException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return Futures.thenApplyCancellable(exchange, response -> {
+            try (InputStream body = new ByteArrayInputStream(response.body())) {
+                return handler.handle(response.statusCode(), response.headers().map(), body);
+            }
+        });
+    }
+
+    private static TransportResponse toResponse(HttpResponse<String> response) {
+        String body = response.body();
+        return new TransportResponse(response.statusCode(), response.headers().map(), body != null && !body.isEmpty() ? body : null);
+    }
+
+    static HttpRequest toHttpRequest(TransportRequest request) throws HttpTimeoutException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.uri())
+                .method(request.method(), request.body() != null
+                        ? HttpRequest.BodyPublishers.ofByteArray(request.body())
+                        : HttpRequest.BodyPublishers.noBody());
+        Duration timeout = request.remainingTimeout();
+        if (timeout != null) {
+            if (timeout.isZero()) {
+                throw new HttpTimeoutException("Deadline exceeded before the request was sent");
+            }
+            builder.timeout(timeout);
+        }
+        request.headers().forEach((name, value) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                builder.header(name, value);
+            }
+        });
+        return builder.build();
+    }
+}
@@ -0,0 +1,30 @@
+package io.supabase.http;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Thrown instead of sending a request that would exceed the rate limit of its endpoint, see {@link RateLimiter}.
+ */
+public class RateLimitedException extends IOException {
+    private final String endpoint;
+    private final Duration retryAfter;
+
+    /**
+     * @param endpoint   the endpoint of the rejected request, see {@link TransportRequest#endpoint()}.
+     * @param retryAfter the time until the request could have been sent.
+     */
+    public RateLimitedException(String endpoint, Duration retryAfter) {
+        super(String.format("The rate limit of >%s< is exceeded, retry after %s ms", endpoint, retryAfter.toMillis()));
+        this.endpoint = endpoint;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
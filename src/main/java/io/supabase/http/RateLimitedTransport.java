@@ -0,0 +1,122 @@
+package io.supabase.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the requests of a transport within the rates of a {@link RateLimiter}, requests exceeding them wait for a
+ * token or fail at once with a {@link RateLimitedException}.
+ * <p>
+ * The status codes of the responses are reported to the limiter, so an adaptive limiter follows the 429 responses of
+ * the server.
+ */
+public final class RateLimitedTransport implements GoTrueTransport {
+    private final GoTrueTransport delegate;
+    private final RateLimiter limiter;
+
+    /**
+     * @param delegate the transport sending the requests.
+     * @param limiter  the rate limiter to take tokens from.
+     * @throws IllegalArgumentException if the transport or the rate limiter is not specified.
+     */
+    public RateLimitedTransport(GoTrueTransport delegate, RateLimiter limiter) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("The transport is required!");
+        }
+        if (limiter == null) {
+            throw new IllegalArgumentException("The rate limiter is required!");
+        }
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    public GoTrueTransport getDelegate() {
+        return delegate;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return limiter;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        sleep(limiter.acquire(request));
+        TransportResponse response = delegate.send(request);
+        int statusCode = response.statusCode();
+        limiter.onResponse(request.endpoint(), statusCode, statusCode == 429 ? RetryPolicy.retryAfterNanos(response.headers()) : 0);
+        return response;
+    }
+
+    @Override
+    public <T> T exchange(TransportRequest request, ResponseHandler<T> handler) throws IOException {
+        sleep(limiter.acquire(request));
+        return delegate.exchange(request, observe(request, handler));
+    }
+
+    /**
+     * Schedules the request once its token is due instead of sleeping. Cancelling the returned future drops the request
+     * if it was not sent yet, and cancels the exchange in flight otherwise.
+     */
+    @Override
+    public <T> CompletableFuture<T> exchangeAsync(TransportRequest request, ResponseHandler<T> handler) {
+        long wait;
+        try {
+            wait = limiter.acquire(request);
+        } catch (RateLimitedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (wait == 0) {
+            return delegate.exchangeAsync(request, observe(request, handler));
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> inFlight = new AtomicReference<>();
+        result.whenComplete((value, error) -> {
+            CompletableFuture<T> exchange = inFlight.get();
+            if (result.isCancelled() && exchange != null) {
+                exchange.cancel(true);
+            }
+        });
+        CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<T> exchange = delegate.exchangeAsync(request, observe(request, handler));
+            inFlight.set(exchange);
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+            exchange.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                }
+            });
+        });
+        return result;
+    }
+
+    private <T> ResponseHandler<T> observe(TransportRequest request, ResponseHandler<T> handler) {
+        String endpoint = request.endpoint();
+        return (statusCode, headers, body) -> {
+            limiter.onResponse(endpoint, statusCode, statusCode == 429 ? RetryPolicy.retryAfterNanos(headers) : 0);
+            return handler.handle(statusCode, headers, body);
+        };
+    }
+
+    private static void sleep(long nanos) throws InterruptedIOException {
+        long end = System.nanoTime() + nanos;
+        for (long left = nanos; left > 0; left = end - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+            }
+        }
+    }
+}
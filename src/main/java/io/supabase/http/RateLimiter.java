@@ -0,0 +1,231 @@
+package io.supabase.http;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the requests to every endpoint of the GoTrue server under a rate, so bursts are spread out by the client
+ * instead of being answered with 429 by the server, applied by a {@link RateLimitedTransport}.
+ * <p>
+ * Every endpoint has a token bucket refilling at its rate up to its burst. The bucket is a single atomic timestamp,
+ * the time at which it would be full again, so threads take tokens with a compare-and-set and never block each other.
+ * A request finding the bucket empty reserves the next token and waits for it, if the wait does not exceed the
+ * maximum wait nor the {@link TransportRequest#deadline() deadline} of the request. Otherwise it fails at once with a
+ * {@link RateLimitedException}. With a maximum wait of zero every request beyond the burst fails fast.
+ * <p>
+ * The server enforces its limits per IP address, so clients sharing one address share the limit too. When adaptive,
+ * the limiter halves the rate of an endpoint on every 429 response and holds back its requests until the
+ * {@code Retry-After} of the server has passed, then recovers the configured rate step by step with every successful
+ * response.
+ */
+public final class RateLimiter {
+    // endpoints beyond it share one bucket, so unexpected paths cannot grow the map unbounded
+    private static final int MAX_ENDPOINTS = 64;
+    private static final String OTHER_ENDPOINTS = "*";
+    // the adaptive rate goes down to the configured rate divided by it
+    private static final int MAX_BACKOFF = 16;
+    // the number of successful responses recovering the rate lost by a 429
+    private static final int RECOVERY_STEPS = 16;
+
+    private final Limit defaultLimit;
+    private final long maxWaitNanos;
+    private final boolean adaptive;
+    private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * @param permitsPerSecond the rate of requests per endpoint.
+     * @param burst            the number of requests per endpoint that may be sent at once.
+     * @param maxWait          the longest time a request waits for a token, zero to fail fast.
+     * @param adaptive         whether to slow down on 429 responses of the server.
+     * @throws IllegalArgumentException if the rate or the burst is not positive or the maximum wait is negative.
+     */
+    public RateLimiter(double permitsPerSecond, int burst, Duration maxWait, boolean adaptive) {
+        if (maxWait == null || maxWait.isNegative()) {
+            throw new IllegalArgumentException("The max wait must not be negative!");
+        }
+        this.defaultLimit = new Limit(permitsPerSecond, burst);
+        this.maxWaitNanos = Deadline.saturatedNanos(maxWait);
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Sets the limit of an endpoint, e.g. to match a stricter limit of the server on {@code POST /otp}. Requests
+     * already waiting keep their reservation.
+     *
+     * @param endpoint         the endpoint, see {@link TransportRequest#endpoint()}.
+     * @param permitsPerSecond the rate of requests to the endpoint.
+     * @param burst            the number of requests to the endpoint that may be sent at once.
+     * @throws IllegalArgumentException if the endpoint is not specified or the rate or the burst is not positive.
+     */
+    public void setLimit(String endpoint, double permitsPerSecond, int burst) {
+        if (endpoint == null || endpoint.isEmpty()) {
+            throw new IllegalArgumentException("The endpoint is required!");
+        }
+        limits.put(endpoint, new Limit(permitsPerSecond, burst));
+        buckets.remove(endpoint);
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * @param endpoint the endpoint, see {@link TransportRequest#endpoint()}.
+     * @return the current rate of the endpoint in requests per second, below the configured one after a 429.
+     */
+    public double getRate(String endpoint) {
+        Bucket bucket = buckets.get(endpoint);
+        return bucket != null ? 1e9 / bucket.intervalNanos : limits.getOrDefault(endpoint, defaultLimit).permitsPerSecond;
+    }
+
+    /**
+     * @return the number of requests that waited for a token.
+     */
+    public long getDelayedCount() {
+        return delayed.sum();
+    }
+
+    /**
+     * @return the number of requests rejected without being sent.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the number of 429 responses of the server.
+     */
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    /**
+     * Takes a token for a request.
+     *
+     * @param request the request.
+     * @return the time to wait in nanoseconds before sending the request.
+     * @throws RateLimitedException if the token would come after the maximum wait or the deadline.
+     */
+    long acquire(TransportRequest request) throws RateLimitedException {
+        String endpoint = request.endpoint();
+        long maxWait = maxWaitNanos;
+        if (request.deadline() != null) {
+            maxWait = Math.min(maxWait, request.deadline().remaining().toNanos());
+        }
+        long wait = bucket(endpoint).reserve(System.nanoTime(), maxWait);
+        if (wait < 0) {
+            rejected.increment();
+            throw new RateLimitedException(endpoint, Duration.ofNanos(-wait));
+        }
+        if (wait > 0) {
+            delayed.increment();
+        }
+        return wait;
+    }
+
+    /**
+     * Adapts the rate of an endpoint to a response of the server.
+     *
+     * @param endpoint   the endpoint of the request.
+     * @param statusCode the status code of the response.
+     * @param retryAfter the delay requested by the server in nanoseconds, or 0.
+     */
+    void onResponse(String endpoint, int statusCode, long retryAfter) {
+        if (statusCode == 429) {
+            throttled.increment();
+            if (adaptive) {
+                bucket(endpoint).throttle(System.nanoTime(), retryAfter);
+            }
+        } else if (adaptive) {
+            Bucket bucket = buckets.get(endpoint);
+            if (bucket != null) {
+                bucket.recover();
+            }
+        }
+    }
+
+    private Bucket bucket(String endpoint) {
+        Bucket bucket = buckets.get(endpoint);
+        if (bucket == null) {
+            String key = buckets.size() < MAX_ENDPOINTS || limits.containsKey(endpoint) ? endpoint : OTHER_ENDPOINTS;
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(limits.getOrDefault(k, defaultLimit)));
+        }
+        return bucket;
+    }
+
+    private record Limit(double permitsPerSecond, int burst) {
+        Limit {
+            if (!(permitsPerSecond > 0) || Double.isInfinite(permitsPerSecond)) {
+                throw new IllegalArgumentException(String.format("The permits per second >%s< must be positive!", permitsPerSecond));
+            }
+            if (burst < 1) {
+                throw new IllegalArgumentException(String.format("The burst >%s< must be positive!", burst));
+            }
+        }
+
+        long intervalNanos() {
+            return Math.max(1, Math.round(1e9 / permitsPerSecond));
+        }
+    }
+
+    /**
+     * A token bucket kept as the time its next token is due, one interval per token.
+     */
+    private static final class Bucket {
+        private final long baseIntervalNanos;
+        private final int burst;
+        private final AtomicLong nextFree;
+        // raised on 429 responses and lowered back on successes, lost updates of racing threads only delay the recovery
+        private volatile long intervalNanos;
+
+        Bucket(Limit limit) {
+            this.baseIntervalNanos = limit.intervalNanos();
+            this.burst = limit.burst();
+            this.intervalNanos = baseIntervalNanos;
+            this.nextFree = new AtomicLong(System.nanoTime() - (burst - 1) * baseIntervalNanos);
+        }
+
+        /**
+         * @return the wait before the reserved token, or minus the wait if it exceeds the maximum and nothing was
+         * reserved.
+         */
+        long reserve(long now, long maxWait) {
+            while (true) {
+                long current = nextFree.get();
+                long interval = intervalNanos;
+                // a full bucket holds the burst, tokens older than that are not saved up
+                long due = Math.max(current, now - (burst - 1) * interval);
+                long wait = Math.max(0, due - now);
+                if (wait > maxWait) {
+                    return -wait;
+                }
+                if (nextFree.compareAndSet(current, due + interval)) {
+                    return wait;
+                }
+            }
+        }
+
+        void throttle(long now, long retryAfter) {
+            long interval = Math.min(baseIntervalNanos * MAX_BACKOFF, intervalNanos * 2);
+            intervalNanos = interval;
+            // empties the bucket, the next token is due once the server accepts requests again
+            nextFree.accumulateAndGet(now + Math.max(retryAfter, interval), Math::max);
+        }
+
+        void recover() {
+            long interval = intervalNanos;
+            if (interval > baseIntervalNanos) {
+                // adds a step of the configured rate to the current rate
+                double rate = 1.0 / interval + 1.0 / ((double) baseIntervalNanos * RECOVERY_STEPS);
+                intervalNanos = Math.max(baseIntervalNanos, Math.round(1 / rate));
+            }
+        }
+    }
+}
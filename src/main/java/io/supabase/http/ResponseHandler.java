@@ -0,0 +1,26 @@
+package io.supabase.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumes a response while it is being received, e.g. to decode the body straight from the stream instead of
+ * buffering it first.
+ *
+ * @param <T> the type the response is turned into.
+ * @see GoTrueTransport#exchange
+ */
+@FunctionalInterface
+public interface ResponseHandler<T> {
+
+    /**
+     * @param statusCode the HTTP status code.
+     * @param headers    the response headers.
+     * @param body       the response body, empty if there is none. It is closed by the transport afterwards.
+     * @return the result of the exchange.
+     * @throws IOException if the body could not be read.
+     */
+    T handle(int statusCode, Map<String, List<String>> headers, InputStream body) throws IOException;
+}
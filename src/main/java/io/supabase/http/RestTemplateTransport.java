@@ -0,0 +1,98 @@
+package io.supabase.http;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adapts a {@link RestTemplate} to the transport SPI, e.g. to keep using interceptors or a request factory
+ * configured for it.
+ * <p>
+ * A rest template has no per-request timeout, the read timeout is the one of its request factory. Requests whose
+ * deadline already passed are not sent.
+ */
+public final class RestTemplateTransport implements GoTrueTransport {
+    private final RestTemplate rest;
+
+    public RestTemplateTransport() {
+        this(new RestTemplate());
+    }
+
+    /**
+     * @param rest the rest template to send the requests with.
+     * @throws IllegalArgumentException if the rest template is not specified.
+     */
+    public RestTemplateTransport(RestTemplate rest) {
+        if (rest == null) {
+            throw new IllegalArgumentException("The rest template is required!");
+        }
+        this.rest = rest;
+    }
+
+    public RestTemplate getRestTemplate() {
+        return rest;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        checkDeadline(request);
+        HttpHeaders headers = new HttpHeaders();
+        request.headers().forEach(headers::add);
+        HttpEntity<byte[]> entity = new HttpEntity<>(request.body(), headers);
+        try {
+            ResponseEntity<String> response = rest.exchange(request.uri(), HttpMethod.valueOf(request.method()), entity, String.class);
+            return new TransportResponse(response.getStatusCode().value(), toMap(response.getHeaders()), response.getBody());
+        } catch (RestClientResponseException e) {
+            String body = e.getResponseBodyAsString();
+            return new TransportResponse(e.getStatusCode().value(), toMap(e.getResponseHeaders()), body.isEmpty() ? null : body);
+        } catch (ResourceAccessException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Hands the body to the handler from within {@link RestTemplate#execute}, so it is decoded from the connection
+     * instead of being converted to a String first. Error responses are buffered by the error handler of the rest
+     * template, their body is handed over from the exception.
+     */
+    @Override
+    public <T> T exchange(TransportRequest request, ResponseHandler<T> handler) throws IOException {
+        checkDeadline(request);
+        try {
+            return rest.execute(request.uri(), HttpMethod.valueOf(request.method()), clientRequest -> {
+                request.headers().forEach(clientRequest.getHeaders()::add);
+                if (request.body() != null) {
+                    clientRequest.getBody().write(request.body());
+                }
+            }, response -> handler.handle(response.getStatusCode().value(), response.getHeaders(), response.getBody()));
+        } catch (RestClientResponseException e) {
+            try (InputStream body = new ByteArrayInputStream(e.getResponseBodyAsByteArray())) {
+                return handler.handle(e.getStatusCode().value(), toMap(e.getResponseHeaders()), body);
+            }
+        } catch (ResourceAccessException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static void checkDeadline(TransportRequest request) throws HttpTimeoutException {
+        if (request.deadline() != null && request.deadline().isExpired()) {
+            throw new HttpTimeoutException("Deadline exceeded before the request was sent");
+        }
+    }
+
+    private static Map<String, List<String>> toMap(HttpHeaders headers) {
+        return headers != null ? headers : Collections.emptyMap();
+    }
+}
@@ -0,0 +1,213 @@
+package io.supabase.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpConnectTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * When and how often the requests of a client are retried, applied by a {@link RetryingTransport}.
+ * <p>
+ * Only requests that are safe to repeat are retried: GET requests on a 429, 502, 503 or 504 response or an I/O error,
+ * and refresh token grants only when the server certainly did not process them, on a 429 response or when the
+ * connection could not be established, since a refresh token is consumed by its first use. The delays follow
+ * decorrelated jitter, each one drawn between the base delay and three times the previous one, and a
+ * {@code Retry-After} of the server is waited for at least.
+ * <p>
+ * A retry budget keeps retries from multiplying the load on a server that is down: every request earns a fraction of
+ * a retry, and a retry is only sent while the earned retries last. A reserve of {@value #BUDGET_RESERVE} retries
+ * covers clients with little traffic. The budget and the counters are shared by all requests of the policy.
+ */
+public final class RetryPolicy {
+    /**
+     * The number of retries that can be spent in a burst, and that the budget starts with.
+     */
+    public static final int BUDGET_RESERVE = 10;
+    // the budget is kept in thousandths of a retry
+    private static final long RETRY_COST = 1000;
+    private static final String REFRESH_GRANT = "grant_type=refresh_token";
+
+    private final int maxAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final long depositPerRequest;
+    private final AtomicLong budget = new AtomicLong(BUDGET_RESERVE * RETRY_COST);
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    /**
+     * @param maxAttempts the maximum number of attempts of a request, the first one included.
+     * @param baseDelay   the shortest delay before a retry.
+     * @param maxDelay    the longest delay before a retry. A server asking to wait longer is not retried.
+     * @param budgetRatio the maximum share of retries in the requests, e.g. 0.1 for 10%.
+     * @throws IllegalArgumentException if the maximum attempts are not positive, the delays are not positive and
+     *                                  ordered or the budget ratio is not within [0, 1].
+     */
+    public RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay, double budgetRatio) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException(String.format("The max attempts >%s< must be positive!", maxAttempts));
+        }
+        if (baseDelay == null || maxDelay == null || baseDelay.isNegative() || baseDelay.isZero() || maxDelay.compareTo(baseDelay) < 0) {
+            throw new IllegalArgumentException("The retry delays must be positive and ordered!");
+        }
+        if (!(budgetRatio >= 0 && budgetRatio <= 1)) {
+            throw new IllegalArgumentException(String.format("The budget ratio >%s< must be within [0, 1]!", budgetRatio));
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = Deadline.saturatedNanos(baseDelay);
+        this.maxDelayNanos = Deadline.saturatedNanos(maxDelay);
+        this.depositPerRequest = Math.round(budgetRatio * RETRY_COST);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return the number of requests sent, retries included.
+     */
+    public long getAttemptCount() {
+        return attempts.sum();
+    }
+
+    /**
+     * @return the number of retries sent.
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * @return the number of retries not sent because the budget was spent.
+     */
+    public long getBudgetExhaustedCount() {
+        return budgetExhausted.sum();
+    }
+
+    /**
+     * @param request a request.
+     * @return whether the request may be retried at all.
+     */
+    public boolean isRetryable(TransportRequest request) {
+        return "GET".equals(request.method()) || isRefresh(request);
+    }
+
+    /**
+     * @param request    a retryable request.
+     * @param statusCode the status code of its response.
+     * @return whether the response is worth a retry.
+     */
+    boolean isRetryable(TransportRequest request, int statusCode) {
+        if (statusCode == 429) {
+            return true;
+        }
+        return !isRefresh(request) && (statusCode == 502 || statusCode == 503 || statusCode == 504);
+    }
+
+    /**
+     * @param request a retryable request.
+     * @param error   the error sending it.
+     * @return whether the error is worth a retry.
+     */
+    boolean isRetryable(TransportRequest request, IOException error) {
+        // rejected by the client itself, the server was not asked
+        if (error instanceof CircuitOpenException || error instanceof RateLimitedException) {
+            return false;
+        }
+        if (isRefresh(request)) {
+            return error instanceof ConnectException || error instanceof HttpConnectTimeoutException;
+        }
+        // an interrupted caller is not retried, a timed out socket is
+        return !(error instanceof InterruptedIOException) || error instanceof SocketTimeoutException;
+    }
+
+    private static boolean isRefresh(TransportRequest request) {
+        String query = request.uri().getRawQuery();
+        return "POST".equals(request.method()) && query != null && query.contains(REFRESH_GRANT);
+    }
+
+    /**
+     * Counts a first attempt and deposits its share of a retry into the budget.
+     */
+    void recordRequest() {
+        attempts.increment();
+        if (depositPerRequest > 0) {
+            budget.accumulateAndGet(depositPerRequest, (balance, deposit) -> Math.min(BUDGET_RESERVE * RETRY_COST, balance + deposit));
+        }
+    }
+
+    /**
+     * Takes a retry from the budget.
+     *
+     * @return whether the retry may be sent.
+     */
+    boolean tryRetry() {
+        long balance;
+        do {
+            balance = budget.get();
+            if (balance < RETRY_COST) {
+                budgetExhausted.increment();
+                return false;
+            }
+        } while (!budget.compareAndSet(balance, balance - RETRY_COST));
+        attempts.increment();
+        retries.increment();
+        return true;
+    }
+
+    /**
+     * Draws the delay before the next retry.
+     *
+     * @param previousNanos the previous delay, or 0 before the first retry.
+     * @param retryAfter    the delay requested by the server, or 0 if there is none.
+     * @return the delay in nanoseconds, or -1 if the server asked to wait longer than the maximum delay.
+     */
+    long nextDelay(long previousNanos, long retryAfter) {
+        if (retryAfter > maxDelayNanos) {
+            return -1;
+        }
+        long upper = Math.min(maxDelayNanos, Math.max(baseDelayNanos, previousNanos) * 3);
+        long jittered = upper > baseDelayNanos ? ThreadLocalRandom.current().nextLong(baseDelayNanos, upper + 1) : baseDelayNanos;
+        return Math.max(jittered, retryAfter);
+    }
+
+    /**
+     * Reads the {@code Retry-After} header, either delay seconds or an HTTP date.
+     *
+     * @param headers the response headers.
+     * @return the requested delay in nanoseconds, or 0 if there is none.
+     */
+    static long retryAfterNanos(Map<String, List<String>> headers) {
+        String value = null;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                value = header.getValue().get(0).trim();
+                break;
+            }
+        }
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Duration.ofSeconds(Long.parseLong(value)).toNanos());
+        } catch (NumberFormatException | ArithmeticException e) {
+            try {
+                Duration delay = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+                return delay.isNegative() ? 0 : Deadline.saturatedNanos(delay);
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+    }
+}
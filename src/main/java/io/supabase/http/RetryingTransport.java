@@ -0,0 +1,233 @@
+package io.supabase.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Retries the requests of a transport according to a {@link RetryPolicy}.
+ * <p>
+ * A retry is only sent if the delay before it ends ahead of the {@link TransportRequest#deadline() deadline} of the
+ * request, so retries never extend a call beyond its deadline. Once no retry is left, the last response or error is
+ * handed to the caller as it is. Responses are streamed to the handler unless they are worth a retry, those are
+ * buffered first, so the body is still available if the retry is not sent.
+ */
+public final class RetryingTransport implements GoTrueTransport {
+    private final GoTrueTransport delegate;
+    private final RetryPolicy policy;
+
+    /**
+     * @param delegate the transport sending the requests.
+     * @param policy   when and how often to retry.
+     * @throws IllegalArgumentException if the transport or the policy is not specified.
+     */
+    public RetryingTransport(GoTrueTransport delegate, RetryPolicy policy) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("The transport is required!");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("The retry policy is required!");
+        }
+        this.delegate = delegate;
+        this.policy = policy;
+    }
+
+    public GoTrueTransport getDelegate() {
+        return delegate;
+    }
+
+    public RetryPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        policy.recordRequest();
+        if (!policy.isRetryable(request)) {
+            return delegate.send(request);
+        }
+        Retries retries = new Retries(request);
+        while (true) {
+            TransportResponse response;
+            try {
+                response = delegate.send(request);
+            } catch (IOException e) {
+                if (!retries.next(policy.isRetryable(request, e), 0)) {
+                    throw e;
+                }
+                retries.sleep();
+                continue;
+            }
+            if (!retries.next(policy.isRetryable(request, response.statusCode()), RetryPolicy.retryAfterNanos(response.headers()))) {
+                return response;
+            }
+            retries.sleep();
+        }
+    }
+
+    @Override
+    public <T> T exchange(TransportRequest request, ResponseHandler<T> handler) throws IOException {
+        policy.recordRequest();
+        if (!policy.isRetryable(request)) {
+            return delegate.exchange(request, handler);
+        }
+        Retries retries = new Retries(request);
+        while (true) {
+            try {
+                return delegate.exchange(request, retries.handler(handler));
+            } catch (RetrySignal signal) {
+                retries.sleep();
+            } catch (IOException e) {
+                if (retries.received || !retries.next(policy.isRetryable(request, e), 0)) {
+                    throw e;
+                }
+                retries.sleep();
+            }
+        }
+    }
+
+    /**
+     * Schedules the retries after their delay instead of sleeping, cancelling the returned future cancels the attempt
+     * in flight and the retries still to come.
+     */
+    @Override
+    public <T> CompletableFuture<T> exchangeAsync(TransportRequest request, ResponseHandler<T> handler) {
+        policy.recordRequest();
+        if (!policy.isRetryable(request)) {
+            return delegate.exchangeAsync(request, handler);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<T>> inFlight = new AtomicReference<>();
+        result.whenComplete((value, error) -> {
+            CompletableFuture<T> attempt = inFlight.get();
+            if (result.isCancelled() && attempt != null) {
+                attempt.cancel(true);
+            }
+        });
+        attemptAsync(request, handler, new Retries(request), result, inFlight);
+        return result;
+    }
+
+    private <T> void attemptAsync(TransportRequest request, ResponseHandler<T> handler, Retries retries,
+                                  CompletableFuture<T> result, AtomicReference<CompletableFuture<T>> inFlight) {
+        if (result.isDone()) {
+            return;
+        }
+        CompletableFuture<T> attempt = delegate.exchangeAsync(request, retries.handler(handler));
+        inFlight.set(attempt);
+        if (result.isCancelled()) {
+            attempt.cancel(true);
+        }
+        attempt.whenComplete((value, error) -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            boolean retry = cause instanceof RetrySignal
+                    || (cause instanceof IOException && !retries.received && retries.next(policy.isRetryable(request, (IOException) cause), 0));
+            if (!retry) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            CompletableFuture.delayedExecutor(retries.delayNanos, TimeUnit.NANOSECONDS)
+                    .execute(() -> attemptAsync(request, handler, retries, result, inFlight));
+        });
+    }
+
+    /**
+     * The retries of a single request.
+     */
+    private final class Retries {
+        private final TransportRequest request;
+        private int attempt = 1;
+        private long delayNanos;
+        // whether the handler got the response of the attempt, its errors, e.g. decoding the body, are not retried
+        private volatile boolean received;
+
+        Retries(TransportRequest request) {
+            this.request = request;
+        }
+
+        /**
+         * Decides on a retry after a failed attempt and draws its delay.
+         *
+         * @param retryable  whether the outcome of the attempt is worth a retry.
+         * @param retryAfter the delay requested by the server in nanoseconds, or 0.
+         * @return whether to retry.
+         */
+        boolean next(boolean retryable, long retryAfter) {
+            if (!retryable || attempt >= policy.getMaxAttempts()) {
+                return false;
+            }
+            long delay = policy.nextDelay(delayNanos, retryAfter);
+            if (delay < 0) {
+                return false;
+            }
+            Deadline deadline = request.deadline();
+            if (deadline != null && deadline.remaining().toNanos() <= delay) {
+                return false;
+            }
+            if (!policy.tryRetry()) {
+                return false;
+            }
+            attempt++;
+            delayNanos = delay;
+            return true;
+        }
+
+        void sleep() throws InterruptedIOException {
+            long end = System.nanoTime() + delayNanos;
+            for (long left = delayNanos; left > 0; left = end - System.nanoTime()) {
+                LockSupport.parkNanos(left);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a retry");
+                }
+            }
+        }
+
+        /**
+         * Buffers a response worth a retry and signals the retry, other responses are handed to the handler as they
+         * are received.
+         */
+        <T> ResponseHandler<T> handler(ResponseHandler<T> handler) {
+            received = false;
+            return (statusCode, headers, body) -> {
+                received = true;
+                if (!policy.isRetryable(request, statusCode)) {
+                    return handler.handle(statusCode, headers, body);
+                }
+                byte[] content = body.readAllBytes();
+                if (next(true, RetryPolicy.retryAfterNanos(headers))) {
+                    throw new RetrySignal();
+                }
+                return handler.handle(statusCode, headers, new ByteArrayInputStream(content));
+            };
+        }
+    }
+
+    /**
+     * Carries the decision to retry out of a response handler, the delay is kept by the retries of the request.
+     */
+    private static final class RetrySignal extends IOException {
+
+        RetrySignal() {
+            super("Retry");
+        }
+
+        // thrown for control flow only, the stack trace would never be read
+        @Override
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.supabase.http;
+
+import java.time.Duration;
+
+/**
+ * The timeouts of the requests of a client, applied by a {@link TimeoutTransport}.
+ * The connect timeout is a setting of the transport itself, see {@link HttpClientTransport}.
+ */
+public final class TimeoutPolicy {
+    /**
+     * The read timeout of the default policy.
+     */
+    public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * A read timeout of {@link #DEFAULT_READ_TIMEOUT} and no total timeout.
+     */
+    public static final TimeoutPolicy DEFAULT = new TimeoutPolicy(DEFAULT_READ_TIMEOUT, null, null);
+
+    private final Duration readTimeout;
+    private final Duration totalTimeout;
+    private final AdaptiveTimeout adaptiveTimeout;
+
+    /**
+     * @param readTimeout     the time to wait for the response of a request.
+     * @param totalTimeout    the time a call may take in total, retries included, or null for no limit.
+     * @param adaptiveTimeout derives the read timeout per endpoint from the observed latencies, or null to always use
+     *                        the fixed read timeout.
+     * @throws IllegalArgumentException if the read timeout is not specified, or a timeout is not positive.
+     */
+    public TimeoutPolicy(Duration readTimeout, Duration totalTimeout, AdaptiveTimeout adaptiveTimeout) {
+        if (readTimeout == null || readTimeout.isNegative() || readTimeout.isZero()) {
+            throw new IllegalArgumentException("The read timeout must be positive!");
+        }
+        if (totalTimeout != null && (totalTimeout.isNegative() || totalTimeout.isZero())) {
+            throw new IllegalArgumentException("The total timeout must be positive!");
+        }
+        this.readTimeout = readTimeout;
+        this.totalTimeout = totalTimeout;
+        this.adaptiveTimeout = adaptiveTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public Duration getTotalTimeout() {
+        return totalTimeout;
+    }
+
+    public AdaptiveTimeout getAdaptiveTimeout() {
+        return adaptiveTimeout;
+    }
+}
@@ -0,0 +1,151 @@
+package io.supabase.http;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Applies a {@link TimeoutPolicy} to the requests of a transport.
+ * <p>
+ * Every request gets the read timeout of its endpoint and a deadline, the earlier of the total timeout and the
+ * {@link Deadline#current() deadline} of the call it belongs to. The deadline is carried by the request, so the
+ * decorators between this transport and the wire, e.g. waiting for a slot or retrying, stay within it. With an
+ * {@link AdaptiveTimeout} the time until the response headers arrive is recorded per endpoint, as well as the attempts
+ * whose read timeout expired.
+ */
+public final class TimeoutTransport implements GoTrueTransport {
+    private final GoTrueTransport delegate;
+    private final TimeoutPolicy policy;
+
+    /**
+     * @param delegate the transport sending the requests.
+     * @param policy   the timeouts to apply.
+     * @throws IllegalArgumentException if the transport or the policy is not specified.
+     */
+    public TimeoutTransport(GoTrueTransport delegate, TimeoutPolicy policy) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("The transport is required!");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("The timeout policy is required!");
+        }
+        this.delegate = delegate;
+        this.policy = policy;
+    }
+
+    public GoTrueTransport getDelegate() {
+        return delegate;
+    }
+
+    public TimeoutPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        TransportRequest timed = withTimeout(request);
+        long start = System.nanoTime();
+        TransportResponse response;
+        try {
+            response = delegate.send(timed);
+        } catch (IOException e) {
+            recordTimeout(timed, start, e);
+            throw e;
+        }
+        record(timed, start);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        TransportRequest timed = withTimeout(request);
+        long start = System.nanoTime();
+        CompletableFuture<TransportResponse> response = delegate.sendAsync(timed);
+        if (policy.getAdaptiveTimeout() != null) {
+            response.whenComplete((value, error) -> {
+                if (error == null) {
+                    record(timed, start);
+                } else {
+                    recordTimeout(timed, start, error);
+                }
+            });
+        }
+        return response;
+    }
+
+    @Override
+    public <T> T exchange(TransportRequest request, ResponseHandler<T> handler) throws IOException {
+        TransportRequest timed = withTimeout(request);
+        long start = System.nanoTime();
+        try {
+            return delegate.exchange(timed, recording(timed, start, handler));
+        } catch (IOException e) {
+            recordTimeout(timed, start, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> exchangeAsync(TransportRequest request, ResponseHandler<T> handler) {
+        TransportRequest timed = withTimeout(request);
+        long start = System.nanoTime();
+        CompletableFuture<T> result = delegate.exchangeAsync(timed, recording(timed, start, handler));
+        if (policy.getAdaptiveTimeout() != null) {
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    recordTimeout(timed, start, error);
+                }
+            });
+        }
+        return result;
+    }
+
+    private TransportRequest withTimeout(TransportRequest request) {
+        Deadline deadline = request.deadline() != null ? request.deadline().earliest(Deadline.current()) : Deadline.current();
+        if (policy.getTotalTimeout() != null) {
+            deadline = Deadline.after(policy.getTotalTimeout()).earliest(deadline);
+        }
+        Duration timeout = policy.getReadTimeout();
+        if (policy.getAdaptiveTimeout() != null) {
+            timeout = policy.getAdaptiveTimeout().timeoutFor(request.endpoint(), timeout);
+        }
+        if (request.timeout() != null && request.timeout().compareTo(timeout) < 0) {
+            timeout = request.timeout();
+        }
+        return request.withTimeout(timeout, deadline);
+    }
+
+    private <T> ResponseHandler<T> recording(TransportRequest request, long start, ResponseHandler<T> handler) {
+        if (policy.getAdaptiveTimeout() == null) {
+            return handler;
+        }
+        return (statusCode, headers, body) -> {
+            record(request, start);
+            return handler.handle(statusCode, headers, body);
+        };
+    }
+
+    private void record(TransportRequest request, long start) {
+        AdaptiveTimeout adaptive = policy.getAdaptiveTimeout();
+        if (adaptive != null) {
+            adaptive.record(request.endpoint(), System.nanoTime() - start);
+        }
+    }
+
+    // only an expired read timeout tells about the latency, not a deadline that cut the attempt short
+    private void recordTimeout(TransportRequest request, long start, Throwable error) {
+        AdaptiveTimeout adaptive = policy.getAdaptiveTimeout();
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (adaptive == null || request.timeout() == null
+                || !(cause instanceof HttpTimeoutException || cause instanceof SocketTimeoutException)) {
+            return;
+        }
+        long waited = System.nanoTime() - start;
+        if (waited >= request.timeout().toNanos()) {
+            adaptive.recordTimeout(request.endpoint(), waited);
+        }
+    }
+}
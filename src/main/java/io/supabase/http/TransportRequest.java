@@ -0,0 +1,63 @@
+package io.supabase.http;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A request to the GoTrue server.
+ *
+ * @param method   the HTTP method, e.g. GET or POST.
+ * @param uri      the absolute uri of the endpoint.
+ * @param headers  the request headers.
+ * @param body     the UTF-8 encoded json body, or null if the request has none.
+ * @param timeout  the time to wait for the response, or null for the default of the transport.
+ * @param deadline the deadline of the call the request belongs to, or null if it has none.
+ */
+public record TransportRequest(String method, URI uri, Map<String, String> headers, byte[] body, Duration timeout, Deadline deadline) {
+    // ids in the path, e.g. of admin user lookups, so they are counted as one endpoint
+    private static final Pattern ID_SEGMENT = Pattern.compile("/[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}(?=/|$)");
+
+    /**
+     * A request without timeout or deadline.
+     */
+    public TransportRequest(String method, URI uri, Map<String, String> headers, byte[] body) {
+        this(method, uri, headers, body, null, null);
+    }
+
+    /**
+     * @param timeout  the time to wait for the response, or null for the default of the transport.
+     * @param deadline the deadline of the call the request belongs to, or null if it has none.
+     * @return a copy of this request with the given timeout and deadline.
+     */
+    public TransportRequest withTimeout(Duration timeout, Deadline deadline) {
+        return new TransportRequest(method, uri, headers, body, timeout, deadline);
+    }
+
+    /**
+     * Gets the time left to wait for the response, the timeout capped by the deadline.
+     *
+     * @return the time left, zero once the deadline passed, or null if the request has neither timeout nor deadline.
+     */
+    public Duration remainingTimeout() {
+        return deadline != null ? deadline.cap(timeout) : timeout;
+    }
+
+    /**
+     * Gets the endpoint of the request for per-endpoint bookkeeping, e.g. {@code GET /user} or
+     * {@code POST /token?grant_type=password}. User ids in the path are replaced by {@code {id}}.
+     *
+     * @return the method, path and query of the request.
+     */
+    public String endpoint() {
+        String path = uri.getRawPath();
+        if (path == null) {
+            path = "";
+        } else if (path.indexOf('-') >= 0) {
+            path = ID_SEGMENT.matcher(path).replaceAll("/{id}");
+        }
+        String endpoint = method + " " + path;
+        return uri.getRawQuery() != null ? endpoint + "?" + uri.getRawQuery() : endpoint;
+    }
+}
@@ -0,0 +1,14 @@
+package io.supabase.http;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A response of the GoTrue server.
+ *
+ * @param statusCode the HTTP status code.
+ * @param headers    the response headers.
+ * @param body       the response body, or null if the response has none.
+ */
+public record TransportResponse(int statusCode, Map<String, List<String>> headers, String body) {
+}
@@ -0,0 +1,137 @@
+package io.supabase.jwt;
+
+import io.supabase.http.Deadline;
+import io.supabase.jwt.TokenSupport.Digest;
+import io.supabase.schemas.User;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded, concurrent cache of the users read by id with a full-access key, see
+ * {@link io.supabase.GoTrueApi#getUserById} and {@link io.supabase.GoTrueApi#getUsersByIds}.
+ * <p>
+ * Users are returned as they are for the time to live after they were loaded, then loaded again on the next read.
+ * An entry only answers the key it was loaded with, so a caller without access to the admin endpoints never reads
+ * users loaded by one with access. The key itself is not retained but compared by its SHA-256 digest.
+ * Entries are evicted once they expired or when the cache grows beyond its maximum size. The cache does not learn of
+ * changes made to a user meanwhile, {@link #invalidate(String)} the users known to have changed.
+ * <p>
+ * A cache belongs to one api, see {@link io.supabase.GoTrueApi#setAdminUserCache}. The cached {@link User} instances are shared
+ * between callers and must not be modified.
+ */
+public final class AdminUserCache {
+    private final long ttlNanos;
+    private final int maximumSize;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param ttl         the time a user is returned without asking the server.
+     * @param maximumSize the maximum number of cached users.
+     * @throws IllegalArgumentException if the time to live or the maximum size is not positive.
+     */
+    public AdminUserCache(Duration ttl, int maximumSize) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("The ttl must be positive!");
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive!");
+        }
+        this.ttlNanos = Deadline.saturatedNanos(ttl);
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getTtl() {
+        return Duration.ofNanos(ttlNanos);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Drops a cached user, the next read loads it.
+     *
+     * @param userId the id of the user.
+     */
+    public void invalidate(String userId) {
+        if (userId != null) {
+            entries.remove(userId);
+        }
+    }
+
+    /**
+     * Removes all cached users.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets a user previously loaded with the same key.
+     *
+     * @param userId the id of the user.
+     * @param jwt    the full-access key the user is read with.
+     * @return the cached user, or null if it is not cached for the key or expired.
+     */
+    public User get(String userId, String jwt) {
+        Entry entry = userId != null && jwt != null ? entries.get(userId) : null;
+        if (entry == null || !entry.key().equals(TokenSupport.digest(jwt))) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - entry.loadedAt() >= ttlNanos) {
+            if (entries.remove(userId, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.user();
+    }
+
+    /**
+     * Caches a user for the time to live, answering only reads with the key it was loaded with.
+     *
+     * @param userId the id of the user.
+     * @param jwt    the full-access key the user was loaded with.
+     * @param user   the loaded user.
+     */
+    public void put(String userId, String jwt, User user) {
+        if (userId == null || jwt == null || user == null) {
+            return;
+        }
+        if (entries.size() >= maximumSize) {
+            long now = System.nanoTime();
+            TokenSupport.sweep(entries, maximumSize, evictionLock, evictions, e -> now - e.loadedAt() >= ttlNanos);
+        }
+        entries.put(userId, new Entry(user, TokenSupport.digest(jwt), System.nanoTime()));
+    }
+
+    private record Entry(User user, Digest key, long loadedAt) {
+    }
+}
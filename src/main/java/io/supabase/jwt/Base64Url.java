@@ -0,0 +1,76 @@
+package io.supabase.jwt;
+
+import java.util.Arrays;
+
+/**
+ * Decodes unpadded base64url segments of a jwt into caller supplied buffers, without allocating.
+ */
+final class Base64Url {
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private Base64Url() {
+    }
+
+    /**
+     * @return the number of bytes a segment of the given length decodes to, or -1 if no valid segment has this length.
+     */
+    static int decodedLength(int encodedLength) {
+        if (encodedLength % 4 == 1) {
+            return -1;
+        }
+        return encodedLength / 4 * 3 + Math.max(0, encodedLength % 4 - 1);
+    }
+
+    /**
+     * @return whether {@code src[from, to)} consists of base64url characters only, without padding.
+     */
+    static boolean isEncoded(CharSequence src, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = src.charAt(i);
+            if (c >= 128 || DECODE[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes {@code src[from, to)} into {@code dst}, which must hold at least {@link #decodedLength} bytes.
+     *
+     * @return the number of decoded bytes or -1 if the segment is not valid base64url.
+     */
+    static int decode(CharSequence src, int from, int to, byte[] dst) {
+        if (decodedLength(to - from) < 0) {
+            return -1;
+        }
+        int out = 0;
+        int bits = 0;
+        int buffer = 0;
+        for (int i = from; i < to; i++) {
+            char c = src.charAt(i);
+            int v = c < 128 ? DECODE[c] : -1;
+            if (v < 0) {
+                return -1;
+            }
+            buffer = (buffer << 6) | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                dst[out++] = (byte) (buffer >> bits);
+            }
+        }
+        // the unused trailing bits of the last character have to be zero
+        if ((buffer & ((1 << bits) - 1)) != 0) {
+            return -1;
+        }
+        return out;
+    }
+}
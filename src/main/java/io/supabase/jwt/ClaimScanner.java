@@ -0,0 +1,206 @@
+package io.supabase.jwt;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal, allocation-free scanner over decoded jwt header and payload bytes.
+ * <p>
+ * Only top-level members are matched, so claims nested in e.g. user_metadata are never mistaken for
+ * registered claims. The input is expected to be a JSON object; anything unexpected makes the lookups fail.
+ */
+final class ClaimScanner {
+    /**
+     * Returned by {@link #readLong} if the claim is not present.
+     */
+    static final long ABSENT = Long.MIN_VALUE;
+
+    /**
+     * Returned by {@link #readLong} if the claim is present but not a number, or the json is malformed.
+     */
+    static final long INVALID = Long.MIN_VALUE + 1;
+
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+    private ClaimScanner() {
+    }
+
+    /**
+     * Finds the value of a top-level member.
+     *
+     * @param json the json bytes.
+     * @param len  the number of valid bytes.
+     * @param key  the ascii bytes of the member name.
+     * @return the index of the first byte of the value, -1 if the member is absent or -2 if the json is malformed.
+     */
+    static int find(byte[] json, int len, byte[] key) {
+        int i = skipWhitespace(json, 0, len);
+        if (i >= len || json[i] != '{') {
+            return -2;
+        }
+        i++;
+        int depth = 1;
+        boolean expectKey = true;
+        while (i < len) {
+            byte b = json[i];
+            if (b == '"') {
+                int start = i + 1;
+                int end = skipString(json, start, len);
+                if (end < 0) {
+                    return -2;
+                }
+                i = end + 1;
+                if (depth == 1 && expectKey) {
+                    expectKey = false;
+                    i = skipWhitespace(json, i, len);
+                    if (i >= len || json[i] != ':') {
+                        return -2;
+                    }
+                    i = skipWhitespace(json, i + 1, len);
+                    if (regionEquals(json, start, end, key)) {
+                        return i < len ? i : -2;
+                    }
+                }
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    return -1;
+                }
+            } else if (b == ',' && depth == 1) {
+                expectKey = true;
+            }
+            i++;
+        }
+        return -2;
+    }
+
+    /**
+     * Reads an integral top-level number, fractional digits are truncated.
+     *
+     * @return the value, {@link #ABSENT} or {@link #INVALID}.
+     */
+    static long readLong(byte[] json, int len, byte[] key) {
+        int i = find(json, len, key);
+        if (i == -1) {
+            return ABSENT;
+        }
+        if (i < 0) {
+            return INVALID;
+        }
+        boolean negative = json[i] == '-';
+        if (negative) {
+            i++;
+        }
+        int start = i;
+        long value = 0;
+        while (i < len && json[i] >= '0' && json[i] <= '9') {
+            if (value > (Long.MAX_VALUE - 9) / 10) {
+                return INVALID;
+            }
+            value = value * 10 + (json[i] - '0');
+            i++;
+        }
+        if (i == start || (i < len && (json[i] == 'e' || json[i] == 'E'))) {
+            return INVALID;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads a top-level boolean.
+     *
+     * @return 1 for true, 0 for false, -1 if the member is absent or -2 if it is not a boolean or the json is malformed.
+     */
+    static int readBoolean(byte[] json, int len, byte[] key) {
+        int i = find(json, len, key);
+        if (i < 0) {
+            return i;
+        }
+        if (regionEquals(json, i, Math.min(len, i + 4), TRUE)) {
+            return 1;
+        }
+        if (regionEquals(json, i, Math.min(len, i + 5), FALSE)) {
+            return 0;
+        }
+        return -2;
+    }
+
+    /**
+     * Checks whether a top-level member is a string with exactly the given ascii value.
+     */
+    static boolean stringEquals(byte[] json, int len, byte[] key, byte[] value) {
+        int i = find(json, len, key);
+        if (i < 0 || json[i] != '"') {
+            return false;
+        }
+        int end = skipString(json, i + 1, len);
+        return end >= 0 && regionEquals(json, i + 1, end, value);
+    }
+
+    /**
+     * Finds the content of a top-level string member, use {@link #stringEnd} to find where it ends.
+     *
+     * @return the index of the first byte after the opening quote, or a negative value if there is no such string.
+     */
+    static int findString(byte[] json, int len, byte[] key) {
+        int i = find(json, len, key);
+        if (i < 0 || json[i] != '"') {
+            return -1;
+        }
+        return i + 1;
+    }
+
+    /**
+     * @return the index of the closing quote of the string starting at {@code i}, or -1 if it is not terminated.
+     */
+    static int stringEnd(byte[] json, int i, int len) {
+        return skipString(json, i, len);
+    }
+
+    /**
+     * Checks whether a top-level member is present.
+     */
+    static boolean contains(byte[] json, int len, byte[] key) {
+        return find(json, len, key) != -1;
+    }
+
+    /**
+     * @return the index of the closing quote or -1 if the string is not terminated.
+     */
+    private static int skipString(byte[] json, int i, int len) {
+        while (i < len) {
+            byte b = json[i];
+            if (b == '\\') {
+                i += 2;
+            } else if (b == '"') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] json, int i, int len) {
+        while (i < len && (json[i] == ' ' || json[i] == '\t' || json[i] == '\n' || json[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean regionEquals(byte[] json, int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int j = 0; j < expected.length; j++) {
+            if (json[start + j] != expected[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,155 @@
+package io.supabase.jwt;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Byte level HS256 validation that avoids the String, Map and Claims allocations of a full parse.
+ * <p>
+ * The signature is computed over the raw ascii bytes of the token with a {@link Mac} reused per thread and compared
+ * in constant time. Only exp and nbf are read from the payload, before the signature is computed, so expired tokens
+ * are rejected without any cryptographic work (see {@link JwtPrecheck}).
+ * The key is routed by the header {@code kid} through the {@link KeyRing}, falling back to all keys in recency order.
+ */
+final class Hs256Verifier {
+    private static final int SIGNATURE_LENGTH = 32;
+    private static final byte[] ALG = "alg".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HS256 = "HS256".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KID = "kid".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ZIP = "zip".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CRIT = "crit".getBytes(StandardCharsets.US_ASCII);
+
+    private final KeyRing keyRing;
+    private final ThreadLocal<Scratch> scratch;
+
+    Hs256Verifier(KeyRing keyRing) {
+        this.keyRing = keyRing;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(keyRing.getKeys()));
+    }
+
+    /**
+     * Checks the signature, the algorithm and the exp and nbf claims of a token.
+     *
+     * @param jwt                    the raw token.
+     * @param nowMillis              the current time.
+     * @param allowedClockSkewMillis the tolerated clock skew.
+     * @return whether the token is valid.
+     */
+    boolean verify(String jwt, long nowMillis, long allowedClockSkewMillis) {
+        int payloadEnd = JwtPrecheck.payloadEnd(jwt);
+        if (payloadEnd < 0 || jwt.length() - payloadEnd - 1 != 43) {
+            // 32 signature bytes are always encoded as 43 characters
+            return false;
+        }
+        int headerEnd = jwt.indexOf('.');
+        Scratch s = scratch.get();
+
+        int payloadLength = s.decode(jwt, headerEnd + 1, payloadEnd);
+        if (payloadLength < 0
+                || JwtPrecheck.checkTimes(s.json, payloadLength, nowMillis, allowedClockSkewMillis) != JwtPrecheck.Result.PASSED) {
+            return false;
+        }
+
+        int headerLength = s.decode(jwt, 0, headerEnd);
+        if (headerLength < 0
+                || !ClaimScanner.stringEquals(s.json, headerLength, ALG, HS256)
+                || ClaimScanner.contains(s.json, headerLength, ZIP)
+                || ClaimScanner.contains(s.json, headerLength, CRIT)) {
+            return false;
+        }
+        if (Base64Url.decode(jwt, payloadEnd + 1, jwt.length(), s.actual) != SIGNATURE_LENGTH
+                || !s.toAscii(jwt, payloadEnd)) {
+            return false;
+        }
+
+        KeyRing.Key routed = null;
+        int kidStart = ClaimScanner.findString(s.json, headerLength, KID);
+        if (kidStart >= 0) {
+            int kidEnd = ClaimScanner.stringEnd(s.json, kidStart, headerLength);
+            routed = kidEnd >= 0 ? keyRing.get(s.json, kidStart, kidEnd) : null;
+        }
+        KeyRing.Key matched = null;
+        if (routed != null) {
+            matched = s.signatureMatches(routed.getIndex(), payloadEnd) ? routed : null;
+        } else {
+            List<KeyRing.Key> keys = keyRing.getKeys();
+            for (int i = 0; i < keys.size() && matched == null; i++) {
+                matched = s.signatureMatches(i, payloadEnd) ? keys.get(i) : null;
+            }
+        }
+        if (matched == null) {
+            return false;
+        }
+        matched.hit();
+        return true;
+    }
+
+    /**
+     * Per thread buffers and Macs, grown on demand and reused afterwards.
+     */
+    private static final class Scratch {
+        private final Mac[] macs;
+        private final byte[] expected = new byte[SIGNATURE_LENGTH];
+        private final byte[] actual = new byte[SIGNATURE_LENGTH];
+        private byte[] ascii = new byte[1024];
+        private byte[] json = new byte[1024];
+
+        private Scratch(List<KeyRing.Key> keys) {
+            macs = new Mac[keys.size()];
+            try {
+                for (int i = 0; i < macs.length; i++) {
+                    macs[i] = Mac.getInstance("HmacSHA256");
+                    macs[i].init(keys.get(i).getKey());
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available", e);
+            }
+        }
+
+        private int decode(String jwt, int from, int to) {
+            int length = Base64Url.decodedLength(to - from);
+            if (length < 0) {
+                return -1;
+            }
+            if (json.length < length) {
+                json = new byte[Math.max(length, json.length * 2)];
+            }
+            return Base64Url.decode(jwt, from, to, json);
+        }
+
+        /**
+         * Copies the header and payload, i.e. the first {@code length} characters of the token, into {@link #ascii}.
+         */
+        private boolean toAscii(String jwt, int length) {
+            if (ascii.length < length) {
+                ascii = new byte[Math.max(length, ascii.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = jwt.charAt(i);
+                if (c > 0x7f) {
+                    return false;
+                }
+                ascii[i] = (byte) c;
+            }
+            return true;
+        }
+
+        /**
+         * Signs the first {@code length} bytes of {@link #ascii} with the given key and compares it to {@link #actual}.
+         */
+        private boolean signatureMatches(int key, int length) {
+            Mac mac = macs[key];
+            mac.update(ascii, 0, length);
+            try {
+                mac.doFinal(expected, 0);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            }
+            return MessageDigest.isEqual(expected, actual);
+        }
+    }
+}
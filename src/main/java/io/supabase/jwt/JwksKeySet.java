@@ -0,0 +1,259 @@
+package io.supabase.jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.TimeoutPolicy;
+import io.supabase.http.TimeoutTransport;
+import io.supabase.utils.Helpers;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The public keys GoTrue signs asymmetric (RS256, ES256) tokens with, as published at {@code /.well-known/jwks.json}.
+ * <p>
+ * The keys are held in memory, so resolving a key never blocks. If a token references an unknown {@code kid},
+ * the verification fails and a refresh is started in the background, at most once per refresh interval.
+ */
+public final class JwksKeySet extends SigningKeyResolverAdapter {
+    /**
+     * Default minimal interval between two refreshes triggered by unknown key ids.
+     */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final String url;
+    private final Map<String, String> headers;
+    private final long refreshIntervalNanos;
+    private final Executor executor;
+    private final GoTrueTransport transport;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+    private volatile long lastRefresh;
+
+    /**
+     * Creates a key set that is fetched from the given jwks url with the default transport and timeouts.
+     *
+     * @param url             the url of the jwks document.
+     * @param headers         the headers that will be sent with the request.
+     * @param refreshInterval the minimal interval between two background refreshes.
+     * @param executor        the executor background refreshes run on.
+     */
+    public JwksKeySet(String url, Map<String, String> headers, Duration refreshInterval, Executor executor) {
+        this(url, headers, refreshInterval, executor, null);
+    }
+
+    /**
+     * Creates a key set that is fetched from the given jwks url.
+     *
+     * @param url             the url of the jwks document.
+     * @param headers         the headers that will be sent with the request.
+     * @param refreshInterval the minimal interval between two background refreshes.
+     * @param executor        the executor background refreshes run on.
+     * @param transport       the transport the jwks are fetched with, e.g. the pipeline of a client, or null for the
+     *                        default transport with the {@link TimeoutPolicy#DEFAULT} timeouts.
+     */
+    public JwksKeySet(String url, Map<String, String> headers, Duration refreshInterval, Executor executor, GoTrueTransport transport) {
+        this.url = url;
+        this.transport = transport != null ? transport : new TimeoutTransport(Helpers.getDefaultTransport(), TimeoutPolicy.DEFAULT);
+        this.headers = headers != null ? headers : new HashMap<>();
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.executor = executor;
+        this.lastRefresh = System.nanoTime() - refreshIntervalNanos;
+    }
+
+    /**
+     * Creates a key set for a GoTrue server, refreshed on virtual threads and fetched with the default transport.
+     *
+     * @param gotrueUrl the url of the GoTrue server.
+     * @param headers   the headers that will be sent with the request.
+     * @return the key set.
+     * @see #fromUrl(String, Map, GoTrueTransport)
+     */
+    public static JwksKeySet fromUrl(String gotrueUrl, Map<String, String> headers) {
+        return fromUrl(gotrueUrl, headers, null);
+    }
+
+    /**
+     * Creates a key set for a GoTrue server, refreshed on virtual threads.
+     * The keys are fetched once right away; if that fails they are fetched again on the first unknown key id.
+     *
+     * @param gotrueUrl the url of the GoTrue server.
+     * @param headers   the headers that will be sent with the request.
+     * @param transport the transport the jwks are fetched with, or null for the default one.
+     * @return the key set.
+     */
+    public static JwksKeySet fromUrl(String gotrueUrl, Map<String, String> headers, GoTrueTransport transport) {
+        JwksKeySet keySet = new JwksKeySet(String.format("%s/.well-known/jwks.json", gotrueUrl), headers,
+                DEFAULT_REFRESH_INTERVAL, Thread::startVirtualThread, transport);
+        try {
+            keySet.refresh();
+        } catch (GotrueException | IOException e) {
+            // the next unknown key id triggers another attempt
+        }
+        return keySet;
+    }
+
+    /**
+     * Creates a key set from a local jwks file. It is never refreshed.
+     *
+     * @param path the jwks file.
+     * @return the key set.
+     * @throws IOException if the file cannot be read or is not a valid jwks document.
+     */
+    public static JwksKeySet fromFile(Path path) throws IOException {
+        JwksKeySet keySet = new JwksKeySet(null, null, DEFAULT_REFRESH_INTERVAL, Runnable::run);
+        keySet.load(Files.readString(path));
+        return keySet;
+    }
+
+    /**
+     * Fetches the keys from the jwks url and replaces the current ones.
+     *
+     * @throws GotrueException if the request fails.
+     * @throws IOException     if the response is not a valid jwks document.
+     */
+    public void refresh() throws GotrueException, IOException {
+        if (url == null) {
+            return;
+        }
+        lastRefresh = System.nanoTime();
+        String jwks = Helpers.makeRequest(transport, HttpMethod.GET, url, null, headers).getContent();
+        if (jwks == null) {
+            throw new IOException("Empty jwks document");
+        }
+        load(jwks);
+    }
+
+    /**
+     * Replaces the current keys with the ones of a jwks document.
+     * Keys that are not RSA or P-256 EC signing keys are ignored.
+     *
+     * @param jwks the jwks document.
+     * @throws IOException if the document is not valid.
+     */
+    public void load(String jwks) throws IOException {
+        JsonNode root = mapper.readTree(jwks);
+        JsonNode array = root.get("keys");
+        if (array == null || !array.isArray()) {
+            throw new IOException("Missing keys in jwks document");
+        }
+        Map<String, PublicKey> loaded = new HashMap<>();
+        for (JsonNode jwk : array) {
+            if (jwk.hasNonNull("use") && !"sig".equals(jwk.get("use").asText())) {
+                continue;
+            }
+            try {
+                PublicKey key = toPublicKey(jwk);
+                if (key != null) {
+                    loaded.put(jwk.path("kid").asText(""), key);
+                }
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                throw new IOException(String.format("Invalid key >%s< in jwks document", jwk.path("kid").asText()), e);
+            }
+        }
+        keys = Collections.unmodifiableMap(loaded);
+    }
+
+    /**
+     * @return the currently known keys by key id.
+     */
+    public Map<String, PublicKey> getKeys() {
+        return keys;
+    }
+
+    // jjwt 0.9.1 declares the resolver with a raw header, a parameterized one would not override it
+    @SuppressWarnings("rawtypes")
+    @Override
+    public PublicKey resolveSigningKey(JwsHeader header, Claims claims) {
+        return resolve(header);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public PublicKey resolveSigningKey(JwsHeader header, String plaintext) {
+        return resolve(header);
+    }
+
+    private PublicKey resolve(JwsHeader<?> header) {
+        Map<String, PublicKey> current = keys;
+        String kid = header.getKeyId();
+        PublicKey key = kid != null ? current.get(kid) : current.size() == 1 ? current.values().iterator().next() : null;
+        if (key == null) {
+            refreshInBackground();
+            throw new SignatureException(String.format("Unknown jwt key id >%s<", kid));
+        }
+        return key;
+    }
+
+    private void refreshInBackground() {
+        if (url == null || System.nanoTime() - lastRefresh < refreshIntervalNanos) {
+            return;
+        }
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        lastRefresh = System.nanoTime();
+        executor.execute(() -> {
+            try {
+                refresh();
+            } catch (GotrueException | IOException e) {
+                // keep the current keys, the next unknown key id triggers another attempt
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    private static PublicKey toPublicKey(JsonNode jwk) throws GeneralSecurityException {
+        switch (jwk.path("kty").asText()) {
+            case "RSA":
+                return KeyFactory.getInstance("RSA").generatePublic(
+                        new RSAPublicKeySpec(toBigInteger(jwk, "n"), toBigInteger(jwk, "e")));
+            case "EC":
+                if (!"P-256".equals(jwk.path("crv").asText())) {
+                    return null;
+                }
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec("secp256r1"));
+                ECPoint point = new ECPoint(toBigInteger(jwk, "x"), toBigInteger(jwk, "y"));
+                return KeyFactory.getInstance("EC").generatePublic(
+                        new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+            default:
+                return null;
+        }
+    }
+
+    private static BigInteger toBigInteger(JsonNode jwk, String member) {
+        if (!jwk.hasNonNull(member)) {
+            throw new IllegalArgumentException(String.format("Missing >%s<", member));
+        }
+        return new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get(member).asText()));
+    }
+}
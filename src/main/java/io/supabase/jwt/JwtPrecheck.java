@@ -0,0 +1,81 @@
+package io.supabase.jwt;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cheap checks run before any cryptographic work, so stale or garbage tokens are rejected without paying for the
+ * signature verification: the token must consist of three non-empty base64url segments and the exp and nbf claims
+ * of its payload, read with the {@link ClaimScanner}, must be satisfied within the allowed clock skew.
+ * <p>
+ * Passing the pre-check says nothing about the authenticity of the token, the signature still has to be verified.
+ */
+final class JwtPrecheck {
+    private static final byte[] EXP = "exp".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NBF = "nbf".getBytes(StandardCharsets.US_ASCII);
+
+    enum Result {
+        PASSED,
+        MALFORMED,
+        EXPIRED,
+        PREMATURE
+    }
+
+    private JwtPrecheck() {
+    }
+
+    /**
+     * @return the index of the dot between payload and signature, or -1 if the token does not have three non-empty segments.
+     */
+    static int payloadEnd(String jwt) {
+        int headerEnd = jwt.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : jwt.indexOf('.', headerEnd + 1);
+        if (headerEnd <= 0 || payloadEnd <= headerEnd + 1 || payloadEnd == jwt.length() - 1
+                || jwt.indexOf('.', payloadEnd + 1) >= 0) {
+            return -1;
+        }
+        return payloadEnd;
+    }
+
+    /**
+     * Checks the structure of a token, the alphabet of all three segments and the exp and nbf claims of its payload.
+     *
+     * @param jwt                    the raw token.
+     * @param nowMillis              the current time.
+     * @param allowedClockSkewMillis the tolerated clock skew.
+     * @return the result of the check.
+     */
+    static Result check(String jwt, long nowMillis, long allowedClockSkewMillis) {
+        int payloadEnd = payloadEnd(jwt);
+        if (payloadEnd < 0) {
+            return Result.MALFORMED;
+        }
+        int payloadStart = jwt.indexOf('.') + 1;
+        // the parser indexes its decoding table by character, so header and signature are checked here as well
+        if (!Base64Url.isEncoded(jwt, 0, payloadStart - 1) || !Base64Url.isEncoded(jwt, payloadEnd + 1, jwt.length())) {
+            return Result.MALFORMED;
+        }
+        int payloadLength = TokenSupport.decodePayload(jwt, payloadStart, payloadEnd);
+        if (payloadLength < 0) {
+            return Result.MALFORMED;
+        }
+        return checkTimes(TokenSupport.payload(), payloadLength, nowMillis, allowedClockSkewMillis);
+    }
+
+    /**
+     * Checks the exp and nbf claims of a decoded payload.
+     */
+    static Result checkTimes(byte[] payload, int length, long nowMillis, long allowedClockSkewMillis) {
+        long exp = ClaimScanner.readLong(payload, length, EXP);
+        long nbf = ClaimScanner.readLong(payload, length, NBF);
+        if (exp == ClaimScanner.INVALID || nbf == ClaimScanner.INVALID) {
+            return Result.MALFORMED;
+        }
+        if (exp != ClaimScanner.ABSENT && nowMillis - allowedClockSkewMillis > exp * 1000) {
+            return Result.EXPIRED;
+        }
+        if (nbf != ClaimScanner.ABSENT && nowMillis + allowedClockSkewMillis < nbf * 1000) {
+            return Result.PREMATURE;
+        }
+        return Result.PASSED;
+    }
+}
@@ -0,0 +1,294 @@
+package io.supabase.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.supabase.data.jwt.ParsedToken;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Verifies and parses jwt tokens signed by GoTrue, either with HMAC secrets or with asymmetric keys.
+ * <p>
+ * A verifier is immutable and thread-safe: the signing keys and the underlying parsers are built once,
+ * so build it from the configuration and share it between calls.
+ * <p>
+ * Malformed, expired and not yet valid tokens are rejected by a cheap structural check of the raw token before any
+ * signature is computed, so a flood of stale tokens costs no cryptographic work.
+ */
+public final class JwtVerifier {
+    private static final Set<SignatureAlgorithm> ASYMMETRIC_ALGORITHMS = EnumSet.of(SignatureAlgorithm.RS256, SignatureAlgorithm.ES256);
+    private static final byte[] KID = "kid".getBytes(StandardCharsets.US_ASCII);
+
+    private final SignatureAlgorithm algorithm;
+    private final Set<SignatureAlgorithm> algorithms;
+    private final long allowedClockSkewSeconds;
+    private final KeyRing keyRing;
+    // one parser per key of the ring, or a single one resolving the keys of the key set
+    private final JwtParser[] parsers;
+    private final Hs256Verifier fastPath;
+
+    /**
+     * Creates a HS256 verifier without clock skew.
+     *
+     * @param secret the GoTrue jwt secret.
+     * @throws IllegalArgumentException if the secret is not specified.
+     */
+    public JwtVerifier(String secret) {
+        this(secret, SignatureAlgorithm.HS256, 0);
+    }
+
+    /**
+     * Creates a verifier for HMAC signed tokens.
+     *
+     * @param secret                  the GoTrue jwt secret.
+     * @param algorithm               the HMAC algorithm the tokens are signed with.
+     * @param allowedClockSkewSeconds seconds of clock skew tolerated when checking exp and nbf.
+     * @throws IllegalArgumentException if the secret is not specified, the algorithm is not HMAC based or the skew is negative.
+     */
+    public JwtVerifier(String secret, SignatureAlgorithm algorithm, long allowedClockSkewSeconds) {
+        this(new KeyRing(algorithm, secret), allowedClockSkewSeconds);
+    }
+
+    /**
+     * Creates a verifier for HMAC signed tokens that accepts the current and previous secrets of a key ring.
+     *
+     * @param keyRing                 the secrets tokens may be signed with.
+     * @param allowedClockSkewSeconds seconds of clock skew tolerated when checking exp and nbf.
+     * @throws IllegalArgumentException if the key ring is not specified or the skew is negative.
+     */
+    public JwtVerifier(KeyRing keyRing, long allowedClockSkewSeconds) {
+        if (keyRing == null) {
+            throw new IllegalArgumentException("The jwt key ring is required!");
+        }
+        if (allowedClockSkewSeconds < 0) {
+            throw new IllegalArgumentException("The allowed clock skew must not be negative!");
+        }
+        List<KeyRing.Key> keys = keyRing.getKeys();
+
+        this.algorithm = keyRing.getAlgorithm();
+        this.algorithms = EnumSet.of(algorithm);
+        this.allowedClockSkewSeconds = allowedClockSkewSeconds;
+        this.keyRing = keyRing;
+        // the parsers are only configured here and never mutated afterwards, so they are safe to share
+        this.parsers = new JwtParser[keys.size()];
+        for (int i = 0; i < parsers.length; i++) {
+            parsers[i] = Jwts.parser()
+                    .setSigningKey(keys.get(i).getKey())
+                    .setAllowedClockSkewSeconds(allowedClockSkewSeconds);
+        }
+        this.fastPath = algorithm == SignatureAlgorithm.HS256 ? new Hs256Verifier(keyRing) : null;
+    }
+
+    /**
+     * Creates a verifier for RS256 and ES256 signed tokens.
+     *
+     * @param keySet                  the public keys of the GoTrue server.
+     * @param allowedClockSkewSeconds seconds of clock skew tolerated when checking exp and nbf.
+     * @throws IllegalArgumentException if the key set is not specified or the skew is negative.
+     */
+    public JwtVerifier(JwksKeySet keySet, long allowedClockSkewSeconds) {
+        if (keySet == null) {
+            throw new IllegalArgumentException("The jwt key set is required!");
+        }
+        if (allowedClockSkewSeconds < 0) {
+            throw new IllegalArgumentException("The allowed clock skew must not be negative!");
+        }
+        this.algorithm = null;
+        this.algorithms = ASYMMETRIC_ALGORITHMS;
+        this.allowedClockSkewSeconds = allowedClockSkewSeconds;
+        this.keyRing = null;
+        this.parsers = new JwtParser[]{Jwts.parser()
+                .setSigningKeyResolver(keySet)
+                .setAllowedClockSkewSeconds(allowedClockSkewSeconds)};
+        this.fastPath = null;
+    }
+
+    /**
+     * @return the HMAC algorithm of this verifier, or null if it verifies asymmetric tokens.
+     */
+    public SignatureAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public long getAllowedClockSkewSeconds() {
+        return allowedClockSkewSeconds;
+    }
+
+    /**
+     * @return the HMAC secrets of this verifier, or null if it verifies asymmetric tokens.
+     */
+    public KeyRing getKeyRing() {
+        return keyRing;
+    }
+
+    /**
+     * Verifies and parses a jwt token.
+     *
+     * @param jwt token to be parsed.
+     * @return the parsed token.
+     * @throws io.jsonwebtoken.JwtException if the given token is expired, malformed, unsupported or wrongly signed
+     * @throws IllegalArgumentException     if the jwt token is not specified.
+     */
+    public ParsedToken parse(String jwt) {
+        return toParsedToken(verify(jwt).getBody());
+    }
+
+    /**
+     * Verifies a jwt token and returns its claims without parsing them upfront, see {@link LazyParsedToken}.
+     * HS256 tokens are verified on the raw bytes, so reading a few claims of them allocates little more than the payload.
+     *
+     * @param jwt token to be parsed.
+     * @return the verified token.
+     * @throws io.jsonwebtoken.JwtException if the given token is expired, malformed, unsupported or wrongly signed
+     * @throws IllegalArgumentException     if the jwt token is not specified.
+     */
+    public LazyParsedToken parseLazy(String jwt) {
+        if (fastPath == null || jwt == null || !fastPath.verify(jwt, System.currentTimeMillis(), allowedClockSkewSeconds * 1000)) {
+            // verify with the parser, which also reports why the fast path rejected the token
+            Jws<Claims> claims = verify(jwt);
+            if (claims.getHeader().getCompressionAlgorithm() != null) {
+                throw new UnsupportedJwtException("Compressed jwt payloads are not supported.");
+            }
+        }
+        int payloadStart = jwt.indexOf('.') + 1;
+        int payloadEnd = jwt.indexOf('.', payloadStart);
+        byte[] payload = new byte[Base64Url.decodedLength(payloadEnd - payloadStart)];
+        Base64Url.decode(jwt, payloadStart, payloadEnd, payload);
+        return new LazyParsedToken(payload);
+    }
+
+    /**
+     * Checks whether a jwt is valid.
+     * HS256 tokens are checked on the raw bytes without parsing the claims, so this is cheaper than {@link #parse}.
+     * Tokens the raw check rejects are parsed, so the result matches {@link #parse} as with {@link #parseLazy}.
+     *
+     * @param jwt token to be validated.
+     * @return whether the given token is valid.
+     */
+    public boolean validate(String jwt) {
+        if (jwt == null || jwt.isEmpty()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (fastPath != null && fastPath.verify(jwt, now, allowedClockSkewSeconds * 1000)) {
+            return true;
+        }
+        // verify with the parser, which accepts tokens the fast path does not read, e.g. an escaped header
+        if (JwtPrecheck.check(jwt, now, allowedClockSkewSeconds * 1000) != JwtPrecheck.Result.PASSED) {
+            return false;
+        }
+        try {
+            parse(jwt);
+
+            // no error -> valid
+            return true;
+        } catch (io.jsonwebtoken.JwtException | IllegalArgumentException e) {
+
+            return false;
+        }
+    }
+
+    private Jws<Claims> verify(String jwt) {
+        if (jwt != null && !jwt.isEmpty()) {
+            precheck(jwt);
+        }
+        Jws<Claims> claims = keyRing != null ? parseWithKeyRing(jwt) : parsers[0].parseClaimsJws(jwt);
+        if (!isAllowed(claims.getHeader().getAlgorithm())) {
+            throw new UnsupportedJwtException(String.format("Unexpected jwt algorithm >%s<", claims.getHeader().getAlgorithm()));
+        }
+        return claims;
+    }
+
+    /**
+     * Rejects malformed, expired and not yet valid tokens before the signature is verified, with the same exception
+     * types the parser would throw. Claims are not available at this point, so the exceptions carry none.
+     */
+    private void precheck(String jwt) {
+        switch (JwtPrecheck.check(jwt, System.currentTimeMillis(), allowedClockSkewSeconds * 1000)) {
+            case MALFORMED:
+                throw new MalformedJwtException("JWT strings must contain exactly 2 period characters and valid base64url encoded segments.");
+            case EXPIRED:
+                throw new ExpiredJwtException(null, null, "JWT expired.");
+            case PREMATURE:
+                throw new PrematureJwtException(null, null, "JWT must not be accepted before its nbf time.");
+            default:
+        }
+    }
+
+    /**
+     * Parses with the key named by the header kid, or else with every key in recency order until the signature matches.
+     */
+    private Jws<Claims> parseWithKeyRing(String jwt) {
+        KeyRing.Key routed = keyRing.get(kidOf(jwt));
+        if (routed != null) {
+            Jws<Claims> claims = parsers[routed.getIndex()].parseClaimsJws(jwt);
+            routed.hit();
+            return claims;
+        }
+        SignatureException last = null;
+        for (KeyRing.Key key : keyRing.getKeys()) {
+            try {
+                Jws<Claims> claims = parsers[key.getIndex()].parseClaimsJws(jwt);
+                key.hit();
+                return claims;
+            } catch (SignatureException e) {
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    private static String kidOf(String jwt) {
+        int headerEnd = jwt != null ? jwt.indexOf('.') : -1;
+        if (headerEnd <= 0) {
+            return null;
+        }
+        byte[] header;
+        try {
+            header = Base64.getUrlDecoder().decode(jwt.substring(0, headerEnd));
+        } catch (IllegalArgumentException e) {
+            // let the parser report the malformed token
+            return null;
+        }
+        int start = ClaimScanner.findString(header, header.length, KID);
+        int end = start >= 0 ? ClaimScanner.stringEnd(header, start, header.length) : -1;
+        return end >= 0 ? new String(header, start, end - start, StandardCharsets.UTF_8) : null;
+    }
+
+    private boolean isAllowed(String headerAlgorithm) {
+        for (SignatureAlgorithm allowed : algorithms) {
+            if (allowed.getValue().equals(headerAlgorithm)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ParsedToken toParsedToken(Claims body) {
+        ParsedToken parsed = new ParsedToken();
+        parsed.setExp(body.getExpiration());
+        parsed.setSub(body.getSubject());
+        parsed.setEmail((String) body.get("email"));
+        Map<String, String> appData = (Map<String, String>) body.get("app_metadata");
+        parsed.setAppMetadata(appData != null ? appData : new HashMap<>());
+        Map<String, String> userData = (Map<String, String>) body.get("user_metadata");
+        parsed.setUserMetadata(userData != null ? userData : new HashMap<>());
+        parsed.setRole((String) body.get("role"));
+        return parsed;
+    }
+}
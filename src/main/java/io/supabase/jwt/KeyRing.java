@@ -0,0 +1,200 @@
+package io.supabase.jwt;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The current and previous HMAC secrets tokens may be signed with, so the GoTrue jwt secret can be rotated without
+ * invalidating the tokens that were signed with the old one.
+ * <p>
+ * Secrets are kept in recency order, the current one first. A token whose header {@code kid} names a secret is
+ * verified with that secret only; tokens without or with an unknown {@code kid} are tried against all secrets in
+ * recency order. Every secret counts the tokens it verified, so it is visible when an old secret can be retired.
+ */
+public final class KeyRing {
+
+    /**
+     * A secret of the key ring, optionally tagged with a key id.
+     *
+     * @param kid    the key id tokens signed with this secret carry in their header, or null.
+     * @param secret the secret.
+     */
+    public record Secret(String kid, String secret) {
+        public Secret {
+            if (secret == null || secret.isEmpty()) {
+                throw new IllegalArgumentException("The jwt secret is required!");
+            }
+        }
+
+        @Override
+        public String toString() {
+            // never leak the secret itself
+            return String.format("Secret[kid=%s]", kid);
+        }
+    }
+
+    /**
+     * A key of the ring together with its usage counter.
+     */
+    public static final class Key {
+        private final int index;
+        private final String kid;
+        private final byte[] kidBytes;
+        private final SecretKeySpec key;
+        private final LongAdder hits = new LongAdder();
+
+        private Key(int index, String kid, SecretKeySpec key) {
+            this.index = index;
+            this.kid = kid;
+            this.kidBytes = kid != null ? kid.getBytes(StandardCharsets.UTF_8) : null;
+            this.key = key;
+        }
+
+        public String getKid() {
+            return kid;
+        }
+
+        /**
+         * @return the number of tokens verified with this key.
+         */
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        SecretKeySpec getKey() {
+            return key;
+        }
+
+        void hit() {
+            hits.increment();
+        }
+    }
+
+    private final SignatureAlgorithm algorithm;
+    private final List<Key> keys;
+    private final Map<String, Key> byKid;
+    // open addressing table over the ascii kid bytes, so the fast path can route without allocating a String
+    private final Key[] table;
+
+    /**
+     * Creates a key ring from untagged secrets.
+     *
+     * @param algorithm the HMAC algorithm the tokens are signed with.
+     * @param current   the current secret.
+     * @param previous  previous secrets, most recent first.
+     */
+    public KeyRing(SignatureAlgorithm algorithm, String current, String... previous) {
+        this(algorithm, toSecrets(current, previous));
+    }
+
+    /**
+     * Creates a key ring.
+     *
+     * @param algorithm the HMAC algorithm the tokens are signed with.
+     * @param secrets   the secrets, the current one first and then the previous ones in recency order.
+     * @throws IllegalArgumentException if no secrets are given, a key id is used twice or the algorithm is not HMAC based.
+     */
+    public KeyRing(SignatureAlgorithm algorithm, List<Secret> secrets) {
+        if (algorithm == null || !algorithm.isHmac()) {
+            throw new IllegalArgumentException(String.format("Unsupported jwt algorithm >%s<", algorithm));
+        }
+        if (secrets == null || secrets.isEmpty()) {
+            throw new IllegalArgumentException("The jwt secret is required!");
+        }
+        List<Key> keyList = new ArrayList<>(secrets.size());
+        Map<String, Key> kidMap = new HashMap<>();
+        Key[] kidTable = new Key[Integer.highestOneBit(secrets.size() * 2 + 1) << 1];
+        for (Secret secret : secrets) {
+            Key key = new Key(keyList.size(), secret.kid(), new SecretKeySpec(secret.secret().getBytes(StandardCharsets.UTF_8), algorithm.getJcaName()));
+            keyList.add(key);
+            if (secret.kid() != null) {
+                if (kidMap.put(secret.kid(), key) != null) {
+                    throw new IllegalArgumentException(String.format("Duplicate jwt key id >%s<", secret.kid()));
+                }
+                int i = hash(key.kidBytes, 0, key.kidBytes.length) & (kidTable.length - 1);
+                while (kidTable[i] != null) {
+                    i = (i + 1) & (kidTable.length - 1);
+                }
+                kidTable[i] = key;
+            }
+        }
+        this.algorithm = algorithm;
+        this.keys = Collections.unmodifiableList(keyList);
+        this.byKid = Collections.unmodifiableMap(kidMap);
+        this.table = kidTable;
+    }
+
+    public SignatureAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return the keys in recency order, the current one first.
+     */
+    public List<Key> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the key with the given key id, or null if there is none.
+     */
+    public Key get(String kid) {
+        return kid != null ? byKid.get(kid) : null;
+    }
+
+    /**
+     * Looks up a key by the ascii bytes of its key id.
+     *
+     * @return the key, or null if there is none.
+     */
+    Key get(byte[] bytes, int from, int to) {
+        int i = hash(bytes, from, to) & (table.length - 1);
+        for (Key key = table[i]; key != null; key = table[i = (i + 1) & (table.length - 1)]) {
+            if (equals(key.kidBytes, bytes, from, to)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(byte[] kid, byte[] bytes, int from, int to) {
+        if (kid.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < kid.length; i++) {
+            if (kid[i] != bytes[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Secret> toSecrets(String current, String... previous) {
+        List<Secret> secrets = new ArrayList<>();
+        secrets.add(new Secret(null, current));
+        for (String secret : previous) {
+            secrets.add(new Secret(null, secret));
+        }
+        return secrets;
+    }
+}
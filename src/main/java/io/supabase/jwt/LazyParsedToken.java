@@ -0,0 +1,229 @@
+package io.supabase.jwt;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A verified token that keeps the decoded payload and reads claims only when they are accessed.
+ * <p>
+ * Simple claims like the subject or the role are read straight from the payload bytes on first access and remembered,
+ * so callers that only need a few of them never build the full claims map. Structured claims like the metadata are
+ * materialized with Jackson once, keeping their nested and non-string values instead of forcing them into strings.
+ * <p>
+ * Instances are thread-safe and are created by {@link JwtVerifier#parseLazy}.
+ */
+public final class LazyParsedToken {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+    private static final TypeReference<List<AuthenticationMethod>> AMR_TYPE = new TypeReference<List<AuthenticationMethod>>() {
+    };
+    // remembered value of an absent or null claim, unread claims are null
+    private static final Object ABSENT = new Object();
+
+    private static final int SUB = 0;
+    private static final int EMAIL = 1;
+    private static final int ROLE = 2;
+    private static final int AAL = 3;
+    private static final int SESSION_ID = 4;
+    private static final int EXP = 5;
+    private static final int IS_ANONYMOUS = 6;
+    private static final String[] NAMES = {"sub", "email", "role", "aal", "session_id", "exp", "is_anonymous"};
+    private static final byte[][] KEYS = new byte[NAMES.length][];
+
+    static {
+        for (int i = 0; i < NAMES.length; i++) {
+            KEYS[i] = NAMES[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * An entry of the {@code amr} claim.
+     *
+     * @param method    the authentication method, e.g. password or otp.
+     * @param timestamp the time of the authentication in seconds since the epoch.
+     */
+    public record AuthenticationMethod(@JsonProperty("method") String method,
+                                       @JsonProperty("timestamp") long timestamp) {
+    }
+
+    private final byte[] payload;
+    // only immutable values are stored, so the racy initialization is safe: at worst a claim is read twice
+    private final Object[] values = new Object[NAMES.length];
+    private volatile Map<String, Object> claims;
+    private volatile List<AuthenticationMethod> amr;
+
+    LazyParsedToken(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public String getSub() {
+        return readString(SUB);
+    }
+
+    public String getEmail() {
+        return readString(EMAIL);
+    }
+
+    public String getRole() {
+        return readString(ROLE);
+    }
+
+    /**
+     * @return the authenticator assurance level of the session, e.g. aal1 or aal2.
+     */
+    public String getAal() {
+        return readString(AAL);
+    }
+
+    public String getSessionId() {
+        return readString(SESSION_ID);
+    }
+
+    /**
+     * @return the expiration time, or null if the token does not expire.
+     */
+    public Date getExp() {
+        Object value = values[EXP];
+        if (value == null) {
+            long exp = ClaimScanner.readLong(payload, payload.length, KEYS[EXP]);
+            if (exp == ClaimScanner.ABSENT) {
+                value = ABSENT;
+            } else if (exp == ClaimScanner.INVALID) {
+                Object claim = getClaims().get(NAMES[EXP]);
+                value = claim instanceof Number ? (Object) ((Number) claim).longValue() : ABSENT;
+            } else {
+                value = exp;
+            }
+            values[EXP] = value;
+        }
+        return value != ABSENT ? new Date((Long) value * 1000) : null;
+    }
+
+    /**
+     * @return whether the token belongs to an anonymous user, false if the claim is absent.
+     */
+    public boolean isAnonymous() {
+        Object value = values[IS_ANONYMOUS];
+        if (value == null) {
+            int anonymous = ClaimScanner.readBoolean(payload, payload.length, KEYS[IS_ANONYMOUS]);
+            value = anonymous >= -1 ? anonymous == 1 : Boolean.TRUE.equals(getClaims().get(NAMES[IS_ANONYMOUS]));
+            values[IS_ANONYMOUS] = value;
+        }
+        return (Boolean) value;
+    }
+
+    /**
+     * @return the authentication methods used for the session, empty if the claim is absent.
+     */
+    public List<AuthenticationMethod> getAmr() {
+        List<AuthenticationMethod> methods = amr;
+        if (methods == null) {
+            Object claim = getClaims().get("amr");
+            methods = claim != null ? Collections.unmodifiableList(MAPPER.convertValue(claim, AMR_TYPE)) : Collections.emptyList();
+            amr = methods;
+        }
+        return methods;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getAppMetadata() {
+        Object metadata = getClaims().get("app_metadata");
+        return metadata instanceof Map ? (Map<String, Object>) metadata : Collections.emptyMap();
+    }
+
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getUserMetadata() {
+        Object metadata = getClaims().get("user_metadata");
+        return metadata instanceof Map ? (Map<String, Object>) metadata : Collections.emptyMap();
+    }
+
+    /**
+     * @return the value of the given claim, or null if it is absent.
+     */
+    public Object getClaim(String name) {
+        return getClaims().get(name);
+    }
+
+    /**
+     * Materializes all claims. Once called, the map is kept for the lifetime of the token.
+     *
+     * @return the unmodifiable claims of the token.
+     */
+    public Map<String, Object> getClaims() {
+        Map<String, Object> map = claims;
+        if (map == null) {
+            try {
+                map = Collections.unmodifiableMap(MAPPER.readValue(payload, CLAIMS_TYPE));
+            } catch (IOException e) {
+                // the payload was verified to be a json object before this token was created
+                throw new UncheckedIOException(e);
+            }
+            claims = map;
+        }
+        return map;
+    }
+
+    /**
+     * Projects the claims onto a user-defined type, e.g. a record whose components are annotated with
+     * {@link JsonProperty} where the names differ from the claim names. Claims without a counterpart are ignored.
+     *
+     * @param type the class to project onto.
+     * @return a new instance of the given type.
+     * @throws IllegalArgumentException if the claims do not fit the given type.
+     */
+    public <T> T as(Class<T> type) {
+        try {
+            return MAPPER.readValue(payload, type);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(String.format("The claims can't be projected onto >%s<", type.getName()), e);
+        }
+    }
+
+    /**
+     * Reads a string claim from the payload bytes, falling back to the claims map for escaped strings or other types.
+     */
+    private String readString(int claim) {
+        Object value = values[claim];
+        if (value == null) {
+            value = scanString(claim);
+            values[claim] = value;
+        }
+        return value != ABSENT ? (String) value : null;
+    }
+
+    private Object scanString(int claim) {
+        int i = ClaimScanner.find(payload, payload.length, KEYS[claim]);
+        if (i == -1) {
+            return ABSENT;
+        }
+        if (i >= 0 && payload[i] == '"') {
+            int end = ClaimScanner.stringEnd(payload, i + 1, payload.length);
+            if (end >= 0 && !hasEscape(i + 1, end)) {
+                return new String(payload, i + 1, end - i - 1, StandardCharsets.UTF_8);
+            }
+        }
+        Object value = getClaims().get(NAMES[claim]);
+        return value != null ? value.toString() : ABSENT;
+    }
+
+    private boolean hasEscape(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (payload[i] == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
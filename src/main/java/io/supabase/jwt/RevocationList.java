@@ -0,0 +1,234 @@
+package io.supabase.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A local deny-list of signed out sessions, so tokens that were revoked on the server are rejected without asking it.
+ * <p>
+ * Tokens are revoked by their {@code session_id} and {@code jti} claims until they expire. Lookups first consult a
+ * bloom filter over the raw claim bytes, so checking a token that was not revoked neither allocates nor touches the
+ * exact set behind it. Expired entries are dropped and the filter is rebuilt periodically while tokens are revoked.
+ * Tokens without either claim can't be revoked locally.
+ */
+public final class RevocationList {
+    private static final byte[] SESSION_ID = "session_id".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JTI = "jti".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXP = "exp".getBytes(StandardCharsets.US_ASCII);
+    private static final int HASHES = 7;
+    private static final long PURGE_INTERVAL_MILLIS = 60_000;
+
+    private final int expectedSize;
+    // revoked ids and the time they can be forgotten
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile AtomicLongArray filter;
+    private int filterEntries;
+    private long nextPurge;
+
+    /**
+     * Creates a revocation list sized for 10000 concurrently revoked sessions.
+     */
+    public RevocationList() {
+        this(10_000);
+    }
+
+    /**
+     * Creates a revocation list.
+     * More revoked sessions than expected are supported, the filter is grown once it fills up.
+     *
+     * @param expectedSize the expected number of concurrently revoked sessions.
+     * @throws IllegalArgumentException if the expected size is not positive.
+     */
+    public RevocationList(int expectedSize) {
+        if (expectedSize <= 0) {
+            throw new IllegalArgumentException("The expected size must be positive!");
+        }
+        this.expectedSize = expectedSize;
+        this.filter = newFilter(expectedSize);
+        this.nextPurge = System.currentTimeMillis() + PURGE_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Revokes a token by its session id and jwt id until it expires. The token is not verified.
+     *
+     * @param jwt                     the raw token.
+     * @param allowedClockSkewSeconds the clock skew tolerated by the verifier, the token is kept revoked that much longer.
+     * @return whether the token carries a session id or jwt id and was revoked.
+     */
+    public boolean revoke(String jwt, long allowedClockSkewSeconds) {
+        int length = TokenSupport.decodePayload(jwt);
+        if (length < 0) {
+            return false;
+        }
+        byte[] payload = TokenSupport.payload();
+        long exp = ClaimScanner.readLong(payload, length, EXP);
+        long expiresAt = exp == ClaimScanner.ABSENT || exp == ClaimScanner.INVALID
+                ? Long.MAX_VALUE
+                : exp * 1000 + allowedClockSkewSeconds * 1000;
+        boolean found = false;
+        for (byte[] claim : new byte[][]{SESSION_ID, JTI}) {
+            int start = ClaimScanner.findString(payload, length, claim);
+            int end = start >= 0 ? ClaimScanner.stringEnd(payload, start, length) : -1;
+            if (end >= 0) {
+                add(new String(payload, start, end - start, StandardCharsets.UTF_8), expiresAt);
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Revokes a session id or jwt id.
+     *
+     * @param id        the session id or jwt id.
+     * @param expiresAt the time in milliseconds since the epoch after which the tokens of the id are expired anyway.
+     * @throws IllegalArgumentException if the id is not specified.
+     */
+    public void revokeId(String id, long expiresAt) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("The parameter >id< is required!");
+        }
+        add(id, expiresAt);
+    }
+
+    /**
+     * Checks whether the session id or the jwt id of a token was revoked.
+     *
+     * @param jwt the raw token.
+     * @return whether the token was revoked.
+     */
+    public boolean isRevoked(String jwt) {
+        if (revoked.isEmpty()) {
+            return false;
+        }
+        int length = TokenSupport.decodePayload(jwt);
+        if (length < 0) {
+            return false;
+        }
+        byte[] payload = TokenSupport.payload();
+        return isRevoked(payload, length, SESSION_ID) || isRevoked(payload, length, JTI);
+    }
+
+    /**
+     * @return whether the given session id or jwt id was revoked.
+     */
+    public boolean isRevokedId(String id) {
+        Long expiresAt = id != null ? revoked.get(id) : null;
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * @return the number of revoked ids, including expired ones that were not purged yet.
+     */
+    public int size() {
+        return revoked.size();
+    }
+
+    public void clear() {
+        writeLock.lock();
+        try {
+            revoked.clear();
+            filter = newFilter(expectedSize);
+            filterEntries = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean isRevoked(byte[] payload, int length, byte[] claim) {
+        int start = ClaimScanner.findString(payload, length, claim);
+        int end = start >= 0 ? ClaimScanner.stringEnd(payload, start, length) : -1;
+        if (end < 0 || !mightContain(filter, payload, start, end)) {
+            return false;
+        }
+        return isRevokedId(new String(payload, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    private void add(String id, long expiresAt) {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        writeLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (now >= nextPurge || filterEntries >= capacity(filter)) {
+                rebuild(now);
+            }
+            revoked.merge(id, expiresAt, Math::max);
+            put(filter, bytes, 0, bytes.length);
+            filterEntries++;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drops expired ids and rebuilds the filter from the remaining ones, grown if they would fill it up.
+     * Callers must hold the write lock.
+     */
+    private void rebuild(long now) {
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        int size = expectedSize;
+        while (size < revoked.size() * 2) {
+            size *= 2;
+        }
+        AtomicLongArray rebuilt = newFilter(size);
+        for (String id : revoked.keySet()) {
+            byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            put(rebuilt, bytes, 0, bytes.length);
+        }
+        filter = rebuilt;
+        filterEntries = revoked.size();
+        nextPurge = now + PURGE_INTERVAL_MILLIS;
+    }
+
+    private static AtomicLongArray newFilter(int expectedSize) {
+        // about 10 bits per entry with 7 hashes keeps false positives around 1%
+        return new AtomicLongArray(Math.max(1, (expectedSize * 10 + 63) / 64));
+    }
+
+    private static int capacity(AtomicLongArray filter) {
+        return filter.length() * 64 / 10;
+    }
+
+    private static void put(AtomicLongArray filter, byte[] bytes, int from, int to) {
+        long hash = hash(bytes, from, to);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bits = filter.length() * 64L;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            filter.getAndUpdate(word, w -> w | mask);
+        }
+    }
+
+    private static boolean mightContain(AtomicLongArray filter, byte[] bytes, int from, int to) {
+        long hash = hash(bytes, from, to);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bits = filter.length() * 64L;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            if ((filter.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64 bit FNV-1a, the halves serve as the two base hashes of the filter.
+     */
+    private static long hash(byte[] bytes, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= bytes[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h ^ (h >>> 29);
+    }
+}
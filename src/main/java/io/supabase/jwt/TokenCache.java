@@ -0,0 +1,115 @@
+package io.supabase.jwt;
+
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.jwt.TokenSupport.Digest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded, concurrent cache of verified tokens.
+ * <p>
+ * Entries are keyed by the SHA-256 digest of the raw jwt, so the tokens themselves are not retained,
+ * and are evicted once the token expires or when the cache grows beyond its maximum size.
+ * The cached {@link ParsedToken} instances are shared between callers and must not be modified.
+ */
+public final class TokenCache {
+    private final int maximumSize;
+    private final Map<Digest, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding up to the given number of tokens.
+     *
+     * @param maximumSize the maximum number of cached tokens.
+     * @throws IllegalArgumentException if the maximum size is not positive.
+     */
+    public TokenCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive!");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Gets a previously verified token.
+     *
+     * @param jwt the raw token.
+     * @return the parsed token, or null if the token is not cached or expired.
+     */
+    public ParsedToken get(String jwt) {
+        Digest key = TokenSupport.digest(jwt);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.token;
+    }
+
+    /**
+     * Caches a verified token until it expires.
+     * Tokens without an expiration are not cached.
+     *
+     * @param jwt                     the raw token.
+     * @param token                   the verified token.
+     * @param allowedClockSkewSeconds the clock skew tolerated by the verifier.
+     */
+    public void put(String jwt, ParsedToken token, long allowedClockSkewSeconds) {
+        if (token.getExp() == null) {
+            return;
+        }
+        long expiresAt = token.getExp().getTime() + allowedClockSkewSeconds * 1000;
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        if (entries.size() >= maximumSize) {
+            long now = System.currentTimeMillis();
+            TokenSupport.sweep(entries, maximumSize, evictionLock, evictions, e -> e.expiresAt <= now);
+        }
+        entries.put(TokenSupport.digest(jwt), new Entry(token, expiresAt));
+    }
+
+    /**
+     * Removes all cached tokens.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private record Entry(ParsedToken token, long expiresAt) {
+    }
+}
@@ -0,0 +1,112 @@
+package io.supabase.jwt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Shared plumbing of the precheck, the token caches and the revocation list: decoding payloads into a buffer of the
+ * calling thread, digesting raw tokens and sweeping bounded maps.
+ */
+final class TokenSupport {
+    private static final ThreadLocal<byte[][]> PAYLOAD = ThreadLocal.withInitial(() -> new byte[][]{new byte[1024]});
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private TokenSupport() {
+    }
+
+    /**
+     * Decodes the payload of a token into the buffer of the calling thread, see {@link #payload()}.
+     *
+     * @return the length of the payload, or -1 if the token is malformed.
+     */
+    static int decodePayload(String jwt) {
+        int payloadEnd = jwt != null ? JwtPrecheck.payloadEnd(jwt) : -1;
+        if (payloadEnd < 0) {
+            return -1;
+        }
+        return decodePayload(jwt, jwt.indexOf('.') + 1, payloadEnd);
+    }
+
+    /**
+     * Decodes {@code jwt[payloadStart, payloadEnd)} into the buffer of the calling thread, see {@link #payload()}.
+     *
+     * @return the length of the payload, or -1 if it is not valid base64url.
+     */
+    static int decodePayload(String jwt, int payloadStart, int payloadEnd) {
+        int length = Base64Url.decodedLength(payloadEnd - payloadStart);
+        if (length < 0) {
+            return -1;
+        }
+        byte[][] holder = PAYLOAD.get();
+        if (holder[0].length < length) {
+            holder[0] = new byte[Math.max(length, holder[0].length * 2)];
+        }
+        return Base64Url.decode(jwt, payloadStart, payloadEnd, holder[0]);
+    }
+
+    /**
+     * @return the buffer the last payload of the calling thread was decoded into, valid until its next decode.
+     */
+    static byte[] payload() {
+        return PAYLOAD.get()[0];
+    }
+
+    /**
+     * @return the SHA-256 digest of a raw token, so caches can match tokens without retaining them.
+     */
+    static Digest digest(String jwt) {
+        MessageDigest md = SHA_256.get();
+        ByteBuffer hash = ByteBuffer.wrap(md.digest(jwt.getBytes(StandardCharsets.UTF_8)));
+        return new Digest(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+    }
+
+    /**
+     * Drops the expired entries of a bounded map and, if it is still full, a tenth of the remaining ones.
+     * Only one thread sweeps at a time, concurrent writers may overshoot the bound slightly meanwhile.
+     *
+     * @param entries     the entries of the cache.
+     * @param maximumSize the bound of the cache.
+     * @param lock        the lock of the sweep, per cache.
+     * @param evictions   counts the dropped entries.
+     * @param expired     whether an entry expired.
+     */
+    static <K, V> void sweep(Map<K, V> entries, int maximumSize, ReentrantLock lock, LongAdder evictions, Predicate<V> expired) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            entries.values().removeIf(value -> {
+                boolean drop = expired.test(value);
+                if (drop) {
+                    evictions.increment();
+                }
+                return drop;
+            });
+            int target = maximumSize - Math.max(1, maximumSize / 10);
+            Iterator<K> it = entries.keySet().iterator();
+            while (entries.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    record Digest(long h0, long h1, long h2, long h3) {
+    }
+}
@@ -0,0 +1,176 @@
+package io.supabase.jwt;
+
+import io.supabase.jwt.TokenSupport.Digest;
+import io.supabase.schemas.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded, concurrent cache of the users behind access tokens, so looking up the user of a token does not need a
+ * request for every call.
+ * <p>
+ * Entries are keyed by the subject and the {@code session_id} of the token, so a session holds one entry however
+ * often it is refreshed. An entry only answers the token it was cached for, the token itself is not retained but
+ * compared by its SHA-256 digest. The claims are read without verifying the token, a forged token with the claims of a
+ * cached session still misses. Entries are evicted once the token expires, when the cache grows beyond its maximum
+ * size, or when the session or the user is invalidated.
+ * <p>
+ * A user is as fresh as the token it was cached for: a lookup racing an update of the user may cache the user as it
+ * was before the update until that token expires. The cached {@link User} instances are shared between callers and
+ * must not be modified.
+ */
+public final class UserCache {
+    private static final byte[] SUB = "sub".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SESSION_ID = "session_id".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXP = "exp".getBytes(StandardCharsets.US_ASCII);
+
+    private final int maximumSize;
+    private final Map<SessionKey, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache holding the users of up to the given number of sessions.
+     *
+     * @param maximumSize the maximum number of cached sessions.
+     * @throws IllegalArgumentException if the maximum size is not positive.
+     */
+    public UserCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive!");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Gets the user previously cached for a token.
+     *
+     * @param jwt the raw access token.
+     * @return the user, or null if none is cached for the token or the token expired.
+     */
+    public User get(String jwt) {
+        Claims claims = claims(jwt);
+        Entry entry = claims != null ? entries.get(claims.key()) : null;
+        if (entry == null || !entry.token().equals(TokenSupport.digest(jwt))) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            if (entries.remove(claims.key(), entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.user();
+    }
+
+    /**
+     * Caches the user of a token until the token expires, replacing the user cached for another token of the session.
+     * Tokens without a subject or an expiration are not cached.
+     *
+     * @param jwt  the raw access token.
+     * @param user the user of the token.
+     */
+    public void put(String jwt, User user) {
+        Claims claims = claims(jwt);
+        if (claims == null || user == null || claims.expiresAt() <= System.currentTimeMillis()) {
+            return;
+        }
+        if (entries.size() >= maximumSize) {
+            long now = System.currentTimeMillis();
+            TokenSupport.sweep(entries, maximumSize, evictionLock, evictions, e -> e.expiresAt() <= now);
+        }
+        entries.put(claims.key(), new Entry(user, TokenSupport.digest(jwt), claims.expiresAt()));
+    }
+
+    /**
+     * Drops the user cached for the session of a token, e.g. once the session was signed out.
+     *
+     * @param jwt the raw access token.
+     */
+    public void invalidate(String jwt) {
+        Claims claims = claims(jwt);
+        if (claims != null) {
+            entries.remove(claims.key());
+        }
+    }
+
+    /**
+     * Drops the user cached for all sessions of a user, e.g. once the user was updated.
+     *
+     * @param userId the id of the user, the subject of its tokens.
+     */
+    public void invalidateUser(String userId) {
+        if (userId != null) {
+            entries.keySet().removeIf(key -> key.subject().equals(userId));
+        }
+    }
+
+    /**
+     * Removes all cached users.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the session and expiration of the token, or null if it is malformed or has no subject or expiration.
+     */
+    private static Claims claims(String jwt) {
+        int length = TokenSupport.decodePayload(jwt);
+        if (length < 0) {
+            return null;
+        }
+        byte[] payload = TokenSupport.payload();
+        String subject = readString(payload, length, SUB);
+        long exp = ClaimScanner.readLong(payload, length, EXP);
+        if (subject == null || exp == ClaimScanner.ABSENT || exp == ClaimScanner.INVALID) {
+            return null;
+        }
+        return new Claims(new SessionKey(subject, readString(payload, length, SESSION_ID)), exp * 1000);
+    }
+
+    private static String readString(byte[] payload, int length, byte[] key) {
+        int start = ClaimScanner.findString(payload, length, key);
+        int end = start >= 0 ? ClaimScanner.stringEnd(payload, start, length) : -1;
+        return end >= 0 ? new String(payload, start, end - start, StandardCharsets.UTF_8) : null;
+    }
+
+    // the session id is null for tokens without one, their subject then shares one entry
+    private record SessionKey(String subject, String sessionId) {
+    }
+
+    private record Claims(SessionKey key, long expiresAt) {
+    }
+
+    private record Entry(User user, Digest token, long expiresAt) {
+    }
+}
@@ -1,21 +1,25 @@
 package io.supabase.utils;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
-import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.supabase.data.jwt.ParsedToken;
 import io.supabase.exceptions.JwtSecretNotFoundException;
 import io.supabase.exceptions.MalformedHeadersException;
 import io.supabase.exceptions.UrlNotFoundException;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.jwt.JwksKeySet;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.KeyRing;
 
-import javax.crypto.spec.SecretKeySpec;
-import java.security.Key;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ClientUtils {
 
+    private static volatile SharedVerifier sharedVerifier;
+
     private ClientUtils() {
     }
 
@@ -63,6 +67,20 @@ public class ClientUtils {
         return res;
     }
 
+    /**
+     * Gets whether the default transport should run on virtual threads, see
+     * {@link io.supabase.http.HttpClientTransport#ofVirtualThreads()}.
+     *
+     * @return true if virtual threads are enabled either from the environment or from the properties.
+     */
+    public static boolean loadVirtualThreads() {
+        String virtualThreads = System.getenv("GOTRUE_VIRTUAL_THREADS");
+        if (virtualThreads == null) {
+            virtualThreads = System.getProperty("gotrue.virtual.threads");
+        }
+        return Boolean.parseBoolean(virtualThreads != null ? virtualThreads.trim() : null);
+    }
+
     private static boolean headersValid(String headers) {
         String regex = "^"; // beginning of line
         regex += "(?:"; // start of non-capturing group
@@ -75,15 +93,6 @@ public class ClientUtils {
         return headers.matches(regex);
     }
 
-    private static Jws<Claims> parseJwt(String jwt, String secret) {
-        Key hmacKey = new SecretKeySpec(secret.getBytes(),
-                SignatureAlgorithm.HS256.getJcaName());
-
-        return Jwts.parser()
-                .setSigningKey(hmacKey)
-                .parseClaimsJws(jwt);
-    }
-
     private static String getJwtSecret() {
         String secret = System.getenv("GOTRUE_JWT_SECRET");
         if (secret == null) {
@@ -92,22 +101,155 @@ public class ClientUtils {
         return secret;
     }
 
-    @SuppressWarnings("unchecked")
+    private static SignatureAlgorithm getJwtAlgorithm() {
+        String algorithm = System.getenv("GOTRUE_JWT_ALGORITHM");
+        if (algorithm == null) {
+            algorithm = System.getProperty("gotrue.jwt.algorithm");
+        }
+        return algorithm != null ? SignatureAlgorithm.forName(algorithm) : SignatureAlgorithm.HS256;
+    }
+
+    private static long getJwtClockSkew() {
+        String name = "GOTRUE_JWT_CLOCK_SKEW";
+        String skew = System.getenv(name);
+        if (skew == null) {
+            name = "gotrue.jwt.clock.skew";
+            skew = System.getProperty(name);
+        }
+        if (skew == null) {
+            return 0;
+        }
+        long seconds;
+        try {
+            seconds = Long.parseLong(skew.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("The %s >%s< must be a number of seconds!", name, skew), e);
+        }
+        if (seconds < 0) {
+            throw new IllegalArgumentException(String.format("The %s >%s< must not be negative!", name, skew));
+        }
+        return seconds;
+    }
+
+    private static String[] getJwtPreviousSecrets() {
+        String secrets = System.getenv("GOTRUE_JWT_PREVIOUS_SECRETS");
+        if (secrets == null) {
+            secrets = System.getProperty("gotrue.jwt.previous.secrets");
+        }
+        return secrets == null || secrets.trim().isEmpty() ? new String[0] : secrets.trim().split("\\s*,\\s*");
+    }
+
+    private static String getJwksFile() {
+        String file = System.getenv("GOTRUE_JWKS_FILE");
+        if (file == null) {
+            file = System.getProperty("gotrue.jwks.file");
+        }
+        return file;
+    }
+
+    /**
+     * Builds a jwt verifier from the environment or the properties.
+     * The verifier is immutable, so it should be built once and reused.
+     *
+     * @return a verifier for the specified secret, algorithm and clock skew.
+     * @throws JwtSecretNotFoundException if the jwt secret (or for asymmetric algorithms the GoTrue url or jwks file) is not specified
+     */
+    public static JwtVerifier loadJwtVerifier() throws JwtSecretNotFoundException {
+        String url;
+        try {
+            url = getJwtAlgorithm().isHmac() ? null : loadUrl();
+        } catch (UrlNotFoundException e) {
+            url = null;
+        }
+        return loadJwtVerifier(url, null);
+    }
+
+    /**
+     * Builds a jwt verifier from the environment or the properties.
+     * For asymmetric algorithms the keys are read from the jwks file if specified, otherwise they are fetched
+     * from the given GoTrue server.
+     *
+     * @param url     the url of the GoTrue server.
+     * @param headers the headers that will be sent when fetching the keys.
+     * @return a verifier for the specified secret or keys, algorithm and clock skew.
+     * @throws JwtSecretNotFoundException if neither the jwt secret nor the keys can be found.
+     * @throws IllegalArgumentException   if the clock skew is not a number of seconds or negative.
+     */
+    public static JwtVerifier loadJwtVerifier(String url, Map<String, String> headers) throws JwtSecretNotFoundException {
+        return loadJwtVerifier(url, headers, null);
+    }
+
+    /**
+     * Builds a jwt verifier from the environment or the properties, fetching the keys of asymmetric algorithms
+     * with the given transport.
+     *
+     * @param url       the url of the GoTrue server.
+     * @param headers   the headers that will be sent when fetching the keys.
+     * @param transport the transport the keys are fetched with, e.g. the pipeline of a client, or null for the default one.
+     * @return a verifier for the specified secret or keys, algorithm and clock skew.
+     * @throws JwtSecretNotFoundException if neither the jwt secret nor the keys can be found.
+     * @throws IllegalArgumentException   if the clock skew is not a number of seconds or negative.
+     */
+    public static JwtVerifier loadJwtVerifier(String url, Map<String, String> headers, GoTrueTransport transport) throws JwtSecretNotFoundException {
+        SignatureAlgorithm algorithm = getJwtAlgorithm();
+        if (algorithm.isHmac()) {
+            String secret = getJwtSecret();
+            if (secret == null) {
+                throw new JwtSecretNotFoundException();
+            }
+            return new JwtVerifier(new KeyRing(algorithm, secret, getJwtPreviousSecrets()), getJwtClockSkew());
+        }
+
+        String file = getJwksFile();
+        if (file != null) {
+            try {
+                return new JwtVerifier(JwksKeySet.fromFile(Path.of(file)), getJwtClockSkew());
+            } catch (IOException e) {
+                throw new JwtSecretNotFoundException(String.format("JWKS file >%s< could not be loaded.", file));
+            }
+        }
+        if (url == null) {
+            throw new JwtSecretNotFoundException("JWKS source is not defined.");
+        }
+        return new JwtVerifier(JwksKeySet.fromUrl(url, headers, transport), getJwtClockSkew());
+    }
+
+    /**
+     * Parses a jwt token with a verifier loaded from the current configuration.
+     * The verifier is reused while the configuration stays the same, so the jwks of asymmetric algorithms are only
+     * fetched again once it changes. Prefer a shared {@link JwtVerifier} on hot paths, this method still reads the
+     * configuration on every call.
+     *
+     * @param jwt token to be parsed.
+     * @return the parsed token.
+     * @throws JwtSecretNotFoundException if the jwt secret is not specified
+     */
     public static ParsedToken parseJwt(String jwt) throws JwtSecretNotFoundException {
-        String secret = getJwtSecret();
-        if (secret == null) {
-            throw new JwtSecretNotFoundException();
-        }
-        Jws<Claims> claims = parseJwt(jwt, secret);
-        ParsedToken parsed = new ParsedToken();
-        parsed.setExp(claims.getBody().getExpiration());
-        parsed.setSub(claims.getBody().getSubject());
-        parsed.setEmail((String) claims.getBody().get("email"));
-        Map<String, String> appData = (Map<String, String>) claims.getBody().get("app_metadata");
-        parsed.setAppMetadata(appData != null ? appData : new HashMap<>());
-        Map<String, String> userData = (Map<String, String>) claims.getBody().get("user_metadata");
-        parsed.setUserMetadata(userData != null ? userData : new HashMap<>());
-        parsed.setRole((String) claims.getBody().get("role"));
-        return parsed;
+        VerifierConfig config = loadVerifierConfig();
+        SharedVerifier shared = sharedVerifier;
+        if (shared == null || !shared.config().equals(config)) {
+            shared = new SharedVerifier(config, loadJwtVerifier());
+            sharedVerifier = shared;
+        }
+        return shared.verifier().parse(jwt);
+    }
+
+    private static VerifierConfig loadVerifierConfig() {
+        SignatureAlgorithm algorithm = getJwtAlgorithm();
+        String url;
+        try {
+            url = algorithm.isHmac() ? null : loadUrl();
+        } catch (UrlNotFoundException e) {
+            url = null;
+        }
+        return new VerifierConfig(algorithm, getJwtSecret(), List.of(getJwtPreviousSecrets()), getJwtClockSkew(), getJwksFile(), url);
+    }
+
+    // everything loadJwtVerifier() reads, a verifier is reused while all of it is unchanged
+    private record VerifierConfig(SignatureAlgorithm algorithm, String secret, List<String> previousSecrets,
+                                  long clockSkew, String jwksFile, String url) {
+    }
+
+    private record SharedVerifier(VerifierConfig config, JwtVerifier verifier) {
     }
 }
@@ -1,114 +1,432 @@
 package io.supabase.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.supabase.exceptions.ApiException;
 import io.supabase.exceptions.FailureHint;
 import io.supabase.exceptions.GotrueException;
+import io.supabase.http.CircuitOpenException;
+import io.supabase.http.ConcurrencyLimitedTransport;
+import io.supabase.http.Deadline;
+import io.supabase.http.RateLimitedException;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.http.ResponseHandler;
+import io.supabase.http.TransportRequest;
 import io.supabase.responses.BaseResponse;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class Helpers {
-    private static final ObjectMapper mapper = new ObjectMapper();
+    /**
+     * The number of Jackson buffers kept for reuse, callers beyond it allocate their own.
+     */
+    public static final int BUFFER_POOL_SIZE = 128;
+    // a bounded pool instead of Jackson's thread local default, which is never reused with a thread per request
+    private static final ObjectMapper mapper = new ObjectMapper(JsonFactory.builder()
+            .recyclerPool(JsonRecyclerPools.newBoundedPool(BUFFER_POOL_SIZE))
+            .build());
     private static final RestTemplate rest = new RestTemplate();
+    private static final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private static final GoTrueTransport defaultTransport = new ConcurrencyLimitedTransport(ClientUtils.loadVirtualThreads()
+            ? HttpClientTransport.ofVirtualThreads()
+            : new HttpClientTransport(), HttpClientTransport.DEFAULT_MAX_CONCURRENT_REQUESTS);
 
 
     private Helpers() {
     }
 
+    /**
+     * @return the transport shared by all clients that were not given one, on virtual threads if enabled by
+     * {@link ClientUtils#loadVirtualThreads()}, with at most {@value HttpClientTransport#DEFAULT_MAX_CONCURRENT_REQUESTS}
+     * requests in flight.
+     */
+    public static GoTrueTransport getDefaultTransport() {
+        return defaultTransport;
+    }
+
     public static <T> T makeRequest(HttpMethod method, String url, Object data, Map<String, String> headers, Class<T> responseType) throws GotrueException {
+        return makeRequest(defaultTransport, method, url, data, headers, responseType);
+    }
+
+    public static BaseResponse makeRequest(HttpMethod method, String url, Object data, Map<String, String> headers) throws GotrueException {
+        return makeRequest(defaultTransport, method, url, data, headers);
+    }
+
+    /**
+     * Sends a json request to the GoTrue server and maps the json response.
+     *
+     * @param transport    the transport to send the request with.
+     * @param method       the HTTP method.
+     * @param url          the url the request will be sent to.
+     * @param data         the body of the request, will be parsed to json, or null.
+     * @param headers      the headers that will be sent with the request.
+     * @param responseType the class of the response.
+     * @param <T>          the type of the response.
+     * @return the response parsed from json to T, or null if the response has no body.
+     * @throws GotrueException if the request failed or the server responded with an error.
+     */
+    public static <T> T makeRequest(GoTrueTransport transport, HttpMethod method, String url, Object data, Map<String, String> headers, Class<T> responseType) throws GotrueException {
+        return makeRequest(transport, method, toUri(url), data, headers, responseType);
+    }
+
+    /**
+     * Sends a json request to a pre-resolved endpoint of the GoTrue server and maps the json response.
+     * Headers already containing the json Accept and, if there is a body, Content-Type are sent without being copied.
+     *
+     * @param transport    the transport to send the request with.
+     * @param method       the HTTP method.
+     * @param uri          the uri the request will be sent to.
+     * @param data         the body of the request, will be parsed to json, or null.
+     * @param headers      the headers that will be sent with the request.
+     * @param responseType the class of the response.
+     * @param <T>          the type of the response.
+     * @return the response parsed from json to T, or null if the response has no body.
+     * @throws GotrueException if the request failed or the server responded with an error.
+     */
+    public static <T> T makeRequest(GoTrueTransport transport, HttpMethod method, URI uri, Object data, Map<String, String> headers, Class<T> responseType) throws GotrueException {
+        return makeRequest(transport, method, uri, data, headers, valueHandler(responseType));
+    }
+
+    /**
+     * Sends a json request to a pre-resolved endpoint of the GoTrue server and hands the response to a handler, e.g.
+     * one reading response headers besides the body.
+     *
+     * @param transport the transport to send the request with.
+     * @param method    the HTTP method.
+     * @param uri       the uri the request will be sent to.
+     * @param data      the body of the request, will be parsed to json, or null.
+     * @param headers   the headers that will be sent with the request.
+     * @param handler   the handler consuming the response, whatever its status code.
+     * @param <T>       the type of the response.
+     * @return the result of the handler.
+     * @throws GotrueException if the request failed or the handler failed, see {@link #valueHandler(Class)}.
+     */
+    public static <T> T makeRequest(GoTrueTransport transport, HttpMethod method, URI uri, Object data, Map<String, String> headers, ResponseHandler<T> handler) throws GotrueException {
         try {
-            HttpHeaders httpHeaders = new HttpHeaders();
-            headers.forEach(httpHeaders::add);
-            HttpEntity<String> entity = new HttpEntity<>(data != null ? mapper.writeValueAsString(data) : null, httpHeaders);
-            ResponseEntity<String> responseEntity = rest.exchange(url, method, entity, String.class);
-
-            // Verify if the request was successful
-            if (!responseEntity.getStatusCode().is2xxSuccessful()) {
-                GotrueException e = new GotrueException(responseEntity.getBody() != null ? responseEntity.getBody() : "Request Failed");
-                e.setContent(responseEntity.getBody());
-                e.setStatusCode(responseEntity.getStatusCode().value());
-                e.setResponse(responseEntity);
-                e.addReason();
-
-                throw e;
-            }
+            return transport.exchange(toRequest(method, uri, data, headers), handler);
+        } catch (Exception e) {
+            throw toGotrueException(e);
+        }
+    }
 
-            return responseEntity.getBody() != null ? mapper.readValue(responseEntity.getBody(), responseType) : null;
+    /**
+     * Sends a json request to the GoTrue server.
+     *
+     * @param transport the transport to send the request with.
+     * @param method    the HTTP method.
+     * @param url       the url the request will be sent to.
+     * @param data      the body of the request, will be parsed to json, or null.
+     * @param headers   the headers that will be sent with the request.
+     * @return the raw response.
+     * @throws GotrueException if the request failed or the server responded with an error.
+     */
+    public static BaseResponse makeRequest(GoTrueTransport transport, HttpMethod method, String url, Object data, Map<String, String> headers) throws GotrueException {
+        return makeRequest(transport, method, toUri(url), data, headers);
+    }
 
-        } catch (HttpClientErrorException e) { // 4xx
-            GotrueException gotrueException = new GotrueException("Request Failed" + e.getMessage());
-            gotrueException.setContent(e.getResponseBodyAsString());
-            gotrueException.setStatusCode(e.getStatusCode().value());
-            gotrueException.setResponse(new ResponseEntity<>(e.getResponseBodyAsString(), e.getResponseHeaders(), e.getStatusCode()));
-            gotrueException.addReason();
-            throw gotrueException;
-        } catch (HttpServerErrorException e) { // 5xx
-            GotrueException gotrueException = new GotrueException("Server error: " + e.getMessage(), FailureHint.Reason.Offline, e);
-            gotrueException.setStatusCode(e.getStatusCode().value());
-            throw gotrueException;
-        } catch (JsonProcessingException e) {
-            System.out.println("Excepción 2:  \n" + e.getMessage());
-            throw new GotrueException("Error processing JSON", FailureHint.Reason.Unknown, e);
+    /**
+     * Sends a json request to a pre-resolved endpoint of the GoTrue server.
+     * Headers already containing the json Accept and, if there is a body, Content-Type are sent without being copied.
+     *
+     * @param transport the transport to send the request with.
+     * @param method    the HTTP method.
+     * @param uri       the uri the request will be sent to.
+     * @param data      the body of the request, will be parsed to json, or null.
+     * @param headers   the headers that will be sent with the request.
+     * @return the raw response.
+     * @throws GotrueException if the request failed or the server responded with an error.
+     */
+    public static BaseResponse makeRequest(GoTrueTransport transport, HttpMethod method, URI uri, Object data, Map<String, String> headers) throws GotrueException {
+        try {
+            return transport.exchange(toRequest(method, uri, data, headers), Helpers::toBaseResponse);
         } catch (Exception e) {
-            System.out.println("Excepción 3:  \n" + e.getMessage());
-            throw new GotrueException("Request Failed", FailureHint.Reason.Unknown, e);
+            throw toGotrueException(e);
         }
     }
 
-    public static BaseResponse makeRequest(HttpMethod method, String url, Object data, Map<String, String> headers) throws GotrueException {
+    /**
+     * Sends a json request to the GoTrue server without blocking and maps the json response.
+     * Cancelling the returned future aborts the request if the transport supports it.
+     *
+     * @param transport    the transport to send the request with.
+     * @param method       the HTTP method.
+     * @param url          the url the request will be sent to.
+     * @param data         the body of the request, will be parsed to json, or null.
+     * @param headers      the headers that will be sent with the request.
+     * @param responseType the class of the response.
+     * @param <T>          the type of the response.
+     * @return a future of the response parsed from json to T, or null if the response has no body. It completes
+     * exceptionally with a {@link GotrueException} if the request failed or the server responded with an error.
+     */
+    public static <T> CompletableFuture<T> makeRequestAsync(GoTrueTransport transport, HttpMethod method, String url, Object data, Map<String, String> headers, Class<T> responseType) {
+        try {
+            return makeRequestAsync(transport, method, toUri(url), data, headers, responseType);
+        } catch (GotrueException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Sends a json request to a pre-resolved endpoint of the GoTrue server without blocking and maps the json
+     * response, see {@link #makeRequestAsync(GoTrueTransport, HttpMethod, String, Object, Map, Class)}.
+     *
+     * @param transport    the transport to send the request with.
+     * @param method       the HTTP method.
+     * @param uri          the uri the request will be sent to.
+     * @param data         the body of the request, will be parsed to json, or null.
+     * @param headers      the headers that will be sent with the request.
+     * @param responseType the class of the response.
+     * @param <T>          the type of the response.
+     * @return a future of the response parsed from json to T, or null if the response has no body.
+     */
+    public static <T> CompletableFuture<T> makeRequestAsync(GoTrueTransport transport, HttpMethod method, URI uri, Object data, Map<String, String> headers, Class<T> responseType) {
+        return exchangeAsync(transport, method, uri, data, headers, valueHandler(responseType));
+    }
+
+    /**
+     * Sends a json request to a pre-resolved endpoint of the GoTrue server without blocking and hands the response to
+     * a handler, see {@link #makeRequest(GoTrueTransport, HttpMethod, URI, Object, Map, ResponseHandler)}.
+     *
+     * @param transport the transport to send the request with.
+     * @param method    the HTTP method.
+     * @param uri       the uri the request will be sent to.
+     * @param data      the body of the request, will be parsed to json, or null.
+     * @param headers   the headers that will be sent with the request.
+     * @param handler   the handler consuming the response, whatever its status code.
+     * @param <T>       the type of the response.
+     * @return a future of the result of the handler.
+     */
+    public static <T> CompletableFuture<T> makeRequestAsync(GoTrueTransport transport, HttpMethod method, URI uri, Object data, Map<String, String> headers, ResponseHandler<T> handler) {
+        return exchangeAsync(transport, method, uri, data, headers, handler);
+    }
+
+    /**
+     * Sends a json request to the GoTrue server without blocking.
+     * Cancelling the returned future aborts the request if the transport supports it.
+     *
+     * @param transport the transport to send the request with.
+     * @param method    the HTTP method.
+     * @param url       the url the request will be sent to.
+     * @param data      the body of the request, will be parsed to json, or null.
+     * @param headers   the headers that will be sent with the request.
+     * @return a future of the raw response. It completes exceptionally with a {@link GotrueException} if the request
+     * failed or the server responded with an error.
+     */
+    public static CompletableFuture<BaseResponse> makeRequestAsync(GoTrueTransport transport, HttpMethod method, String url, Object data, Map<String, String> headers) {
+        try {
+            return makeRequestAsync(transport, method, toUri(url), data, headers);
+        } catch (GotrueException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Sends a json request to a pre-resolved endpoint of the GoTrue server without blocking, see
+     * {@link #makeRequestAsync(GoTrueTransport, HttpMethod, String, Object, Map)}.
+     *
+     * @param transport the transport to send the request with.
+     * @param method    the HTTP method.
+     * @param uri       the uri the request will be sent to.
+     * @param data      the body of the request, will be parsed to json, or null.
+     * @param headers   the headers that will be sent with the request.
+     * @return a future of the raw response.
+     */
+    public static CompletableFuture<BaseResponse> makeRequestAsync(GoTrueTransport transport, HttpMethod method, URI uri, Object data, Map<String, String> headers) {
+        return exchangeAsync(transport, method, uri, data, headers, Helpers::toBaseResponse);
+    }
+
+    private static <T> CompletableFuture<T> exchangeAsync(GoTrueTransport transport, HttpMethod method, URI uri, Object data, Map<String, String> headers, ResponseHandler<T> handler) {
+        CompletableFuture<T> sent;
         try {
-            // Create and configure the HTTP headers
-            HttpHeaders httpHeaders = new HttpHeaders();
-            headers.forEach(httpHeaders::add);
-
-            // Create the HTTP entity with the body data and headers
-            HttpEntity<String> entity = new HttpEntity<>(data != null ? mapper.writeValueAsString(data) : null, httpHeaders);
-
-            // Send the request using RestTemplate
-            ResponseEntity<String> responseEntity = rest.exchange(url, method, entity, String.class);
-
-            // Verify if the request was successful
-            if (!responseEntity.getStatusCode().is2xxSuccessful()) {
-                GotrueException e = new GotrueException(responseEntity.getBody() != null ? responseEntity.getBody() : "Request Failed");
-                e.setContent(responseEntity.getBody());
-                e.setStatusCode(responseEntity.getStatusCode().value());
-                e.setResponse(responseEntity);
-                e.addReason();
-                
-                throw e;
+            sent = transport.exchangeAsync(toRequest(method, uri, data, headers), handler);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(toGotrueException(e));
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        sent.whenComplete((value, error) -> {
+            if (result.isDone()) {
+                return; // cancelled
+            }
+            try {
+                if (error != null) {
+                    throw error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                }
+                result.complete(value);
+            } catch (Throwable e) {
+                result.completeExceptionally(e instanceof Exception ? toGotrueException((Exception) e) : e);
+            }
+        });
+        // the transport future is not a dependent of the result, so a cancellation has to be forwarded explicitly
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                sent.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reads the value from a successful response straight from the stream, with the reader bound to the type once.
+     * Only error responses are buffered, as their body becomes the content of the exception.
+     *
+     * @param responseType the class of the response.
+     * @param <T>          the type of the response.
+     * @return a handler returning the response parsed from json to T, or null if the response has no body, and
+     * failing with the response as {@link GotrueException} once sent if it is not successful.
+     */
+    public static <T> ResponseHandler<T> valueHandler(Class<T> responseType) {
+        ObjectReader reader = readers.computeIfAbsent(responseType, mapper::readerFor);
+        return (statusCode, headers, body) -> {
+            if (!HttpStatusCode.valueOf(statusCode).is2xxSuccessful()) {
+                throw new UnsuccessfulResponseException(toResponseEntity(statusCode, headers, body));
+            }
+            try (JsonParser parser = reader.createParser(body)) {
+                return parser.nextToken() != null ? reader.readValue(parser) : null;
             }
+        };
+    }
 
-            // Return the response encapsulated in a BaseResponse object
-            return new BaseResponse(responseEntity.getBody(), responseEntity);
+    private static BaseResponse toBaseResponse(int statusCode, Map<String, List<String>> headers, InputStream body) throws IOException {
+        ResponseEntity<String> responseEntity = toResponseEntity(statusCode, headers, body);
+        if (!responseEntity.getStatusCode().is2xxSuccessful()) {
+            throw new UnsuccessfulResponseException(responseEntity);
+        }
+        // Return the response encapsulated in a BaseResponse object
+        return new BaseResponse(responseEntity.getBody(), responseEntity);
+    }
 
-        } catch (HttpClientErrorException e) { // 4xx
-            GotrueException gotrueException = new GotrueException("Request Failed" + e.getMessage());
-            gotrueException.setContent(e.getResponseBodyAsString());
-            gotrueException.setStatusCode(e.getStatusCode().value());
-            gotrueException.setResponse(new ResponseEntity<>(e.getResponseBodyAsString(), e.getResponseHeaders(), e.getStatusCode()));
+    /**
+     * Carries a response that is neither successful nor an error out of a {@link ResponseHandler}.
+     */
+    private static final class UnsuccessfulResponseException extends RuntimeException {
+        private final transient ResponseEntity<String> responseEntity;
+
+        UnsuccessfulResponseException(ResponseEntity<String> responseEntity) {
+            super(null, null, false, false);
+            this.responseEntity = responseEntity;
+        }
+    }
+
+    private static GotrueException toGotrueException(Exception e) {
+        if (e instanceof GotrueException) {
+            return (GotrueException) e;
+        } else if (e instanceof UnsuccessfulResponseException) {
+            ResponseEntity<String> responseEntity = ((UnsuccessfulResponseException) e).responseEntity;
+            GotrueException gotrueException = new GotrueException(responseEntity.getBody() != null ? responseEntity.getBody() : "Request Failed");
+            gotrueException.setContent(responseEntity.getBody());
+            gotrueException.setStatusCode(responseEntity.getStatusCode().value());
+            gotrueException.setResponse(responseEntity);
             gotrueException.addReason();
-            throw gotrueException;
-        } catch (HttpServerErrorException e) { // 5xx
-            GotrueException gotrueException = new GotrueException("Server error: " + e.getMessage(), FailureHint.Reason.Offline, e);
-            gotrueException.setStatusCode(e.getStatusCode().value());
-            throw gotrueException;
-        } catch (JsonProcessingException e) {
+            return gotrueException;
+        } else if (e instanceof HttpClientErrorException) { // 4xx
+            HttpClientErrorException clientError = (HttpClientErrorException) e;
+            GotrueException gotrueException = new GotrueException("Request Failed" + clientError.getMessage());
+            gotrueException.setContent(clientError.getResponseBodyAsString());
+            gotrueException.setStatusCode(clientError.getStatusCode().value());
+            gotrueException.setResponse(new ResponseEntity<>(clientError.getResponseBodyAsString(), clientError.getResponseHeaders(), clientError.getStatusCode()));
+            gotrueException.addReason();
+            return gotrueException;
+        } else if (e instanceof HttpServerErrorException) { // 5xx
+            HttpServerErrorException serverError = (HttpServerErrorException) e;
+            GotrueException gotrueException = new GotrueException("Server error: " + serverError.getMessage(), FailureHint.Reason.Offline, serverError);
+            gotrueException.setStatusCode(serverError.getStatusCode().value());
+            return gotrueException;
+        } else if (e instanceof CircuitOpenException) {
+            return new GotrueException(e.getMessage(), FailureHint.Reason.Offline, e);
+        } else if (e instanceof RateLimitedException) {
+            return new GotrueException(e.getMessage(), FailureHint.Reason.UserTooManyRequests, e);
+        } else if (e instanceof HttpTimeoutException || e instanceof SocketTimeoutException) {
+            return new GotrueException("Request timed out: " + e.getMessage(), FailureHint.Reason.Offline, e);
+        } else if (e instanceof JsonProcessingException) {
             System.out.println("Excepción 2:  \n" + e.getMessage());
-            throw new GotrueException("Error processing JSON", FailureHint.Reason.Unknown, e);
-        } catch (Exception e) {
-            System.out.println("Excepción 3:  \n" + e.getMessage());
-            throw new GotrueException("Request Failed", FailureHint.Reason.Unknown, e);
+            return new GotrueException("Error processing JSON", FailureHint.Reason.Unknown, e);
         }
+        System.out.println("Excepción 3:  \n" + e.getMessage());
+        return new GotrueException("Request Failed", FailureHint.Reason.Unknown, e);
+    }
+
+    /**
+     * Encodes a request body as UTF-8 json, with the writer bound to its type once. The json is written into pooled
+     * buffers, so the only allocation left is the returned array.
+     *
+     * @param data the body of the request.
+     * @return the json bytes.
+     * @throws JsonProcessingException if the body cannot be serialized.
+     */
+    public static byte[] toJsonBytes(Object data) throws JsonProcessingException {
+        return writers.computeIfAbsent(data.getClass(), mapper::writerFor).writeValueAsBytes(data);
     }
 
+    private static URI toUri(String url) throws GotrueException {
+        try {
+            return URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw toGotrueException(e);
+        }
+    }
+
+    private static TransportRequest toRequest(HttpMethod method, URI uri, Object data, Map<String, String> headers) throws JsonProcessingException {
+        Map<String, String> requestHeaders = headers != null ? headers : Map.of();
+        // only copied if the headers are not a complete template already
+        if (!requestHeaders.containsKey(HttpHeaders.ACCEPT) || (data != null && !requestHeaders.containsKey(HttpHeaders.CONTENT_TYPE))) {
+            requestHeaders = new HashMap<>(requestHeaders);
+            requestHeaders.putIfAbsent(HttpHeaders.ACCEPT, "application/json");
+            if (data != null) {
+                requestHeaders.putIfAbsent(HttpHeaders.CONTENT_TYPE, "application/json");
+            }
+        }
+        // captured on the calling thread, so requests sent without blocking keep the deadline of their caller
+        return new TransportRequest(method.name(), uri, requestHeaders, data != null ? toJsonBytes(data) : null, null, Deadline.current());
+    }
+
+    /**
+     * Buffers a response of the transport. Error statuses are raised as the {@link RestClientResponseException}s
+     * a {@link RestTemplate} would throw, so the callers map them the same way whatever the transport.
+     */
+    private static ResponseEntity<String> toResponseEntity(int statusCode, Map<String, List<String>> headers, InputStream body) throws IOException {
+        byte[] content = body.readAllBytes();
+        String text = content.length > 0 ? new String(content, StandardCharsets.UTF_8) : null;
+        HttpHeaders responseHeaders = new HttpHeaders();
+        headers.forEach(responseHeaders::addAll);
+        HttpStatusCode status = HttpStatusCode.valueOf(statusCode);
+        if (status.is4xxClientError() || status.is5xxServerError()) {
+            HttpStatus known = HttpStatus.resolve(status.value());
+            String statusText = known != null ? known.getReasonPhrase() : "";
+            String message = String.format("%d %s: %s", status.value(), statusText,
+                    text != null ? "\"" + text + "\"" : "[no body]");
+            if (status.is4xxClientError()) {
+                throw HttpClientErrorException.create(message, status, statusText, responseHeaders, content, StandardCharsets.UTF_8);
+            }
+            throw HttpServerErrorException.create(message, status, statusText, responseHeaders, content, StandardCharsets.UTF_8);
+        }
+        return new ResponseEntity<>(text, responseHeaders, status);
+    }
 
     // -----------------------------------------------------------------------------------
 
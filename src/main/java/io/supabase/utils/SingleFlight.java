@@ -0,0 +1,198 @@
+package io.supabase.utils;
+
+import io.supabase.exceptions.FailureHint;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.Deadline;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls, so callers asking for a key that is already being loaded wait for that load
+ * and share its result, or its error, instead of loading it again.
+ * <p>
+ * Only calls in flight are shared, a call made after the previous one completed loads again. Blocking and
+ * non-blocking callers of the same key share one load. Callers waiting for the load of another caller still respect
+ * their own {@link Deadline}. Cancelling the future of a non-blocking caller only gives up its own wait, the load is
+ * aborted once all its callers gave up.
+ *
+ * @param <K> the type of the keys identifying identical calls.
+ * @param <V> the type of the results, shared by all callers of a load.
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Loads a value, blocking the calling thread.
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws GotrueException;
+    }
+
+    /**
+     * @return the number of callers that shared the load of another caller.
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return the number of loads in flight.
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    /**
+     * Loads the value of a key on the calling thread, or waits for the load in flight.
+     *
+     * @param key    the key identifying identical calls.
+     * @param loader the call loading the value.
+     * @return the value loaded by this or another caller.
+     * @throws GotrueException if the load failed, or the deadline of this caller passed while waiting.
+     */
+    public V call(K key, Loader<V> loader) throws GotrueException {
+        Flight<V> flight = new Flight<>();
+        Flight<V> shared = join(key, flight);
+        if (shared != null) {
+            return await(shared);
+        }
+        V value;
+        try {
+            value = loader.load();
+        } catch (GotrueException | RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, flight);
+        flight.result.complete(value);
+        return value;
+    }
+
+    /**
+     * Starts loading the value of a key, or joins the load in flight.
+     *
+     * @param key    the key identifying identical calls.
+     * @param loader starts the load, cancelling its future aborts it.
+     * @return a future of the value, own to the caller.
+     */
+    public CompletableFuture<V> callAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> shared = join(key, flight);
+        if (shared != null) {
+            return shared.caller();
+        }
+        CompletableFuture<V> source;
+        try {
+            source = loader.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flight.source = source;
+        CompletableFuture<V> caller = flight.caller();
+        source.whenComplete((value, error) -> {
+            flights.remove(key, flight);
+            if (error == null) {
+                flight.result.complete(value);
+            } else {
+                flight.result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+        return caller;
+    }
+
+    /**
+     * @return the flight in progress the caller joined, or null if the given flight was registered and the caller
+     * has to load the value.
+     */
+    private Flight<V> join(K key, Flight<V> flight) {
+        while (true) {
+            Flight<V> current = flights.putIfAbsent(key, flight);
+            if (current == null) {
+                return null;
+            }
+            if (current.join()) {
+                coalesced.increment();
+                return current;
+            }
+            // all callers of the flight gave up, it is being aborted
+            flights.remove(key, current);
+        }
+    }
+
+    private V await(Flight<V> flight) throws GotrueException {
+        try {
+            Deadline deadline = Deadline.current();
+            return deadline == null ? flight.result.get() : flight.result.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GotrueException) {
+                throw (GotrueException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GotrueException(cause.getMessage(), FailureHint.Reason.Unknown, cause);
+        } catch (TimeoutException e) {
+            throw new GotrueException("Request timed out: deadline exceeded while waiting for the same request of another caller", FailureHint.Reason.Offline, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GotrueException("Interrupted while waiting for the same request of another caller", e);
+        } finally {
+            flight.leave();
+        }
+    }
+
+    private static final class Flight<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        // the callers still waiting, the load is aborted when it drops to zero
+        final AtomicInteger callers = new AtomicInteger(1);
+        // the non-blocking load, or null if a blocking caller loads
+        volatile CompletableFuture<V> source;
+
+        boolean join() {
+            int count;
+            do {
+                count = callers.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!callers.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        void leave() {
+            if (callers.decrementAndGet() == 0) {
+                CompletableFuture<V> load = source;
+                if (load != null) {
+                    load.cancel(true);
+                }
+            }
+        }
+
+        CompletableFuture<V> caller() {
+            CompletableFuture<V> caller = result.copy();
+            caller.whenComplete((value, error) -> {
+                if (error instanceof CancellationException && caller.isCancelled()) {
+                    leave();
+                }
+            });
+            return caller;
+        }
+    }
+}
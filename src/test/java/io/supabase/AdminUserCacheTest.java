@@ -0,0 +1,196 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.FailureHint;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.Deadline;
+import io.supabase.jwt.AdminUserCache;
+import io.supabase.schemas.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class AdminUserCacheTest {
+    private static final String USER = "{\"id\":\"%s\",\"email\":\"%s@example.com\",\"role\":\"authenticated\"}";
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private volatile long delayMillis;
+    private GoTrueClient client;
+
+    @BeforeEach
+    void setup() throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/admin/users/", exchange -> {
+            requests.incrementAndGet();
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String path = exchange.getRequestURI().getPath();
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            boolean authorized = "Bearer serviceRole".equals(exchange.getRequestHeaders().getFirst("Authorization"));
+            int status = !authorized ? 401 : id.equals("missing") ? 404 : 200;
+            byte[] bytes = (status == 200 ? String.format(USER, id, id) : "{\"msg\":\"User not found\"}").getBytes(StandardCharsets.UTF_8);
+            concurrent.decrementAndGet();
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add("user" + i);
+        }
+        return ids;
+    }
+
+    @Test
+    void cache_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdminUserCache(Duration.ZERO, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdminUserCache(null, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdminUserCache(Duration.ofSeconds(1), 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.getUsersByIds("serviceRole", ids(1), 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.getUsersByIds("serviceRole", null, 1));
+    }
+
+    @Test
+    void getUserById() throws Exception {
+        AdminUserCache cache = new AdminUserCache(Duration.ofMillis(200), 100);
+        client.setAdminUserCache(cache);
+
+        User user = client.getUserById("serviceRole", "user1");
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertSame(user, client.getUserById("serviceRole", "user1"));
+        }
+        Assertions.assertEquals(1, requests.get());
+        Assertions.assertEquals(10, cache.getHitCount());
+
+        // expired, the next read loads it again
+        Thread.sleep(250);
+        User reloaded = client.getUserById("serviceRole", "user1");
+        Assertions.assertNotSame(user, reloaded);
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertEquals(1, cache.getEvictionCount());
+
+        cache.invalidate("user1");
+        client.getUserById("serviceRole", "user1");
+        Assertions.assertEquals(3, requests.get());
+    }
+
+    @Test
+    void getUserById_otherKey() throws Exception {
+        AdminUserCache cache = new AdminUserCache(Duration.ofMinutes(1), 100);
+        client.setAdminUserCache(cache);
+        User user = client.getUserById("serviceRole", "user1");
+
+        // a user loaded with the full-access key is not handed to callers with another key, the server decides
+        for (String jwt : new String[]{"anonKey", "serviceRole2", "expired.jwt.token"}) {
+            GotrueException e = Assertions.assertThrows(GotrueException.class, () -> client.getUserById(jwt, "user1"));
+            Assertions.assertEquals(401, e.getStatusCode());
+        }
+        ExecutionException async = Assertions.assertThrows(ExecutionException.class,
+                () -> client.getAsyncApi().getUserById("anonKey", "user1").get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(async.getCause() instanceof GotrueException);
+        Assertions.assertThrows(GotrueException.class, () -> client.getUsersByIds("anonKey", List.of("user1"), 1));
+        Assertions.assertEquals(6, requests.get());
+
+        // the full-access key still reads the cached user
+        Assertions.assertSame(user, client.getUserById("serviceRole", "user1"));
+        Assertions.assertEquals(6, requests.get());
+    }
+
+    @Test
+    void getUsersByIds() throws Exception {
+        AdminUserCache cache = new AdminUserCache(Duration.ofMinutes(1), 1000);
+        client.setAdminUserCache(cache);
+        delayMillis = 50;
+        client.getUserById("serviceRole", "user7");
+
+        List<String> ids = ids(40);
+        ids.add("user3");
+        Map<String, User> users = client.getUsersByIds("serviceRole", ids, 4);
+
+        // in the order of the ids, without duplicates, the cached user is not asked for again
+        Assertions.assertEquals(ids(40), new ArrayList<>(users.keySet()));
+        users.forEach((id, user) -> Assertions.assertEquals(id, user.getId()));
+        Assertions.assertEquals(40, requests.get());
+        Assertions.assertTrue(maxConcurrent.get() <= 4, () -> "max concurrent " + maxConcurrent.get());
+        Assertions.assertTrue(maxConcurrent.get() > 1, () -> "max concurrent " + maxConcurrent.get());
+
+        // all of them are cached now
+        Map<String, User> cached = client.getUsersByIds("serviceRole", ids, 4);
+        users.forEach((id, user) -> Assertions.assertSame(user, cached.get(id)));
+        Assertions.assertEquals(40, requests.get());
+    }
+
+    @Test
+    void getUsersByIds_withoutCache() throws Exception {
+        Map<String, User> users = client.getUsersByIds("serviceRole", ids(20), 3);
+        Assertions.assertEquals(20, users.size());
+        Assertions.assertEquals(20, requests.get());
+
+        client.getUsersByIds("serviceRole", ids(20), 3);
+        Assertions.assertEquals(40, requests.get());
+    }
+
+    @Test
+    void getUsersByIds_failure() {
+        List<String> ids = ids(10);
+        ids.add(5, "missing");
+        GotrueException e = Assertions.assertThrows(GotrueException.class, () -> client.getUsersByIds("serviceRole", ids, 2));
+        Assertions.assertEquals(404, e.getStatusCode());
+        // the requests after the failure are not sent
+        Assertions.assertTrue(requests.get() < 11, () -> "requests " + requests.get());
+    }
+
+    @Test
+    void getUsersByIds_deadline() throws Exception {
+        delayMillis = 1000;
+        long start = System.nanoTime();
+        GotrueException e = Assertions.assertThrows(GotrueException.class,
+                () -> Deadline.call(Duration.ofMillis(200), () -> client.getUsersByIds("serviceRole", ids(10), 2)));
+        Assertions.assertEquals(FailureHint.Reason.Offline, e.getReason());
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(900));
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    @Test
+    void maximumSize() throws Exception {
+        AdminUserCache cache = new AdminUserCache(Duration.ofMinutes(1), 10);
+        client.setAdminUserCache(cache);
+        client.getUsersByIds("serviceRole", ids(50), 4);
+        // the users are cached by the concurrent requests, which may overshoot the bound slightly
+        Assertions.assertTrue(cache.size() <= 10 + 4, () -> "size " + cache.size());
+        Assertions.assertEquals(50 - cache.size(), cache.getEvictionCount());
+    }
+}
@@ -0,0 +1,185 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.FailureHint;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.CircuitBreaker;
+import io.supabase.http.CircuitOpenException;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.http.RestTemplateTransport;
+import io.supabase.http.RetryPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CircuitBreakerTest {
+    private static final String SETTINGS_JSON = "{\"disable_signup\":false,\"mailer_autoconfirm\":false,\"phone_autoconfirm\":false,\"sms_provider\":\"twilio\",\"external\":{}}";
+    private static final String SETTINGS = "GET /settings";
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int status = 200;
+    private final List<String> transitions = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            byte[] bytes = (status == 200 ? SETTINGS_JSON : "{\"msg\":\"failed\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private GoTrueClient client(GoTrueTransport transport, CircuitBreaker breaker) throws Exception {
+        GoTrueClient client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"));
+        client.setTransport(transport);
+        client.setCircuitBreaker(breaker);
+        breaker.addListener((endpoint, from, to) -> transitions.add(endpoint + ": " + from + " -> " + to));
+        return client;
+    }
+
+    private static CircuitBreaker breaker(Duration openDuration) {
+        return new CircuitBreaker(10, 4, 0.5, openDuration, 2);
+    }
+
+    @Test
+    void breaker_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, 1, 0.5, Duration.ofSeconds(1), 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 11, 0.5, Duration.ofSeconds(1), 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 4, 0, Duration.ofSeconds(1), 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 4, 0.5, Duration.ZERO, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(10, 4, 0.5, Duration.ofSeconds(1), 0));
+    }
+
+    @Test
+    void open() throws Exception {
+        for (GoTrueTransport transport : new GoTrueTransport[]{new HttpClientTransport(), new RestTemplateTransport()}) {
+            CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+            GoTrueClient client = client(transport, breaker);
+            requests.set(0);
+            status = 503;
+            for (int i = 0; i < 4; i++) {
+                Assertions.assertThrows(GotrueException.class, client::settings);
+            }
+            Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState(SETTINGS));
+
+            // rejected without being sent
+            status = 200;
+            GotrueException e = Assertions.assertThrows(GotrueException.class, client::settings);
+            Assertions.assertEquals(FailureHint.Reason.Offline, e.getReason());
+            Assertions.assertTrue(e.getCause() instanceof CircuitOpenException);
+            Assertions.assertEquals(4, requests.get());
+            Assertions.assertEquals(1, breaker.getRejectedCount());
+
+            // other endpoints have their own circuit
+            Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState("GET /user"));
+        }
+    }
+
+    @Test
+    void open_failureRate() throws Exception {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        GoTrueClient client = client(new HttpClientTransport(), breaker);
+        for (int i = 0; i < 10; i++) {
+            status = i % 3 == 2 ? 500 : 200;
+            try {
+                client.settings();
+            } catch (GotrueException ignored) {
+                // every third request fails
+            }
+        }
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(SETTINGS));
+
+        // client errors show that the server is up
+        status = 429;
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertThrows(GotrueException.class, client::settings);
+        }
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(SETTINGS));
+        Assertions.assertTrue(transitions.isEmpty());
+    }
+
+    @Test
+    void halfOpen() throws Exception {
+        CircuitBreaker breaker = breaker(Duration.ofMillis(50));
+        GoTrueClient client = client(new HttpClientTransport(), breaker);
+        status = 500;
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertThrows(GotrueException.class, client::settings);
+        }
+
+        // a failed probe opens the circuit again
+        Thread.sleep(60);
+        Assertions.assertThrows(GotrueException.class, client::settings);
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState(SETTINGS));
+        Assertions.assertEquals(5, requests.get());
+
+        // the probes close it once they all succeed
+        Thread.sleep(60);
+        status = 200;
+        client.settings();
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(SETTINGS));
+        client.settings();
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(SETTINGS));
+
+        Assertions.assertEquals(List.of(
+                SETTINGS + ": CLOSED -> OPEN",
+                SETTINGS + ": OPEN -> HALF_OPEN",
+                SETTINGS + ": HALF_OPEN -> OPEN",
+                SETTINGS + ": OPEN -> HALF_OPEN",
+                SETTINGS + ": HALF_OPEN -> CLOSED"), transitions);
+    }
+
+    @Test
+    void open_async() throws Exception {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        GoTrueClient client = client(new HttpClientTransport(), breaker);
+        status = 502;
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertThrows(ExecutionException.class, () -> client.settingsAsync().get());
+        }
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> client.settingsAsync().get());
+        Assertions.assertEquals(FailureHint.Reason.Offline, ((GotrueException) e.getCause()).getReason());
+        Assertions.assertEquals(4, requests.get());
+    }
+
+    @Test
+    void open_notRetried() throws Exception {
+        CircuitBreaker breaker = breaker(Duration.ofMinutes(1));
+        GoTrueClient client = client(new HttpClientTransport(), breaker);
+        RetryPolicy policy = new RetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(5), 1);
+        client.setRetryPolicy(policy);
+        status = 503;
+
+        // every attempt is recorded, the retries of the second request are rejected by the open circuit
+        Assertions.assertThrows(GotrueException.class, client::settings);
+        GotrueException e = Assertions.assertThrows(GotrueException.class, client::settings);
+        Assertions.assertEquals(FailureHint.Reason.Offline, e.getReason());
+        Assertions.assertEquals(4, requests.get());
+        Assertions.assertEquals(3, policy.getRetryCount());
+        Assertions.assertEquals(1, breaker.getRejectedCount());
+    }
+}
@@ -28,6 +28,8 @@ class ClientUtilsTest {
         System.clearProperty("gotrue.headers");
         System.clearProperty("gotrue.url");
         System.clearProperty("gotrue.jwt.secret");
+        System.clearProperty("gotrue.virtual.threads");
+        System.clearProperty("gotrue.jwt.clock.skew");
     }
 
     @Test
@@ -63,6 +65,17 @@ class ClientUtilsTest {
         Assertions.assertDoesNotThrow(ClientUtils::loadHeaders);
     }
 
+    @Test
+    void loadVirtualThreads() {
+        Assertions.assertFalse(ClientUtils.loadVirtualThreads());
+
+        System.setProperty("gotrue.virtual.threads", " true ");
+        Assertions.assertTrue(ClientUtils.loadVirtualThreads());
+
+        environmentVariables.set("GOTRUE_VIRTUAL_THREADS", "false");
+        Assertions.assertFalse(ClientUtils.loadVirtualThreads());
+    }
+
     @Test
     void parseJwt_no_secret() {
         Assertions.assertThrows(JwtSecretNotFoundException.class, () -> ClientUtils.parseJwt("invalid"));
@@ -102,4 +115,25 @@ class ClientUtilsTest {
             Assertions.fail();
         }
     }
+
+    @Test
+    void loadJwtVerifier_clockSkew() throws Exception {
+        environmentVariables.set("GOTRUE_JWT_SECRET", "superSecretJwtToken");
+        System.setProperty("gotrue.jwt.clock.skew", "");
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class, () -> ClientUtils.loadJwtVerifier(null, null));
+        Assertions.assertEquals("The gotrue.jwt.clock.skew >< must be a number of seconds!", e.getMessage());
+
+        // the environment takes precedence over the property
+        environmentVariables.set("GOTRUE_JWT_CLOCK_SKEW", " 30 ");
+        Assertions.assertNotNull(ClientUtils.loadJwtVerifier(null, null));
+
+        environmentVariables.set("GOTRUE_JWT_CLOCK_SKEW", "30s");
+        e = Assertions.assertThrows(IllegalArgumentException.class, () -> ClientUtils.loadJwtVerifier(null, null));
+        Assertions.assertEquals("The GOTRUE_JWT_CLOCK_SKEW >30s< must be a number of seconds!", e.getMessage());
+        Assertions.assertTrue(e.getCause() instanceof NumberFormatException);
+
+        environmentVariables.set("GOTRUE_JWT_CLOCK_SKEW", "-5");
+        e = Assertions.assertThrows(IllegalArgumentException.class, () -> ClientUtils.loadJwtVerifier(null, null));
+        Assertions.assertEquals("The GOTRUE_JWT_CLOCK_SKEW >-5< must not be negative!", e.getMessage());
+    }
 }
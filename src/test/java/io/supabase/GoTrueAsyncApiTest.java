@@ -0,0 +1,153 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.dto.Session;
+import io.supabase.exceptions.FailureHint;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.http.RestTemplateTransport;
+import io.supabase.http.TransportRequest;
+import io.supabase.http.TransportResponse;
+import io.supabase.schemas.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+class GoTrueAsyncApiTest {
+    private static final String USER = "{\"id\":\"a942b3d1-3a52-4457-8c4f-88d07c2dbe30\",\"email\":\"email@example.com\",\"role\":\"authenticated\"}";
+
+    private HttpServer server;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            String query = exchange.getRequestURI().getQuery();
+            int status = 200;
+            String body;
+            switch (exchange.getRequestURI().getPath()) {
+                case "/user":
+                    body = USER;
+                    break;
+                case "/token":
+                    if ("grant_type=password".equals(query)) {
+                        status = 400;
+                        body = "{\"error\":\"invalid_grant\",\"error_description\":\"Invalid login credentials\"}";
+                    } else {
+                        body = "{\"access_token\":\"someJwt\",\"token_type\":\"bearer\",\"expires_in\":3600,\"refresh_token\":\"someRefreshToken\",\"user\":" + USER + "}";
+                    }
+                    break;
+                case "/signup":
+                    body = "{\"access_token\":\"someJwt\",\"token_type\":\"bearer\",\"expires_in\":3600,\"refresh_token\":\"someRefreshToken\",\"user\":" + USER + "}";
+                    break;
+                default:
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    body = USER;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    private GoTrueAsyncApi api(GoTrueTransport transport) throws Exception {
+        return new GoTrueAsyncApi(new GoTrueApi("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"), transport));
+    }
+
+    private void assertTransport(GoTrueTransport transport) throws Exception {
+        GoTrueAsyncApi api = api(transport);
+
+        User user = api.getUser("someJwt").get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals("email@example.com", user.getEmail());
+
+        Session session = api.refreshAccessToken("someRefreshToken").get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals("someJwt", session.getAccessToken());
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                () -> api.signInWithEmail("email@example.com", "wrong").get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof GotrueException);
+        GotrueException cause = (GotrueException) e.getCause();
+        Assertions.assertEquals(400, cause.getStatusCode());
+        Assertions.assertEquals(FailureHint.Reason.UserBadLogin, cause.getReason());
+    }
+
+    @Test
+    void httpClientTransport() throws Exception {
+        assertTransport(new HttpClientTransport());
+    }
+
+    @Test
+    void blockingTransport() throws Exception {
+        // falls back to the default sendAsync, running the blocking send on a virtual thread
+        assertTransport(new RestTemplateTransport());
+    }
+
+    @Test
+    void cancel() throws Exception {
+        AtomicReference<CompletableFuture<TransportResponse>> inFlight = new AtomicReference<>();
+        HttpClientTransport delegate = new HttpClientTransport();
+        GoTrueTransport transport = new GoTrueTransport() {
+            @Override
+            public TransportResponse send(TransportRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+                inFlight.set(delegate.sendAsync(request));
+                return inFlight.get();
+            }
+        };
+
+        CompletableFuture<User> user = api(transport).getUserById("serviceKey", "someId");
+        Assertions.assertTrue(user.cancel(true));
+        // HttpClient may abort the exchange, completing it with a CancellationException, before it is marked cancelled
+        Exception aborted = Assertions.assertThrows(Exception.class, inFlight.get()::join);
+        Assertions.assertTrue(inFlight.get().isCancelled() || aborted.getCause() instanceof CancellationException);
+        Assertions.assertThrows(CancellationException.class, user::join);
+    }
+
+    @Test
+    void client() throws Exception {
+        GoTrueClient client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"));
+
+        Session session = client.signUpAsync("email@example.com", "secret").get(5, TimeUnit.SECONDS);
+        Assertions.assertSame(session, client.getCurrentAuth());
+        Assertions.assertEquals("email@example.com", client.getUserAsync("someJwt").get(5, TimeUnit.SECONDS).getEmail());
+
+        CompletableFuture<Session> signIn = client.signInAsync("email@example.com", "wrong");
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> signIn.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof GotrueException);
+        Assertions.assertSame(session, client.getCurrentAuth());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.getUserAsync(null));
+    }
+}
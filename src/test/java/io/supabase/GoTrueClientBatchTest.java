@@ -0,0 +1,93 @@
+package io.supabase;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.supabase.data.jwt.ParseResult;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.TokenCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class GoTrueClientBatchTest {
+    private GoTrueClient client;
+    private List<String> jwts;
+
+    @BeforeEach
+    void setup() throws Exception {
+        client = new GoTrueClient("http://localhost:9999");
+        client.setJwtVerifier(new JwtVerifier("superSecretJwtToken"));
+        String valid = JwtVerifierTest.token(JwtVerifierTest.inOneHour());
+        String expired = JwtVerifierTest.token(new Date(System.currentTimeMillis() - 10_000));
+        jwts = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            jwts.add(valid);
+            jwts.add(expired);
+        }
+        jwts.addAll(Arrays.asList(null, "", "invalid"));
+    }
+
+    private void assertResults(List<Boolean> results) {
+        Assertions.assertEquals(jwts.size(), results.size());
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i % 2 == 0, results.get(i), "token " + i);
+        }
+        Assertions.assertEquals(Arrays.asList(false, false, false), results.subList(1000, 1003));
+    }
+
+    @Test
+    void validateAll() throws Exception {
+        assertResults(client.validateAll(jwts));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertResults(client.validateAll(jwts, executor));
+        } finally {
+            executor.shutdown();
+        }
+
+        client.setTokenCache(new TokenCache(16));
+        assertResults(client.validateAll(jwts));
+        Assertions.assertEquals(1, client.getTokenCache().size());
+
+        Assertions.assertTrue(client.validateAll(List.of()).isEmpty());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.validateAll(null));
+    }
+
+    @Test
+    void parseJwtAll() throws Exception {
+        List<ParseResult> results = client.parseJwtAll(jwts);
+
+        Assertions.assertEquals(jwts.size(), results.size());
+        Utils.assertParsedToken(results.get(0).token());
+        Assertions.assertTrue(results.get(0).isValid());
+        Assertions.assertSame(jwts.get(1), results.get(1).jwt());
+        Assertions.assertNull(results.get(1).token());
+        Assertions.assertTrue(results.get(1).error() instanceof ExpiredJwtException);
+        Assertions.assertTrue(results.get(1000).error() instanceof IllegalArgumentException);
+        Assertions.assertTrue(results.get(1001).error() instanceof IllegalArgumentException);
+        Assertions.assertFalse(results.get(1002).isValid());
+    }
+
+    @Test
+    void malformedCharacters() throws Exception {
+        String valid = jwts.get(0);
+        String malformed = "ü" + valid;
+        for (TokenCache cache : new TokenCache[]{null, new TokenCache(16)}) {
+            client.setTokenCache(cache);
+            // one token the parser cannot decode fails on its own, not the whole batch
+            List<ParseResult> results = client.parseJwtAll(List.of(valid, malformed, valid));
+            Assertions.assertTrue(results.get(0).isValid());
+            Assertions.assertTrue(results.get(1).error() instanceof MalformedJwtException);
+            Assertions.assertTrue(results.get(2).isValid());
+            Assertions.assertEquals(List.of(true, false, true), client.validateAll(List.of(valid, malformed, valid)));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.flow.BoundedMapPublisher;
+import io.supabase.flow.FlowResult;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.schemas.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class GoTrueFlowApiTest {
+
+    /**
+     * Emits 0 until count on demand and records how much was requested.
+     */
+    private static final class CountingSource implements Flow.Publisher<Integer> {
+        private final int count;
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+
+        CountingSource(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super Integer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private int next;
+                private boolean done;
+
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                    for (long i = 0; i < n && next < count; i++) {
+                        subscriber.onNext(next++);
+                    }
+                    if (next == count && !done) {
+                        done = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static final class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        private final List<T> items = new CopyOnWriteArrayList<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final long initialRequest;
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    @Test
+    void boundedInFlight() {
+        CountingSource source = new CountingSource(20);
+        List<CompletableFuture<Integer>> started = new CopyOnWriteArrayList<>();
+        BoundedMapPublisher<Integer, Integer> publisher = new BoundedMapPublisher<>(source, i -> {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            started.add(future);
+            return future;
+        }, 4);
+        RecordingSubscriber<FlowResult<Integer, Integer>> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+
+        Assertions.assertEquals(4, source.requested.get());
+        Assertions.assertEquals(4, started.size());
+
+        started.get(2).complete(2);
+        Assertions.assertEquals(5, source.requested.get());
+        Assertions.assertEquals(2, subscriber.items.get(0).result());
+
+        for (int i = 0; i < started.size(); i++) {
+            started.get(i).complete(i);
+        }
+        Assertions.assertEquals(0, subscriber.done.getCount());
+        Assertions.assertNull(subscriber.error);
+        Assertions.assertEquals(20, subscriber.items.size());
+        Assertions.assertEquals(IntStream.range(0, 20).boxed().collect(Collectors.toSet()),
+                subscriber.items.stream().map(FlowResult::request).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void demandDriven() {
+        CountingSource source = new CountingSource(100);
+        RecordingSubscriber<FlowResult<Integer, Integer>> subscriber = new RecordingSubscriber<>(2);
+        new BoundedMapPublisher<>(source, CompletableFuture::completedFuture, 8).subscribe(subscriber);
+
+        Assertions.assertEquals(2, source.requested.get());
+        Assertions.assertEquals(2, subscriber.items.size());
+
+        subscriber.subscription.request(3);
+        Assertions.assertEquals(5, source.requested.get());
+        Assertions.assertEquals(List.of(0, 1, 2, 3, 4), subscriber.items.stream().map(FlowResult::result).collect(Collectors.toList()));
+        Assertions.assertEquals(1, subscriber.done.getCount());
+    }
+
+    @Test
+    void failuresAndCancel() {
+        CountingSource source = new CountingSource(10);
+        List<CompletableFuture<Integer>> started = new CopyOnWriteArrayList<>();
+        RecordingSubscriber<FlowResult<Integer, Integer>> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        new BoundedMapPublisher<Integer, Integer>(source, i -> {
+            if (i == 0) {
+                return CompletableFuture.failedFuture(new GotrueException("Request Failed"));
+            }
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            started.add(future);
+            return future;
+        }, 3).subscribe(subscriber);
+
+        FlowResult<Integer, Integer> failed = subscriber.items.get(0);
+        Assertions.assertFalse(failed.isSuccessful());
+        Assertions.assertTrue(failed.error() instanceof GotrueException);
+        Assertions.assertEquals(3, started.size());
+
+        subscriber.subscription.cancel();
+        Assertions.assertTrue(source.cancelled);
+        Assertions.assertTrue(started.stream().allMatch(CompletableFuture::isCancelled));
+        Assertions.assertEquals(1, subscriber.items.size());
+        Assertions.assertEquals(1, subscriber.done.getCount());
+    }
+
+    @Test
+    void invalidRequest() {
+        RecordingSubscriber<FlowResult<Integer, Integer>> subscriber = new RecordingSubscriber<>(0);
+        new BoundedMapPublisher<>(new CountingSource(10), CompletableFuture::completedFuture, 2).subscribe(subscriber);
+
+        Assertions.assertTrue(subscriber.error instanceof IllegalArgumentException);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BoundedMapPublisher<>(new CountingSource(1), CompletableFuture::completedFuture, 0));
+    }
+
+    @Test
+    void getUsers() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/user", exchange -> {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            boolean valid = !authorization.endsWith("expired");
+            byte[] body = (valid
+                    ? "{\"id\":\"a942b3d1-3a52-4457-8c4f-88d07c2dbe30\",\"email\":\"email@example.com\"}"
+                    : "{\"code\":401,\"msg\":\"invalid JWT\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(valid ? 200 : 401, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            GoTrueApi api = new GoTrueApi("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"), new HttpClientTransport());
+            GoTrueFlowApi flowApi = new GoTrueFlowApi(new GoTrueAsyncApi(api), 2);
+
+            RecordingSubscriber<FlowResult<String, User>> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+            try (SubmissionPublisher<String> jwts = new SubmissionPublisher<>()) {
+                flowApi.getUsers(jwts).subscribe(subscriber);
+                List.of("jwt0", "jwt1", "jwt2", "expired", "jwt4").forEach(jwts::submit);
+            }
+
+            Assertions.assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+            Assertions.assertNull(subscriber.error);
+            Assertions.assertEquals(5, subscriber.items.size());
+            FlowResult<String, User> expired = subscriber.items.stream().filter(r -> r.request().equals("expired")).findFirst().orElseThrow();
+            Assertions.assertEquals(401, ((GotrueException) expired.error()).getStatusCode());
+            Assertions.assertEquals(4, subscriber.items.stream().filter(FlowResult::isSuccessful).count());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.FailureHint;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.ConcurrencyLimitedTransport;
+import io.supabase.http.Deadline;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.http.ResponseHandler;
+import io.supabase.http.RestTemplateTransport;
+import io.supabase.http.TransportRequest;
+import io.supabase.http.TransportResponse;
+import io.supabase.responses.BaseResponse;
+import io.supabase.schemas.User;
+import io.supabase.utils.Helpers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class GoTrueTransportTest {
+    private HttpServer server;
+    private final AtomicReference<String> lastBody = new AtomicReference<>();
+    private final AtomicReference<String> lastContentType = new AtomicReference<>();
+    private final AtomicReference<String> lastAuthorization = new AtomicReference<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            lastBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            lastContentType.set(exchange.getRequestHeaders().getFirst("Content-Type"));
+            lastAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            String path = exchange.getRequestURI().getPath();
+            int status;
+            String body;
+            switch (path) {
+                case "/user":
+                    status = 200;
+                    body = "{\"id\":\"a942b3d1-3a52-4457-8c4f-88d07c2dbe30\",\"email\":\"email@example.com\",\"role\":\"authenticated\"}";
+                    break;
+                case "/token":
+                    status = 400;
+                    body = "{\"error\":\"invalid_grant\",\"error_description\":\"Invalid login credentials\"}";
+                    break;
+                case "/settings":
+                    status = 503;
+                    body = "upstream unavailable";
+                    break;
+                default:
+                    status = 204;
+                    body = null;
+            }
+            exchange.sendResponseHeaders(status, body != null ? body.length() : -1);
+            if (body != null) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private GoTrueApi api(GoTrueTransport transport) throws Exception {
+        return new GoTrueApi("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey", "Connection", "close"), transport);
+    }
+
+    private void assertTransport(GoTrueTransport transport) throws Exception {
+        GoTrueApi api = api(transport);
+
+        User user = api.getUser("someJwt");
+        Assertions.assertEquals("email@example.com", user.getEmail());
+        Assertions.assertEquals("Bearer someJwt", lastAuthorization.get());
+        // no content is decoded to null
+        Assertions.assertNull(api.getUserById("someJwt", "someId"));
+
+        GotrueException badLogin = Assertions.assertThrows(GotrueException.class, () -> api.signInWithEmail("email@example.com", "wrong"));
+        Assertions.assertEquals(400, badLogin.getStatusCode());
+        Assertions.assertEquals(FailureHint.Reason.UserBadLogin, badLogin.getReason());
+        Assertions.assertTrue(badLogin.getContent().orElseThrow().contains("Invalid login credentials"));
+        Assertions.assertEquals("{\"email\":\"email@example.com\",\"password\":\"wrong\"}", lastBody.get());
+        Assertions.assertEquals("application/json", lastContentType.get());
+
+        GotrueException offline = Assertions.assertThrows(GotrueException.class, api::getSettings);
+        Assertions.assertEquals(503, offline.getStatusCode());
+        Assertions.assertEquals(FailureHint.Reason.Offline, offline.getReason());
+
+        BaseResponse response = api.signOut("someJwt");
+        Assertions.assertEquals(HttpStatus.NO_CONTENT, response.getResponseMessage().getStatusCode());
+        Assertions.assertNull(response.getContent());
+    }
+
+    @Test
+    void httpClientTransport() throws Exception {
+        assertTransport(new HttpClientTransport());
+        assertTransport(new HttpClientTransport(Duration.ofSeconds(1), Executors.newSingleThreadExecutor()));
+    }
+
+    @Test
+    void restTemplateTransport() throws Exception {
+        assertTransport(new RestTemplateTransport());
+    }
+
+    @Test
+    void unreachable() throws Exception {
+        GoTrueApi api = api(new HttpClientTransport());
+        server.stop(0);
+
+        GotrueException e = Assertions.assertThrows(GotrueException.class, () -> api.getUser("someJwt"));
+        Assertions.assertEquals(FailureHint.Reason.Unknown, e.getReason());
+    }
+
+    @Test
+    void virtualThreads() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        HttpClientTransport virtual = HttpClientTransport.ofVirtualThreads();
+        GoTrueTransport counting = request -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                return virtual.send(request);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+        GoTrueApi api = api(new ConcurrencyLimitedTransport(counting, 8));
+
+        AtomicInteger pinned = new AtomicInteger();
+        try (RecordingStream recording = new RecordingStream();
+             ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO);
+            recording.onEvent("jdk.VirtualThreadPinned", event -> pinned.incrementAndGet());
+            recording.startAsync();
+
+            List<Future<User>> users = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                users.add(callers.submit(() -> api.getUser("someJwt")));
+            }
+            for (Future<User> user : users) {
+                Assertions.assertEquals("email@example.com", user.get(10, TimeUnit.SECONDS).getEmail());
+            }
+            recording.stop();
+        }
+        Assertions.assertEquals(0, pinned.get());
+        Assertions.assertTrue(peak.get() <= 8);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimitedTransport(counting, 0));
+    }
+
+    @Test
+    void concurrencyLimited_exchange() throws Exception {
+        AtomicInteger sends = new AtomicInteger();
+        AtomicInteger exchanges = new AtomicInteger();
+        HttpClientTransport http = new HttpClientTransport();
+        GoTrueTransport counting = new GoTrueTransport() {
+            @Override
+            public TransportResponse send(TransportRequest request) throws IOException {
+                sends.incrementAndGet();
+                return http.send(request);
+            }
+
+            @Override
+            public <T> T exchange(TransportRequest request, ResponseHandler<T> handler) throws IOException {
+                exchanges.incrementAndGet();
+                return http.exchange(request, handler);
+            }
+        };
+        ConcurrencyLimitedTransport limited = new ConcurrencyLimitedTransport(counting, 2);
+        assertTransport(limited);
+
+        // the responses are streamed by the delegate instead of being buffered through send
+        Assertions.assertEquals(0, sends.get());
+        Assertions.assertTrue(exchanges.get() > 0);
+        Assertions.assertEquals(0, limited.getInFlight());
+    }
+
+    @Test
+    void concurrencyLimited_async() throws Exception {
+        List<CompletableFuture<String>> started = new CopyOnWriteArrayList<>();
+        GoTrueTransport pending = new GoTrueTransport() {
+            @Override
+            public TransportResponse send(TransportRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> CompletableFuture<T> exchangeAsync(TransportRequest request, ResponseHandler<T> handler) {
+                CompletableFuture<String> future = new CompletableFuture<>();
+                started.add(future);
+                return (CompletableFuture<T>) future;
+            }
+        };
+        ConcurrencyLimitedTransport limited = new ConcurrencyLimitedTransport(pending, 2);
+        TransportRequest request = new TransportRequest("GET", URI.create("http://localhost/user"), Map.of(), null);
+        ResponseHandler<String> handler = (statusCode, headers, body) -> "unused";
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(limited.exchangeAsync(request, handler));
+        }
+        // the requests beyond the limit are queued without blocking the caller
+        Assertions.assertEquals(2, started.size());
+        Assertions.assertEquals(2, limited.getInFlight());
+
+        // a cancelled request leaves the queue, the next one starts once a permit is released
+        Assertions.assertTrue(results.get(2).cancel(true));
+        started.get(0).complete("first");
+        Assertions.assertEquals("first", results.get(0).get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, started.size());
+
+        // a failed request releases its permit as well
+        started.get(1).completeExceptionally(new IOException("reset"));
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof IOException);
+        Assertions.assertEquals(1, limited.getInFlight());
+
+        // a queued request fails once its deadline passed
+        limited.exchangeAsync(request, handler);
+        Assertions.assertEquals(4, started.size());
+        CompletableFuture<String> late = limited.exchangeAsync(request.withTimeout(null, Deadline.after(Duration.ofMillis(50))), handler);
+        e = Assertions.assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof HttpTimeoutException);
+        Assertions.assertEquals(4, started.size());
+
+        // cancelling a started request aborts it and releases its permit
+        results.get(3).cancel(true);
+        Assertions.assertTrue(started.get(2).isCancelled());
+        started.get(3).complete("last");
+        Assertions.assertEquals(0, limited.getInFlight());
+    }
+
+    @Test
+    void defaultTransport() {
+        // bounded, as the http client does not limit its connections itself
+        GoTrueTransport transport = Helpers.getDefaultTransport();
+        Assertions.assertTrue(transport instanceof ConcurrencyLimitedTransport);
+        Assertions.assertEquals(HttpClientTransport.DEFAULT_MAX_CONCURRENT_REQUESTS, ((ConcurrencyLimitedTransport) transport).getMaxConcurrentRequests());
+        // one http client on virtual threads, however often it is asked for
+        Assertions.assertSame(HttpClientTransport.ofVirtualThreads(), HttpClientTransport.ofVirtualThreads());
+    }
+
+    @Test
+    void setTransport() throws Exception {
+        GoTrueClient client = new GoTrueClient("http://localhost:" + server.getAddress().getPort());
+        GoTrueTransport transport = new RestTemplateTransport();
+        client.setTransport(transport);
+        Assertions.assertSame(transport, client.getTransport());
+        Assertions.assertEquals("email@example.com", client.getUser("someJwt").getEmail());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> client.setTransport(null));
+
+        client.useVirtualThreads(4);
+        Assertions.assertTrue(client.getTransport() instanceof ConcurrencyLimitedTransport);
+        Assertions.assertEquals("email@example.com", client.getUser("someJwt").getEmail());
+    }
+}
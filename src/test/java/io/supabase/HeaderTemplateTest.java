@@ -0,0 +1,48 @@
+package io.supabase;
+
+import io.supabase.http.HeaderTemplate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class HeaderTemplateTest {
+
+    private static Map<String, String> copy(Map<String, String> headers) {
+        Map<String, String> copy = new LinkedHashMap<>();
+        headers.forEach(copy::put);
+        return copy;
+    }
+
+    @Test
+    void with_withDefault() {
+        Map<String, String> headers = new HashMap<>(Map.of("apikey", "anonKey"));
+        HeaderTemplate template = new HeaderTemplate(headers)
+                .withDefault("Accept", "application/json")
+                .withDefault("apikey", "other");
+        headers.put("apikey", "changed");
+
+        Assertions.assertEquals(Map.of("apikey", "anonKey", "Accept", "application/json"), template.asMap());
+        Assertions.assertEquals(Map.of("apikey", "other", "Accept", "application/json"), template.with("apikey", "other").asMap());
+    }
+
+    @Test
+    void asMapWith() {
+        HeaderTemplate template = new HeaderTemplate(Map.of("apikey", "anonKey", "Authorization", "Bearer anonKey"));
+
+        Map<String, String> headers = template.asMapWith("Authorization", "Bearer jwt");
+        Assertions.assertEquals(2, headers.size());
+        Assertions.assertEquals("Bearer jwt", headers.get("Authorization"));
+        Assertions.assertEquals(Map.of("apikey", "anonKey", "Authorization", "Bearer jwt"), copy(headers));
+        Assertions.assertEquals(Map.of("apikey", "anonKey", "Authorization", "Bearer jwt"), new HashMap<>(headers));
+
+        Map<String, String> added = template.asMapWith("X-Client-Info", "gotrue-java");
+        Assertions.assertEquals(3, added.size());
+        Assertions.assertTrue(added.containsKey("X-Client-Info"));
+        Assertions.assertEquals(3, new HashMap<>(added).size());
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> headers.put("apikey", "other"));
+    }
+}
@@ -0,0 +1,99 @@
+package io.supabase;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.supabase.data.dto.CredentialsDto;
+import io.supabase.data.dto.EmailDto;
+import io.supabase.data.dto.RefreshTokenDto;
+import io.supabase.data.dto.UserAttributesDto;
+import io.supabase.utils.Helpers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class HelpersEncodingTest {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static CredentialsDto credentials(String email, String password) {
+        CredentialsDto dto = new CredentialsDto();
+        dto.setEmail(email);
+        dto.setPassword(password);
+        return dto;
+    }
+
+    private static UserAttributesDto attributes(String email, Object data) {
+        UserAttributesDto dto = new UserAttributesDto();
+        dto.setEmail(email);
+        dto.setPassword("sëcret \"quoted\" \\ \n\t");
+        dto.setData(data);
+        return dto;
+    }
+
+    @Test
+    void toJsonBytes() throws Exception {
+        EmailDto email = new EmailDto();
+        email.setEmail("email@example.com");
+        RefreshTokenDto refresh = new RefreshTokenDto();
+        refresh.setRefreshToken("refreshToken");
+        List<Object> bodies = List.of(
+                credentials("email@example.com", "secret"),
+                credentials("jürgen@exämple.com", "пароль-密码-🔑"),
+                credentials(null, null),
+                email,
+                refresh,
+                attributes("ünïcödé@example.com", Map.of("name", "Zoë 😀", "locale", "日本語", "age", 42)),
+                attributes(null, null),
+                new UserAttributesDto());
+        for (Object body : bodies) {
+            byte[] expected = mapper.writeValueAsBytes(body);
+            Assertions.assertArrayEquals(expected, Helpers.toJsonBytes(body), () -> new String(expected, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void toJsonBytes_large() throws Exception {
+        // larger than a single pooled buffer
+        String name = "ä😀x".repeat(20_000);
+        UserAttributesDto body = attributes(name + "@example.com", Map.of("name", name));
+        Assertions.assertArrayEquals(mapper.writeValueAsBytes(body), Helpers.toJsonBytes(body));
+    }
+
+    @Test
+    void toJsonBytes_concurrent() throws Exception {
+        // more encoders than the pool holds buffers, the ones beyond it allocate their own
+        int threads = Helpers.BUFFER_POOL_SIZE * 2;
+        int iterations = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        // distinct bodies of different lengths, so a shared or leaked buffer shows in the output
+                        String value = ("ü" + thread + "-" + i + "-").repeat(1 + (thread * 31 + i) % 200);
+                        UserAttributesDto body = attributes(value + "@example.com", Map.of("name", value));
+                        Assertions.assertArrayEquals(mapper.writeValueAsBytes(body), Helpers.toJsonBytes(body));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
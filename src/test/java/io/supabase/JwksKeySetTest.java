@@ -0,0 +1,234 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.TimeoutPolicy;
+import io.supabase.jwt.JwksKeySet;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.utils.ClientUtils;
+import io.supabase.utils.Helpers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class JwksKeySetTest {
+    private HttpServer server;
+    private final AtomicReference<String> jwks = new AtomicReference<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private KeyPair rsa;
+    private KeyPair ec;
+
+    @BeforeEach
+    void setup() throws Exception {
+        KeyPairGenerator rsaGenerator = KeyPairGenerator.getInstance("RSA");
+        rsaGenerator.initialize(2048);
+        rsa = rsaGenerator.generateKeyPair();
+        KeyPairGenerator ecGenerator = KeyPairGenerator.getInstance("EC");
+        ecGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        ec = ecGenerator.generateKeyPair();
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/.well-known/jwks.json", exchange -> {
+            requests.incrementAndGet();
+            byte[] body = jwks.get().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/slow/.well-known/jwks.json", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private static String b64(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private String rsaJwk(String kid) {
+        RSAPublicKey key = (RSAPublicKey) rsa.getPublic();
+        return String.format("{\"kty\":\"RSA\",\"kid\":\"%s\",\"use\":\"sig\",\"alg\":\"RS256\",\"n\":\"%s\",\"e\":\"%s\"}",
+                kid, b64(key.getModulus()), b64(key.getPublicExponent()));
+    }
+
+    private String ecJwk(String kid) {
+        ECPublicKey key = (ECPublicKey) ec.getPublic();
+        return String.format("{\"kty\":\"EC\",\"kid\":\"%s\",\"crv\":\"P-256\",\"x\":\"%s\",\"y\":\"%s\"}",
+                kid, b64(key.getW().getAffineX()), b64(key.getW().getAffineY()));
+    }
+
+    private static String keys(String... jwks) {
+        return "{\"keys\":[" + String.join(",", jwks) + "]}";
+    }
+
+    private static String token(String kid, SignatureAlgorithm algorithm, java.security.Key key) {
+        return Jwts.builder()
+                .setHeaderParam("kid", kid)
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .setExpiration(JwtVerifierTest.inOneHour())
+                .claim("email", "email@example.com")
+                .claim("role", "authenticated")
+                .signWith(algorithm, key)
+                .compact();
+    }
+
+    @Test
+    void fromUrl_rs256_es256() {
+        jwks.set(keys(rsaJwk("rsa-1"), ecJwk("ec-1"), "{\"kty\":\"oct\",\"kid\":\"sym\",\"k\":\"c2VjcmV0\"}"));
+        JwksKeySet keySet = JwksKeySet.fromUrl(url(), new HashMap<>());
+        Assertions.assertEquals(2, keySet.getKeys().size());
+
+        JwtVerifier verifier = new JwtVerifier(keySet, 0);
+        Utils.assertParsedToken(verifier.parse(token("rsa-1", SignatureAlgorithm.RS256, rsa.getPrivate())));
+        Utils.assertParsedToken(verifier.parse(token("ec-1", SignatureAlgorithm.ES256, ec.getPrivate())));
+        // signed with the key of another kid
+        Assertions.assertFalse(verifier.validate(token("ec-1", SignatureAlgorithm.RS256, rsa.getPrivate())));
+        // HMAC tokens are not accepted
+        Assertions.assertFalse(verifier.validate(token("rsa-1", SignatureAlgorithm.HS256,
+                new javax.crypto.spec.SecretKeySpec("secret".getBytes(StandardCharsets.UTF_8), "HmacSHA256"))));
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    @Test
+    void unknownKid_refreshesInBackground() throws Exception {
+        jwks.set(keys(rsaJwk("rsa-1")));
+        JwksKeySet keySet = new JwksKeySet(url() + "/.well-known/jwks.json", null, Duration.ofMillis(300), Thread::startVirtualThread);
+        keySet.refresh();
+        JwtVerifier verifier = new JwtVerifier(keySet, 0);
+        // the explicit refresh counts towards the rate limit as well
+        Thread.sleep(400);
+
+        // the key was rotated on the server
+        jwks.set(keys(rsaJwk("rsa-1"), ecJwk("ec-2")));
+        String jwt = token("ec-2", SignatureAlgorithm.ES256, ec.getPrivate());
+        Assertions.assertThrows(SignatureException.class, () -> verifier.parse(jwt));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!keySet.getKeys().containsKey("ec-2") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(verifier.validate(jwt));
+        Assertions.assertEquals(2, requests.get());
+
+        // rate limited: another unknown kid within the interval does not fetch again
+        Assertions.assertFalse(verifier.validate(token("unknown", SignatureAlgorithm.ES256, ec.getPrivate())));
+        Thread.sleep(100);
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    @Test
+    void fromFile() throws IOException {
+        Path file = Files.createTempFile("jwks", ".json");
+        try {
+            Files.writeString(file, keys(rsaJwk("rsa-1")));
+            JwtVerifier verifier = new JwtVerifier(JwksKeySet.fromFile(file), 0);
+            Assertions.assertTrue(verifier.validate(token("rsa-1", SignatureAlgorithm.RS256, rsa.getPrivate())));
+            Assertions.assertFalse(verifier.validate(token("rsa-2", SignatureAlgorithm.RS256, rsa.getPrivate())));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void load_invalid() {
+        JwksKeySet keySet = new JwksKeySet(null, null, Duration.ZERO, Runnable::run);
+        Assertions.assertThrows(IOException.class, () -> keySet.load("{}"));
+        Assertions.assertThrows(IOException.class, () -> keySet.load("{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"a\"}]}"));
+    }
+
+    @Test
+    void clientUtils_parseJwt_reusesKeySet() throws Exception {
+        jwks.set(keys(rsaJwk("rsa-1")));
+        String jwt = token("rsa-1", SignatureAlgorithm.RS256, rsa.getPrivate());
+        try {
+            System.setProperty("gotrue.jwt.algorithm", "RS256");
+            System.setProperty("gotrue.url", url());
+            for (int i = 0; i < 5; i++) {
+                Utils.assertParsedToken(ClientUtils.parseJwt(jwt));
+            }
+            Assertions.assertEquals(1, requests.get());
+
+            // another configuration loads the keys again
+            System.setProperty("gotrue.jwt.clock.skew", "5");
+            Utils.assertParsedToken(ClientUtils.parseJwt(jwt));
+            Assertions.assertEquals(2, requests.get());
+        } finally {
+            System.clearProperty("gotrue.jwt.algorithm");
+            System.clearProperty("gotrue.url");
+            System.clearProperty("gotrue.jwt.clock.skew");
+        }
+    }
+
+    @Test
+    void client_fetchesWithItsTransport() throws Exception {
+        jwks.set(keys(rsaJwk("rsa-1")));
+        AtomicInteger sent = new AtomicInteger();
+        try {
+            System.setProperty("gotrue.jwt.algorithm", "RS256");
+            GoTrueClient client = new GoTrueClient(url());
+            GoTrueTransport transport = Helpers.getDefaultTransport();
+            client.setTransport(request -> {
+                sent.incrementAndGet();
+                return transport.send(request);
+            });
+            Assertions.assertTrue(client.validate(token("rsa-1", SignatureAlgorithm.RS256, rsa.getPrivate())));
+            Assertions.assertEquals(1, sent.get());
+
+            // a hung jwks endpoint is bounded by the timeouts of the client
+            GoTrueClient slow = new GoTrueClient(url() + "/slow");
+            slow.setTimeoutPolicy(new TimeoutPolicy(Duration.ofMillis(200), null, null));
+            long start = System.nanoTime();
+            Assertions.assertFalse(slow.validate(token("rsa-1", SignatureAlgorithm.RS256, rsa.getPrivate())));
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        } finally {
+            System.clearProperty("gotrue.jwt.algorithm");
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package io.supabase;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.jwt.JwtVerifier;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+
+class JwtVerifierTest {
+    private static final String SECRET = "superSecretJwtToken";
+
+    static String token(String secret, SignatureAlgorithm algorithm, Date exp) {
+        return Jwts.builder()
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .setExpiration(exp)
+                .claim("email", "email@example.com")
+                .claim("role", "authenticated")
+                .claim("app_metadata", new HashMap<String, Object>() {{
+                    put("provider", "email");
+                }})
+                .signWith(algorithm, secret.getBytes(StandardCharsets.UTF_8))
+                .compact();
+    }
+
+    static String token(Date exp) {
+        return token(SECRET, SignatureAlgorithm.HS256, exp);
+    }
+
+    static Date inOneHour() {
+        return new Date(System.currentTimeMillis() + 3_600_000);
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwtVerifier(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwtVerifier(""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwtVerifier(SECRET, SignatureAlgorithm.RS256, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new JwtVerifier(SECRET, SignatureAlgorithm.HS256, -1));
+    }
+
+    @Test
+    void parse() {
+        JwtVerifier verifier = new JwtVerifier(SECRET);
+        ParsedToken parsed = verifier.parse(token(inOneHour()));
+        Utils.assertParsedToken(parsed);
+        Assertions.assertEquals("email", parsed.getAppMetadata().get("provider"));
+        Assertions.assertTrue(parsed.getUserMetadata().isEmpty());
+    }
+
+    @Test
+    void parse_wrongSecret() {
+        JwtVerifier verifier = new JwtVerifier("anotherSecret");
+        Assertions.assertThrows(SignatureException.class, () -> verifier.parse(token(inOneHour())));
+    }
+
+    @Test
+    void parse_wrongAlgorithm() {
+        JwtVerifier verifier = new JwtVerifier(SECRET);
+        String jwt = token(SECRET, SignatureAlgorithm.HS512, inOneHour());
+        Assertions.assertThrows(UnsupportedJwtException.class, () -> verifier.parse(jwt));
+    }
+
+    @Test
+    void parse_expired() {
+        JwtVerifier verifier = new JwtVerifier(SECRET);
+        String jwt = token(new Date(System.currentTimeMillis() - 10_000));
+        Assertions.assertThrows(ExpiredJwtException.class, () -> verifier.parse(jwt));
+    }
+
+    @Test
+    void parse_clockSkew() {
+        JwtVerifier verifier = new JwtVerifier(SECRET, SignatureAlgorithm.HS256, 60);
+        String jwt = token(new Date(System.currentTimeMillis() - 10_000));
+        Assertions.assertDoesNotThrow(() -> verifier.parse(jwt));
+    }
+
+    @Test
+    void parse_precheck() {
+        JwtVerifier verifier = new JwtVerifier(SECRET);
+
+        // expired and not yet valid tokens are rejected before the signature is checked
+        String expired = token("anotherSecret", SignatureAlgorithm.HS256, new Date(System.currentTimeMillis() - 10_000));
+        Assertions.assertThrows(ExpiredJwtException.class, () -> verifier.parse(expired));
+        String notYetValid = Jwts.builder()
+                .setNotBefore(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(SignatureAlgorithm.HS256, "anotherSecret".getBytes(StandardCharsets.UTF_8))
+                .compact();
+        Assertions.assertThrows(PrematureJwtException.class, () -> verifier.parse(notYetValid));
+        Assertions.assertDoesNotThrow(() -> new JwtVerifier("anotherSecret", SignatureAlgorithm.HS256, 120).parse(notYetValid));
+
+        String[] parts = token(inOneHour()).split("\\.");
+        Assertions.assertThrows(MalformedJwtException.class, () -> verifier.parse("invalid"));
+        Assertions.assertThrows(MalformedJwtException.class, () -> verifier.parse(parts[0] + "." + parts[1]));
+        Assertions.assertThrows(MalformedJwtException.class, () -> verifier.parse(parts[0] + ".e30=." + parts[2]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> verifier.parse(null));
+
+        // characters outside the base64url alphabet in any segment, including padding
+        for (String jwt : new String[]{
+                "ü" + parts[0] + "." + parts[1] + "." + parts[2],
+                parts[0] + "." + parts[1] + "." + parts[2] + "ü",
+                parts[0] + "." + parts[1] + "." + parts[2] + "=",
+                parts[0] + "+." + parts[1] + "." + parts[2]}) {
+            Assertions.assertThrows(MalformedJwtException.class, () -> verifier.parse(jwt), jwt);
+            Assertions.assertThrows(MalformedJwtException.class, () -> verifier.parseLazy(jwt), jwt);
+            Assertions.assertFalse(verifier.validate(jwt), jwt);
+        }
+    }
+
+    @Test
+    void validate() {
+        JwtVerifier verifier = new JwtVerifier(SECRET);
+        Assertions.assertTrue(verifier.validate(token(inOneHour())));
+        Assertions.assertFalse(verifier.validate(token(new Date(System.currentTimeMillis() - 10_000))));
+        Assertions.assertFalse(verifier.validate("invalid"));
+        Assertions.assertFalse(verifier.validate(null));
+    }
+
+    @Test
+    void validate_fastPath_signature() {
+        JwtVerifier verifier = new JwtVerifier(SECRET);
+        String jwt = token(inOneHour());
+        String[] parts = jwt.split("\\.");
+
+        // tampered payload
+        String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                "{\"sub\":\"someone-else\",\"exp\":9999999999}".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertFalse(verifier.validate(parts[0] + "." + payload + "." + parts[2]));
+        // tampered signature
+        char last = parts[2].charAt(0) == 'A' ? 'B' : 'A';
+        Assertions.assertFalse(verifier.validate(parts[0] + "." + parts[1] + "." + last + parts[2].substring(1)));
+        // missing or additional segments
+        Assertions.assertFalse(verifier.validate(parts[0] + "." + parts[1]));
+        Assertions.assertFalse(verifier.validate(jwt + ".abc"));
+        Assertions.assertFalse(verifier.validate(parts[0] + "." + parts[1] + "."));
+        // not base64url
+        Assertions.assertFalse(verifier.validate(parts[0] + ".e30=." + parts[2]));
+        Assertions.assertFalse(verifier.validate("é" + jwt));
+    }
+
+    @Test
+    void validate_fastPath_algorithm() {
+        JwtVerifier verifier = new JwtVerifier(SECRET);
+        Assertions.assertFalse(verifier.validate(token(SECRET, SignatureAlgorithm.HS512, inOneHour())));
+        String unsigned = Jwts.builder().setSubject("someone").compact();
+        Assertions.assertFalse(verifier.validate(unsigned));
+    }
+
+    @Test
+    void validate_fastPath_claims() {
+        JwtVerifier verifier = new JwtVerifier(SECRET);
+        byte[] key = SECRET.getBytes(StandardCharsets.UTF_8);
+
+        // only the top-level exp counts, not one nested in the metadata
+        String nested = Jwts.builder()
+                .claim("user_metadata", new HashMap<String, Object>() {{
+                    put("exp", 9999999999L);
+                    put("note", "\"exp\": 9999999999, }");
+                }})
+                .setExpiration(new Date(System.currentTimeMillis() - 10_000))
+                .signWith(SignatureAlgorithm.HS256, key)
+                .compact();
+        Assertions.assertFalse(verifier.validate(nested));
+
+        String notYetValid = Jwts.builder()
+                .setNotBefore(new Date(System.currentTimeMillis() + 60_000))
+                .setExpiration(inOneHour())
+                .signWith(SignatureAlgorithm.HS256, key)
+                .compact();
+        Assertions.assertFalse(verifier.validate(notYetValid));
+        Assertions.assertTrue(new JwtVerifier(SECRET, SignatureAlgorithm.HS256, 120).validate(notYetValid));
+
+        String noExp = Jwts.builder().setSubject("someone").signWith(SignatureAlgorithm.HS256, key).compact();
+        Assertions.assertTrue(verifier.validate(noExp));
+
+        String invalidExp = Jwts.builder().claim("exp", "tomorrow").signWith(SignatureAlgorithm.HS256, key).compact();
+        Assertions.assertFalse(verifier.validate(invalidExp));
+    }
+
+    @Test
+    void validate_fastPath_matchesParse() {
+        JwtVerifier verifier = new JwtVerifier(SECRET, SignatureAlgorithm.HS256, 5);
+        for (long offset : new long[]{-60_000, -6_000, -4_000, 4_000, 3_600_000}) {
+            String jwt = token(new Date(System.currentTimeMillis() + offset));
+            boolean parsed;
+            try {
+                verifier.parse(jwt);
+                parsed = true;
+            } catch (JwtException e) {
+                parsed = false;
+            }
+            Assertions.assertEquals(parsed, verifier.validate(jwt), "exp offset " + offset);
+        }
+    }
+
+    @Test
+    void validate_fastPath_fallback() throws Exception {
+        JwtVerifier verifier = new JwtVerifier(SECRET);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        // an escaped algorithm, which the fast path does not read but the parser accepts
+        String header = encoder.encodeToString("{\"alg\":\"HS\\u0032\\u0035\\u0036\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encoder.encodeToString(String.format("{\"sub\":\"someone\",\"exp\":%d}",
+                inOneHour().getTime() / 1000).getBytes(StandardCharsets.UTF_8));
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        String jwt = header + "." + payload + "." + encoder.encodeToString(mac.doFinal((header + "." + payload).getBytes(StandardCharsets.US_ASCII)));
+
+        Assertions.assertDoesNotThrow(() -> verifier.parse(jwt));
+        Assertions.assertDoesNotThrow(() -> verifier.parseLazy(jwt));
+        Assertions.assertTrue(verifier.validate(jwt));
+    }
+}
@@ -0,0 +1,105 @@
+package io.supabase;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.KeyRing;
+import io.supabase.utils.ClientUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+class KeyRingTest {
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("gotrue.jwt.secret");
+        System.clearProperty("gotrue.jwt.previous.secrets");
+    }
+
+    private static String token(String kid, String secret) {
+        return Jwts.builder()
+                .setHeaderParam("kid", kid)
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .setExpiration(JwtVerifierTest.inOneHour())
+                .claim("email", "email@example.com")
+                .claim("role", "authenticated")
+                .signWith(SignatureAlgorithm.HS256, secret.getBytes(StandardCharsets.UTF_8))
+                .compact();
+    }
+
+    private static KeyRing ring() {
+        return new KeyRing(SignatureAlgorithm.HS256, Arrays.asList(
+                new KeyRing.Secret("v3", "currentSecret"),
+                new KeyRing.Secret("v2", "previousSecret"),
+                new KeyRing.Secret(null, "untaggedSecret")));
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new KeyRing(SignatureAlgorithm.HS256, List.of()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new KeyRing(SignatureAlgorithm.RS256, "secret"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new KeyRing.Secret("v1", ""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new KeyRing(SignatureAlgorithm.HS256, Arrays.asList(
+                new KeyRing.Secret("v1", "a"), new KeyRing.Secret("v1", "b"))));
+        Assertions.assertFalse(new KeyRing.Secret("v1", "superSecret").toString().contains("superSecret"));
+    }
+
+    @Test
+    void validate_routesByKid() {
+        KeyRing ring = ring();
+        JwtVerifier verifier = new JwtVerifier(ring, 0);
+
+        Assertions.assertTrue(verifier.validate(token("v3", "currentSecret")));
+        Assertions.assertTrue(verifier.validate(token("v2", "previousSecret")));
+        // a known kid is only checked against its own key
+        Assertions.assertFalse(verifier.validate(token("v3", "previousSecret")));
+
+        Assertions.assertEquals(1, ring.get("v3").getHitCount());
+        Assertions.assertEquals(1, ring.get("v2").getHitCount());
+    }
+
+    @Test
+    void validate_fallsBackInRecencyOrder() {
+        KeyRing ring = ring();
+        JwtVerifier verifier = new JwtVerifier(ring, 0);
+
+        Assertions.assertTrue(verifier.validate(token(null, "untaggedSecret")));
+        Assertions.assertTrue(verifier.validate(token("unknown", "previousSecret")));
+        Assertions.assertFalse(verifier.validate(token(null, "retiredSecret")));
+
+        Assertions.assertEquals(0, ring.getKeys().get(0).getHitCount());
+        Assertions.assertEquals(1, ring.getKeys().get(1).getHitCount());
+        Assertions.assertEquals(1, ring.getKeys().get(2).getHitCount());
+    }
+
+    @Test
+    void parse_routesAndFallsBack() {
+        KeyRing ring = ring();
+        JwtVerifier verifier = new JwtVerifier(ring, 0);
+
+        Utils.assertParsedToken(verifier.parse(token("v2", "previousSecret")));
+        Utils.assertParsedToken(verifier.parse(token(null, "untaggedSecret")));
+        Assertions.assertThrows(SignatureException.class, () -> verifier.parse(token("v3", "previousSecret")));
+        Assertions.assertThrows(SignatureException.class, () -> verifier.parse(token(null, "retiredSecret")));
+
+        Assertions.assertEquals(1, ring.get("v2").getHitCount());
+        Assertions.assertEquals(1, ring.getKeys().get(2).getHitCount());
+    }
+
+    @Test
+    void loadJwtVerifier_previousSecrets() throws Exception {
+        System.setProperty("gotrue.jwt.secret", "currentSecret");
+        System.setProperty("gotrue.jwt.previous.secrets", "previousSecret, untaggedSecret");
+        JwtVerifier verifier = ClientUtils.loadJwtVerifier();
+
+        Assertions.assertEquals(3, verifier.getKeyRing().getKeys().size());
+        Assertions.assertTrue(verifier.validate(token(null, "currentSecret")));
+        Assertions.assertTrue(verifier.validate(token(null, "untaggedSecret")));
+    }
+}
@@ -0,0 +1,107 @@
+package io.supabase;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.LazyParsedToken;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class LazyParsedTokenTest {
+    private static final String SECRET = "superSecretJwtToken";
+
+    record Identity(@JsonProperty("sub") String subject,
+                    @JsonProperty("session_id") String sessionId,
+                    @JsonProperty("is_anonymous") boolean anonymous) {
+    }
+
+    private static String token(SignatureAlgorithm algorithm, Date exp) {
+        return Jwts.builder()
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .setExpiration(exp)
+                .claim("email", "\"quoted\"@example.com")
+                .claim("role", "authenticated")
+                .claim("aal", "aal2")
+                .claim("session_id", "c7d1f6e2-6b0f-4b5e-9b1a-3f1e0d2c4b5a")
+                .claim("is_anonymous", false)
+                .claim("amr", List.of(Map.of("method", "password", "timestamp", 1700000000L),
+                        Map.of("method", "totp", "timestamp", 1700000100L)))
+                .claim("app_metadata", new HashMap<String, Object>() {{
+                    put("provider", "email");
+                    put("providers", List.of("email", "github"));
+                }})
+                .claim("user_metadata", Map.of("age", 42, "newsletter", true))
+                .signWith(algorithm, SECRET.getBytes(StandardCharsets.UTF_8))
+                .compact();
+    }
+
+    @Test
+    void parseLazy() {
+        for (SignatureAlgorithm algorithm : new SignatureAlgorithm[]{SignatureAlgorithm.HS256, SignatureAlgorithm.HS512}) {
+            Date exp = JwtVerifierTest.inOneHour();
+            LazyParsedToken token = new JwtVerifier(SECRET, algorithm, 0).parseLazy(token(algorithm, exp));
+
+            Assertions.assertEquals("a942b3d1-3a52-4457-8c4f-88d07c2dbe30", token.getSub());
+            Assertions.assertEquals("authenticated", token.getRole());
+            Assertions.assertEquals("aal2", token.getAal());
+            Assertions.assertEquals("c7d1f6e2-6b0f-4b5e-9b1a-3f1e0d2c4b5a", token.getSessionId());
+            Assertions.assertEquals(exp.getTime() / 1000, token.getExp().getTime() / 1000);
+            Assertions.assertFalse(token.isAnonymous());
+            // escaped strings are unescaped
+            Assertions.assertEquals("\"quoted\"@example.com", token.getEmail());
+        }
+    }
+
+    @Test
+    void parseLazy_structuredClaims() {
+        LazyParsedToken token = new JwtVerifier(SECRET).parseLazy(token(SignatureAlgorithm.HS256, JwtVerifierTest.inOneHour()));
+
+        Assertions.assertEquals(List.of(new LazyParsedToken.AuthenticationMethod("password", 1700000000L),
+                new LazyParsedToken.AuthenticationMethod("totp", 1700000100L)), token.getAmr());
+        Assertions.assertEquals(List.of("email", "github"), token.getAppMetadata().get("providers"));
+        Assertions.assertEquals(42, token.getUserMetadata().get("age"));
+        Assertions.assertEquals(true, token.getUserMetadata().get("newsletter"));
+        Assertions.assertNull(token.getClaim("missing"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> token.getClaims().put("role", "admin"));
+
+        Identity identity = token.as(Identity.class);
+        Assertions.assertEquals(new Identity("a942b3d1-3a52-4457-8c4f-88d07c2dbe30", "c7d1f6e2-6b0f-4b5e-9b1a-3f1e0d2c4b5a", false), identity);
+    }
+
+    @Test
+    void parseLazy_absentClaims() {
+        String jwt = Jwts.builder()
+                .setSubject("someone")
+                .claim("role", 7)
+                .claim("is_anonymous", true)
+                .signWith(SignatureAlgorithm.HS256, SECRET.getBytes(StandardCharsets.UTF_8))
+                .compact();
+        LazyParsedToken token = new JwtVerifier(SECRET).parseLazy(jwt);
+
+        Assertions.assertNull(token.getExp());
+        Assertions.assertNull(token.getAal());
+        Assertions.assertEquals("7", token.getRole());
+        Assertions.assertTrue(token.isAnonymous());
+        Assertions.assertTrue(token.getAmr().isEmpty());
+        Assertions.assertTrue(token.getAppMetadata().isEmpty());
+    }
+
+    @Test
+    void parseLazy_invalid() {
+        JwtVerifier verifier = new JwtVerifier(SECRET);
+        Assertions.assertThrows(ExpiredJwtException.class,
+                () -> verifier.parseLazy(token(SignatureAlgorithm.HS256, new Date(System.currentTimeMillis() - 10_000))));
+        Assertions.assertThrows(SignatureException.class,
+                () -> new JwtVerifier("anotherSecret").parseLazy(token(SignatureAlgorithm.HS256, JwtVerifierTest.inOneHour())));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> verifier.parseLazy(null));
+    }
+}
@@ -0,0 +1,220 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.FailureHint;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.CircuitBreaker;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.http.RateLimitedException;
+import io.supabase.http.RateLimiter;
+import io.supabase.http.RestTemplateTransport;
+import io.supabase.http.TimeoutPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RateLimiterTest {
+    private static final String SETTINGS_JSON = "{\"disable_signup\":false,\"mailer_autoconfirm\":false,\"phone_autoconfirm\":false,\"sms_provider\":\"twilio\",\"external\":{}}";
+    private static final String SETTINGS = "GET /settings";
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile String retryAfter;
+
+    @BeforeEach
+    void setup() throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            if (status == 429 && retryAfter != null) {
+                exchange.getResponseHeaders().add("Retry-After", retryAfter);
+            }
+            byte[] bytes = (status == 200 ? SETTINGS_JSON : "{\"msg\":\"failed\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private GoTrueClient client(GoTrueTransport transport, RateLimiter limiter) throws Exception {
+        GoTrueClient client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"));
+        client.setTransport(transport);
+        client.setRateLimiter(limiter);
+        return client;
+    }
+
+    @Test
+    void limiter_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 1, Duration.ZERO, false));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(1, 0, Duration.ZERO, false));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RateLimiter(1, 1, Duration.ofSeconds(-1), false));
+        RateLimiter limiter = new RateLimiter(1, 1, Duration.ZERO, false);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> limiter.setLimit(null, 1, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> limiter.setLimit(SETTINGS, Double.NaN, 1));
+    }
+
+    @Test
+    void failFast() throws Exception {
+        for (GoTrueTransport transport : new GoTrueTransport[]{new HttpClientTransport(), new RestTemplateTransport()}) {
+            RateLimiter limiter = new RateLimiter(1, 3, Duration.ZERO, false);
+            GoTrueClient client = client(transport, limiter);
+            requests.set(0);
+            for (int i = 0; i < 3; i++) {
+                client.settings();
+            }
+
+            // the burst is spent, the request is not sent
+            GotrueException e = Assertions.assertThrows(GotrueException.class, client::settings);
+            Assertions.assertEquals(FailureHint.Reason.UserTooManyRequests, e.getReason());
+            Assertions.assertTrue(e.getCause() instanceof RateLimitedException);
+            Assertions.assertTrue(((RateLimitedException) e.getCause()).getRetryAfter().toMillis() > 0);
+            Assertions.assertEquals(3, requests.get());
+            Assertions.assertEquals(1, limiter.getRejectedCount());
+        }
+    }
+
+    @Test
+    void queue() throws Exception {
+        RateLimiter limiter = new RateLimiter(5, 2, Duration.ofSeconds(5), false);
+        GoTrueClient client = client(new HttpClientTransport(), limiter);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            client.settings();
+        }
+        // two at once, then one every 200 ms
+        Assertions.assertTrue(System.nanoTime() - start >= Duration.ofMillis(390).toNanos());
+        Assertions.assertEquals(4, requests.get());
+        Assertions.assertEquals(2, limiter.getDelayedCount());
+        Assertions.assertEquals(0, limiter.getRejectedCount());
+    }
+
+    @Test
+    void queue_deadline() throws Exception {
+        RateLimiter limiter = new RateLimiter(1, 1, Duration.ofSeconds(5), false);
+        GoTrueClient client = client(new HttpClientTransport(), limiter);
+        client.setTimeoutPolicy(new TimeoutPolicy(Duration.ofSeconds(5), Duration.ofMillis(200), null));
+
+        client.settings();
+        // the next token is due after the deadline of the call
+        long start = System.nanoTime();
+        Assertions.assertThrows(GotrueException.class, client::settings);
+        Assertions.assertTrue(System.nanoTime() - start < Duration.ofMillis(200).toNanos());
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    @Test
+    void queue_async() throws Exception {
+        RateLimiter limiter = new RateLimiter(10, 1, Duration.ofSeconds(5), false);
+        GoTrueClient client = client(new HttpClientTransport(), limiter);
+
+        long start = System.nanoTime();
+        // distinct users, concurrent reads of the same one would share a request
+        status = 401;
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(client.getUserAsync("jwt" + i));
+        }
+        for (CompletableFuture<?> future : futures) {
+            Assertions.assertThrows(ExecutionException.class, future::get);
+        }
+        Assertions.assertTrue(System.nanoTime() - start >= Duration.ofMillis(290).toNanos());
+        Assertions.assertEquals(4, requests.get());
+
+        status = 200;
+        RateLimiter failFast = new RateLimiter(1, 1, Duration.ZERO, false);
+        client.setRateLimiter(failFast);
+        client.settingsAsync().get();
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> client.settingsAsync().get());
+        Assertions.assertEquals(FailureHint.Reason.UserTooManyRequests, ((GotrueException) e.getCause()).getReason());
+    }
+
+    @Test
+    void perEndpoint() throws Exception {
+        RateLimiter limiter = new RateLimiter(1, 1, Duration.ZERO, false);
+        limiter.setLimit(SETTINGS, 1, 3);
+        GoTrueClient client = client(new HttpClientTransport(), limiter);
+        for (int i = 0; i < 3; i++) {
+            client.settings();
+        }
+        Assertions.assertThrows(GotrueException.class, client::settings);
+
+        // other endpoints have their own bucket
+        status = 401;
+        GotrueException e = Assertions.assertThrows(GotrueException.class, () -> client.getUser("jwt"));
+        Assertions.assertEquals(401, e.getStatusCode());
+        Assertions.assertEquals(4, requests.get());
+    }
+
+    @Test
+    void failFast_circuitBreaker() throws Exception {
+        RateLimiter limiter = new RateLimiter(1, 1, Duration.ZERO, false);
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, Duration.ofMinutes(1), 1);
+        GoTrueClient client = client(new HttpClientTransport(), limiter);
+        client.setCircuitBreaker(breaker);
+
+        client.settings();
+        // the local rejections are not failures of the server, the circuit stays closed
+        for (int i = 0; i < 20; i++) {
+            GotrueException e = Assertions.assertThrows(GotrueException.class, client::settings);
+            Assertions.assertEquals(FailureHint.Reason.UserTooManyRequests, e.getReason());
+        }
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(SETTINGS));
+        Assertions.assertEquals(0, breaker.getRejectedCount());
+        Assertions.assertEquals(20, limiter.getRejectedCount());
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    @Test
+    void adaptive() throws Exception {
+        RateLimiter limiter = new RateLimiter(100, 10, Duration.ZERO, true);
+        GoTrueClient client = client(new HttpClientTransport(), limiter);
+        status = 429;
+        retryAfter = "1";
+
+        GotrueException e = Assertions.assertThrows(GotrueException.class, client::settings);
+        Assertions.assertEquals(FailureHint.Reason.UserTooManyRequests, e.getReason());
+        Assertions.assertEquals(1, limiter.getThrottledCount());
+        Assertions.assertEquals(50, limiter.getRate(SETTINGS), 0.1);
+
+        // held back locally until the Retry-After passed
+        status = 200;
+        e = Assertions.assertThrows(GotrueException.class, client::settings);
+        Assertions.assertTrue(e.getCause() instanceof RateLimitedException);
+        Assertions.assertEquals(1, requests.get());
+
+        Thread.sleep(1100);
+        for (int i = 0; i < 20; i++) {
+            try {
+                client.settings();
+            } catch (GotrueException ignored) {
+                // the bucket refills at the reduced rate
+            }
+            Thread.sleep(25);
+        }
+        // the successes recover the configured rate
+        Assertions.assertEquals(100, limiter.getRate(SETTINGS), 0.1);
+    }
+}
@@ -0,0 +1,199 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.dto.Settings;
+import io.supabase.exceptions.FailureHint;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.GoTrueTransport;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.http.RestTemplateTransport;
+import io.supabase.http.RetryPolicy;
+import io.supabase.http.TimeoutPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RetryingTransportTest {
+    private static final String SETTINGS_JSON = "{\"disable_signup\":false,\"mailer_autoconfirm\":false,\"phone_autoconfirm\":false,\"sms_provider\":\"twilio\",\"external\":{}}";
+    private static final String SESSION_JSON = "{\"access_token\":\"a.b.c\",\"token_type\":\"bearer\",\"expires_in\":3600,\"refresh_token\":\"refresh\"}";
+    private HttpServer server;
+    // the statuses of the next responses, 200 once empty
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile String retryAfter;
+    private volatile String settingsBody = SETTINGS_JSON;
+
+    @BeforeEach
+    void setup() throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            Integer next = statuses.poll();
+            int status = next != null ? next : 200;
+            String body = status != 200 ? "{\"msg\":\"failed\"}"
+                    : exchange.getRequestURI().getPath().equals("/token") ? SESSION_JSON : settingsBody;
+            if (status == 429 && retryAfter != null) {
+                exchange.getResponseHeaders().add("Retry-After", retryAfter);
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private GoTrueClient client(GoTrueTransport transport, RetryPolicy policy) throws Exception {
+        GoTrueClient client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"));
+        client.setTransport(transport);
+        client.setRetryPolicy(policy);
+        return client;
+    }
+
+    private static RetryPolicy policy(int maxAttempts) {
+        return new RetryPolicy(maxAttempts, Duration.ofMillis(5), Duration.ofMillis(50), 0.2);
+    }
+
+    @Test
+    void policy_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(0, Duration.ofMillis(5), Duration.ofMillis(50), 0.2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(3, Duration.ZERO, Duration.ofMillis(50), 0.2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(3, Duration.ofMillis(50), Duration.ofMillis(5), 0.2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(3, Duration.ofMillis(5), Duration.ofMillis(50), 1.5));
+    }
+
+    @Test
+    void retry_get() throws Exception {
+        for (GoTrueTransport transport : new GoTrueTransport[]{new HttpClientTransport(), new RestTemplateTransport()}) {
+            RetryPolicy policy = policy(3);
+            GoTrueClient client = client(transport, policy);
+            statuses.addAll(List.of(503, 502));
+
+            Settings settings = client.settings();
+            Assertions.assertEquals("twilio", settings.getSmsProvider());
+            Assertions.assertEquals(3, policy.getAttemptCount());
+            Assertions.assertEquals(2, policy.getRetryCount());
+
+            // the last response is handed over once the attempts are used up
+            statuses.addAll(List.of(503, 503, 503));
+            GotrueException e = Assertions.assertThrows(GotrueException.class, client::settings);
+            Assertions.assertEquals(503, e.getStatusCode());
+            Assertions.assertEquals(FailureHint.Reason.Offline, e.getReason());
+            Assertions.assertEquals(6, policy.getAttemptCount());
+        }
+    }
+
+    @Test
+    void retry_async() throws Exception {
+        RetryPolicy policy = policy(3);
+        GoTrueClient client = client(new HttpClientTransport(), policy);
+        statuses.addAll(List.of(503, 429));
+
+        Assertions.assertEquals("twilio", client.settingsAsync().get().getSmsProvider());
+        Assertions.assertEquals(2, policy.getRetryCount());
+
+        statuses.addAll(List.of(504, 504, 504));
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> client.settingsAsync().get());
+        Assertions.assertEquals(504, ((GotrueException) e.getCause()).getStatusCode());
+        Assertions.assertEquals(4, policy.getRetryCount());
+    }
+
+    @Test
+    void retry_unsafe() throws Exception {
+        RetryPolicy policy = policy(3);
+        GoTrueClient client = client(new HttpClientTransport(), policy);
+
+        statuses.add(503);
+        Assertions.assertThrows(GotrueException.class, () -> client.signIn("email@example.com", "secret"));
+        Assertions.assertEquals(1, requests.get());
+
+        // a refresh is only repeated if the server did not process it
+        statuses.add(503);
+        Assertions.assertThrows(GotrueException.class, () -> client.refresh("refresh"));
+        Assertions.assertEquals(2, requests.get());
+        statuses.add(429);
+        Assertions.assertEquals("a.b.c", client.refresh("refresh").getAccessToken());
+        Assertions.assertEquals(4, requests.get());
+        Assertions.assertEquals(1, policy.getRetryCount());
+    }
+
+    @Test
+    void retry_decodeError() throws Exception {
+        RetryPolicy policy = policy(3);
+        GoTrueClient client = client(new HttpClientTransport(), policy);
+        settingsBody = "{not json";
+
+        Assertions.assertThrows(GotrueException.class, client::settings);
+        Assertions.assertEquals(1, requests.get());
+        Assertions.assertEquals(0, policy.getRetryCount());
+    }
+
+    @Test
+    void retryAfter() throws Exception {
+        RetryPolicy policy = new RetryPolicy(2, Duration.ofMillis(5), Duration.ofSeconds(2), 0.2);
+        GoTrueClient client = client(new HttpClientTransport(), policy);
+        retryAfter = "1";
+        statuses.add(429);
+
+        long start = System.nanoTime();
+        client.settings();
+        Assertions.assertTrue(System.nanoTime() - start >= Duration.ofSeconds(1).toNanos());
+        Assertions.assertEquals(1, policy.getRetryCount());
+
+        // a server asking to wait longer than the maximum delay is not retried
+        retryAfter = "120";
+        statuses.add(429);
+        GotrueException e = Assertions.assertThrows(GotrueException.class, client::settings);
+        Assertions.assertEquals(FailureHint.Reason.UserTooManyRequests, e.getReason());
+        Assertions.assertEquals(1, policy.getRetryCount());
+    }
+
+    @Test
+    void retry_deadline() throws Exception {
+        RetryPolicy policy = new RetryPolicy(5, Duration.ofMillis(500), Duration.ofSeconds(1), 0.2);
+        GoTrueClient client = client(new HttpClientTransport(), policy);
+        client.setTimeoutPolicy(new TimeoutPolicy(Duration.ofSeconds(5), Duration.ofMillis(300), null));
+        statuses.addAll(List.of(503, 503));
+
+        // the delay before a retry would end after the deadline
+        Assertions.assertThrows(GotrueException.class, client::settings);
+        Assertions.assertEquals(0, policy.getRetryCount());
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    @Test
+    void retryBudget() throws Exception {
+        RetryPolicy policy = new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(1), 0);
+        GoTrueClient client = client(new HttpClientTransport(), policy);
+        for (int i = 0; i < 2 * (RetryPolicy.BUDGET_RESERVE + 5); i++) {
+            statuses.add(503);
+        }
+        for (int i = 0; i < RetryPolicy.BUDGET_RESERVE + 5; i++) {
+            Assertions.assertThrows(GotrueException.class, client::settings);
+        }
+        // without deposits only the reserve is spent
+        Assertions.assertEquals(RetryPolicy.BUDGET_RESERVE, policy.getRetryCount());
+        Assertions.assertEquals(5, policy.getBudgetExhaustedCount());
+        Assertions.assertEquals(2 * RetryPolicy.BUDGET_RESERVE + 5, requests.get());
+    }
+}
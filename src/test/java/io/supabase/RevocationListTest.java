@@ -0,0 +1,145 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.exceptions.RevokedJwtException;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.RevocationList;
+import io.supabase.jwt.TokenCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RevocationListTest {
+    private static final String SECRET = "superSecretJwtToken";
+    private HttpServer server;
+    private final AtomicInteger logoutStatus = new AtomicInteger(204);
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/logout", exchange -> {
+            exchange.sendResponseHeaders(logoutStatus.get(), -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private static String token(String sessionId, String jti, Date exp) {
+        return Jwts.builder()
+                .setSubject("a942b3d1-3a52-4457-8c4f-88d07c2dbe30")
+                .setExpiration(exp)
+                .setId(jti)
+                .claim("session_id", sessionId)
+                .claim("email", "email@example.com")
+                .claim("role", "authenticated")
+                .signWith(SignatureAlgorithm.HS256, SECRET.getBytes(StandardCharsets.UTF_8))
+                .compact();
+    }
+
+    private GoTrueClient client() throws Exception {
+        GoTrueClient client = new GoTrueClient("http://localhost:" + server.getAddress().getPort());
+        client.setJwtVerifier(new JwtVerifier(SECRET));
+        return client;
+    }
+
+    @Test
+    void revoke() {
+        RevocationList revocations = new RevocationList();
+        String session = token("session-1", null, JwtVerifierTest.inOneHour());
+        String sibling = token("session-1", null, JwtVerifierTest.inOneHour());
+        String other = token("session-2", "jti-2", JwtVerifierTest.inOneHour());
+
+        Assertions.assertFalse(revocations.isRevoked(session));
+        Assertions.assertTrue(revocations.revoke(session, 0));
+        Assertions.assertTrue(revocations.isRevoked(session));
+        // all tokens of the session are revoked
+        Assertions.assertTrue(revocations.isRevoked(sibling));
+        Assertions.assertFalse(revocations.isRevoked(other));
+
+        revocations.revokeId("jti-2", Long.MAX_VALUE);
+        Assertions.assertTrue(revocations.isRevoked(other));
+        Assertions.assertTrue(revocations.isRevokedId("session-1"));
+
+        Assertions.assertFalse(revocations.revoke(JwtVerifierTest.token(JwtVerifierTest.inOneHour()), 0));
+        Assertions.assertFalse(revocations.revoke("invalid", 0));
+        Assertions.assertFalse(revocations.isRevoked("invalid"));
+
+        revocations.clear();
+        Assertions.assertFalse(revocations.isRevoked(session));
+        Assertions.assertEquals(0, revocations.size());
+    }
+
+    @Test
+    void revoke_expiresWithToken() {
+        RevocationList revocations = new RevocationList();
+        String expired = token("session-1", null, new Date(System.currentTimeMillis() - 10_000));
+        revocations.revoke(expired, 0);
+        Assertions.assertFalse(revocations.isRevokedId("session-1"));
+        // the skew of the verifier keeps the token revoked for as long as it is accepted
+        revocations.revoke(expired, 60);
+        Assertions.assertTrue(revocations.isRevokedId("session-1"));
+    }
+
+    @Test
+    void revoke_growsBeyondExpectedSize() {
+        RevocationList revocations = new RevocationList(8);
+        for (int i = 0; i < 1000; i++) {
+            revocations.revokeId("session-" + i, Long.MAX_VALUE);
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertTrue(revocations.isRevoked(token("session-" + i, null, JwtVerifierTest.inOneHour())));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (revocations.isRevoked(token(UUID.randomUUID().toString(), null, JwtVerifierTest.inOneHour()))) {
+                falsePositives++;
+            }
+        }
+        Assertions.assertEquals(0, falsePositives);
+    }
+
+    @Test
+    void signOut_revokesLocally() throws Exception {
+        GoTrueClient client = client();
+        client.setTokenCache(new TokenCache(16));
+        String jwt = token(UUID.randomUUID().toString(), null, JwtVerifierTest.inOneHour());
+        Assertions.assertTrue(client.validate(jwt));
+        Assertions.assertNotNull(client.parseJwt(jwt));
+
+        client.signOut(jwt);
+
+        Assertions.assertFalse(client.validate(jwt));
+        Assertions.assertThrows(RevokedJwtException.class, () -> client.parseJwt(jwt));
+        Assertions.assertThrows(RevokedJwtException.class, () -> client.parseJwtLazy(jwt));
+        Assertions.assertEquals(List.of(false), client.validateAll(List.of(jwt)));
+        client.setTokenCache(null);
+        Assertions.assertFalse(client.validate(jwt));
+    }
+
+    @Test
+    void signOut_failed() throws Exception {
+        GoTrueClient client = client();
+        String jwt = token(UUID.randomUUID().toString(), null, JwtVerifierTest.inOneHour());
+        logoutStatus.set(503);
+
+        Assertions.assertThrows(GotrueException.class, () -> client.signOut(jwt));
+        Assertions.assertTrue(client.validate(jwt));
+        Assertions.assertEquals(0, client.getRevocationList().size());
+    }
+}
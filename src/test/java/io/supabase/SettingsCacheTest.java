@@ -0,0 +1,163 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.dto.Settings;
+import io.supabase.exceptions.GotrueException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SettingsCacheTest {
+    private static final String SETTINGS_JSON = "{\"disable_signup\":false,\"mailer_autoconfirm\":false,\"phone_autoconfirm\":false,\"sms_provider\":\"%s\",\"external\":{}}";
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    // the If-None-Match headers of the requests, empty if there was none
+    private final List<String> validators = new CopyOnWriteArrayList<>();
+    private volatile String etag = "\"v1\"";
+    private volatile String smsProvider = "twilio";
+    private volatile int status = 200;
+    private GoTrueClient client;
+
+    @BeforeEach
+    void setup() throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            validators.add(ifNoneMatch != null ? ifNoneMatch : "");
+            if (etag != null) {
+                exchange.getResponseHeaders().add("ETag", etag);
+            }
+            if (status == 200 && etag != null && etag.equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] bytes = (status == 200 ? String.format(SETTINGS_JSON, smsProvider) : "{\"msg\":\"failed\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void cache_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SettingsCache(Duration.ZERO, Duration.ZERO));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SettingsCache(Duration.ofSeconds(1), Duration.ofSeconds(-1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SettingsCache(null, Duration.ZERO));
+    }
+
+    @Test
+    void ttl() throws Exception {
+        SettingsCache cache = new SettingsCache(Duration.ofMillis(200), Duration.ZERO);
+        client.setSettingsCache(cache);
+
+        Settings settings = client.settings();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertSame(settings, client.settings());
+            Assertions.assertSame(settings, client.settingsAsync().get(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(1, requests.get());
+        Assertions.assertEquals(20, cache.getHitCount());
+        Assertions.assertEquals(1, cache.getMissCount());
+
+        // expired, the reader revalidates with the entity tag
+        Thread.sleep(250);
+        Assertions.assertSame(settings, client.settings());
+        Assertions.assertEquals(List.of("", "\"v1\""), validators);
+        Assertions.assertEquals(1, cache.getNotModifiedCount());
+
+        // changed settings come with a new tag
+        Thread.sleep(250);
+        etag = "\"v2\"";
+        smsProvider = "vonage";
+        Assertions.assertEquals("vonage", client.settings().getSmsProvider());
+        Assertions.assertEquals(3, requests.get());
+
+        cache.invalidate();
+        client.settings();
+        Assertions.assertEquals(List.of("", "\"v1\"", "\"v1\"", ""), validators);
+    }
+
+    @Test
+    void staleWhileRevalidate() throws Exception {
+        SettingsCache cache = new SettingsCache(Duration.ofMillis(100), Duration.ofMinutes(1));
+        client.setSettingsCache(cache);
+        etag = null;
+        Settings settings = client.settings();
+
+        Thread.sleep(150);
+        smsProvider = "vonage";
+        // the stale settings are returned at once, a single refresh runs in the background
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertSame(settings, client.settings());
+        }
+        Assertions.assertEquals(5, cache.getStaleHitCount());
+        awaitRequests(2);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (client.settings() == settings && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals("vonage", client.settings().getSmsProvider());
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertEquals(List.of("", ""), validators);
+    }
+
+    @Test
+    void staleWhileRevalidate_failure() throws Exception {
+        SettingsCache cache = new SettingsCache(Duration.ofMillis(100), Duration.ofMinutes(1));
+        client.setSettingsCache(cache);
+        Settings settings = client.settings();
+
+        Thread.sleep(150);
+        status = 503;
+        Assertions.assertSame(settings, client.settings());
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getRevalidationFailureCount() == 0 && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        // the stale settings are kept, the next read refreshes again
+        Assertions.assertEquals(1, cache.getRevalidationFailureCount());
+        Assertions.assertSame(settings, client.settings());
+        awaitRequests(3);
+    }
+
+    @Test
+    void miss_failure() throws Exception {
+        client.setSettingsCache(new SettingsCache(Duration.ofMinutes(1), Duration.ZERO));
+        status = 503;
+        Assertions.assertThrows(GotrueException.class, client::settings);
+        status = 200;
+        Assertions.assertEquals("twilio", client.settings().getSmsProvider());
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests.get() < count && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(count, requests.get());
+    }
+}
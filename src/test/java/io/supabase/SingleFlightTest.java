@@ -0,0 +1,168 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.data.dto.Settings;
+import io.supabase.exceptions.FailureHint;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.Deadline;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.schemas.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SingleFlightTest {
+    private static final String USER = "{\"id\":\"a942b3d1-3a52-4457-8c4f-88d07c2dbe30\",\"email\":\"email@example.com\",\"role\":\"authenticated\"}";
+    private static final String SETTINGS_JSON = "{\"disable_signup\":false,\"mailer_autoconfirm\":false,\"phone_autoconfirm\":false,\"sms_provider\":\"twilio\",\"external\":{}}";
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch received = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile int status = 200;
+    private GoTrueApi api;
+    private GoTrueAsyncApi asyncApi;
+
+    @BeforeEach
+    void setup() throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            received.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String body = status != 200 ? "{\"msg\":\"failed\"}" : exchange.getRequestURI().getPath().equals("/user") ? USER : SETTINGS_JSON;
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        api = new GoTrueApi("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"), new HttpClientTransport());
+        asyncApi = new GoTrueAsyncApi(api);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void coalesce() throws Exception {
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<User>> users = new ArrayList<>();
+        users.add(callers.submit(() -> api.getUser("someJwt")));
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            users.add(callers.submit(() -> api.getUser("someJwt")));
+        }
+        CompletableFuture<User> async = asyncApi.getUser("someJwt");
+        awaitCoalesced(5);
+        release.countDown();
+
+        User user = users.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<User> other : users) {
+            Assertions.assertSame(user, other.get(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertSame(user, async.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, requests.get());
+        Assertions.assertEquals(5, api.getCoalescedCount());
+
+        // a call after the completed one sends again
+        Assertions.assertEquals("email@example.com", api.getUser("someJwt").getEmail());
+        Assertions.assertEquals(2, requests.get());
+        callers.shutdown();
+    }
+
+    @Test
+    void coalesce_perKey() throws Exception {
+        CompletableFuture<User> first = asyncApi.getUser("someJwt");
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        CompletableFuture<User> other = asyncApi.getUser("otherJwt");
+        CompletableFuture<Settings> settings = asyncApi.getSettings();
+        CompletableFuture<Settings> sameSettings = asyncApi.getSettings();
+        release.countDown();
+
+        Assertions.assertNotSame(first.get(5, TimeUnit.SECONDS), other.get(5, TimeUnit.SECONDS));
+        Assertions.assertSame(settings.get(5, TimeUnit.SECONDS), sameSettings.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, requests.get());
+        Assertions.assertEquals(1, api.getCoalescedCount());
+    }
+
+    @Test
+    void coalesce_error() throws Exception {
+        status = 401;
+        CompletableFuture<User> first = asyncApi.getUser("someJwt");
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        CompletableFuture<User> second = asyncApi.getUser("someJwt");
+        release.countDown();
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        Assertions.assertSame(e.getCause(), Assertions.assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause());
+        Assertions.assertEquals(401, ((GotrueException) e.getCause()).getStatusCode());
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    @Test
+    void coalesce_deadline() throws Exception {
+        CompletableFuture<Settings> first = asyncApi.getSettings();
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+
+        // a waiting caller keeps its own deadline
+        GotrueException e = Assertions.assertThrows(GotrueException.class,
+                () -> Deadline.call(Duration.ofMillis(100), api::getSettings));
+        Assertions.assertEquals(FailureHint.Reason.Offline, e.getReason());
+        release.countDown();
+        Assertions.assertEquals("twilio", first.get(5, TimeUnit.SECONDS).getSmsProvider());
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    @Test
+    void coalesce_cancel() throws Exception {
+        CompletableFuture<User> first = asyncApi.getUser("someJwt");
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        CompletableFuture<User> second = asyncApi.getUser("someJwt");
+
+        // the load goes on for the remaining caller
+        Assertions.assertTrue(first.cancel(true));
+        Assertions.assertEquals(1, api.userFlights.getInFlightCount());
+
+        // and is aborted once nobody waits for it anymore
+        Assertions.assertTrue(second.cancel(true));
+        Assertions.assertEquals(0, api.userFlights.getInFlightCount());
+        release.countDown();
+        Assertions.assertEquals("email@example.com", api.getUser("someJwt").getEmail());
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (api.getCoalescedCount() < count && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.supabase.exceptions.FailureHint;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.http.AdaptiveTimeout;
+import io.supabase.http.Deadline;
+import io.supabase.http.HttpClientTransport;
+import io.supabase.http.RestTemplateTransport;
+import io.supabase.http.TimeoutPolicy;
+import io.supabase.http.TransportRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TimeoutTransportTest {
+    private static final String USER_JSON = "{\"id\":\"a942b3d1-3a52-4457-8c4f-88d07c2dbe30\",\"email\":\"email@example.com\"}";
+    private HttpServer server;
+    private ExecutorService executor;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long userDelayMillis;
+
+    @BeforeEach
+    void setup() throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            long delay = exchange.getRequestURI().getPath().equals("/settings") ? 1000 : userDelayMillis;
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = USER_JSON.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private GoTrueClient client() throws Exception {
+        return new GoTrueClient("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"));
+    }
+
+    @Test
+    void policy_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimeoutPolicy(null, null, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimeoutPolicy(Duration.ZERO, null, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimeoutPolicy(Duration.ofSeconds(1), Duration.ofSeconds(-1), null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdaptiveTimeout(0, 2, Duration.ofMillis(1), Duration.ofSeconds(1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdaptiveTimeout(0.99, 0.5, Duration.ofMillis(1), Duration.ofSeconds(1)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new AdaptiveTimeout(0.99, 2, Duration.ofSeconds(1), Duration.ofMillis(1)));
+    }
+
+    @Test
+    void readTimeout() throws Exception {
+        for (GoTrueClient client : new GoTrueClient[]{client(), client()}) {
+            client.setTimeoutPolicy(new TimeoutPolicy(Duration.ofMillis(200), null, null));
+            Assertions.assertEquals("email@example.com", client.getUser("someJwt").getEmail());
+
+            long start = System.nanoTime();
+            GotrueException e = Assertions.assertThrows(GotrueException.class, client::settings);
+            Assertions.assertEquals(FailureHint.Reason.Offline, e.getReason());
+            Assertions.assertTrue(System.nanoTime() - start < Duration.ofMillis(900).toNanos());
+        }
+    }
+
+    @Test
+    void totalTimeout() throws Exception {
+        GoTrueClient client = client();
+        client.setTimeoutPolicy(new TimeoutPolicy(Duration.ofSeconds(30), Duration.ofMillis(200), null));
+
+        GotrueException e = Assertions.assertThrows(GotrueException.class, client::settings);
+        Assertions.assertEquals(FailureHint.Reason.Offline, e.getReason());
+    }
+
+    @Test
+    void withDeadline() throws Exception {
+        GoTrueClient client = client();
+
+        Assertions.assertEquals("email@example.com", client.withDeadline(Duration.ofSeconds(5), () -> client.getUser("someJwt")).getEmail());
+        Assertions.assertNull(Deadline.current());
+
+        // the deadline spans all calls of the scope
+        GotrueException e = Assertions.assertThrows(GotrueException.class, () -> client.withDeadline(Duration.ofMillis(300), () -> {
+            client.getUser("someJwt");
+            return client.settings();
+        }));
+        Assertions.assertEquals(FailureHint.Reason.Offline, e.getReason());
+
+        // an expired deadline does not send the request at all
+        int sent = requests.get();
+        Assertions.assertThrows(GotrueException.class, () -> client.withDeadline(Duration.ZERO, () -> client.getUser("someJwt")));
+        client.setTransport(new RestTemplateTransport());
+        Assertions.assertThrows(GotrueException.class, () -> client.withDeadline(Duration.ZERO, () -> client.getUser("someJwt")));
+        Assertions.assertEquals(sent, requests.get());
+    }
+
+    @Test
+    void withDeadline_async() throws Exception {
+        GoTrueClient client = client();
+        client.setTransport(new HttpClientTransport());
+
+        CompletableFuture<?> settings = client.withDeadline(Duration.ofMillis(200), client::settingsAsync);
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, settings::get);
+        Assertions.assertTrue(e.getCause() instanceof GotrueException);
+        Assertions.assertEquals(FailureHint.Reason.Offline, ((GotrueException) e.getCause()).getReason());
+    }
+
+    @Test
+    void deadline_nested() throws Exception {
+        Deadline outer = Deadline.after(Duration.ofMillis(100));
+        Deadline.call(outer, () -> {
+            // a later inner deadline does not extend the outer one
+            Deadline.call(Duration.ofSeconds(10), () -> {
+                Assertions.assertSame(outer, Deadline.current());
+                return null;
+            });
+            Deadline.call(Duration.ofMillis(10), () -> {
+                Assertions.assertNotSame(outer, Deadline.current());
+                return null;
+            });
+            Assertions.assertSame(outer, Deadline.current());
+            return null;
+        });
+        Assertions.assertNull(Deadline.current());
+    }
+
+    @Test
+    void adaptiveTimeout() throws Exception {
+        AdaptiveTimeout adaptive = new AdaptiveTimeout(0.9, 3, Duration.ofMillis(50), Duration.ofSeconds(5));
+        Duration fallback = Duration.ofSeconds(30);
+        for (int i = 0; i < AdaptiveTimeout.MIN_SAMPLES - 1; i++) {
+            adaptive.record("GET /user", Duration.ofMillis(i < 28 ? 100 : 1000).toNanos());
+        }
+        Assertions.assertEquals(fallback, adaptive.timeoutFor("GET /user", fallback));
+        Assertions.assertNull(adaptive.getLatency("GET /user"));
+
+        adaptive.record("GET /user", Duration.ofMillis(100).toNanos());
+        // 29 of 32 latencies are 100ms, the 90th percentile
+        Assertions.assertEquals(Duration.ofMillis(100), adaptive.getLatency("GET /user"));
+        Assertions.assertEquals(Duration.ofMillis(300), adaptive.timeoutFor("GET /user", fallback));
+        Assertions.assertEquals(fallback, adaptive.timeoutFor("GET /settings", fallback));
+
+        for (int i = 0; i < AdaptiveTimeout.RECOMPUTE_EVERY; i++) {
+            adaptive.record("GET /user", Duration.ofSeconds(10).toNanos());
+        }
+        Assertions.assertEquals(Duration.ofSeconds(5), adaptive.timeoutFor("GET /user", fallback));
+    }
+
+    @Test
+    void adaptiveTimeout_client() throws Exception {
+        GoTrueClient client = client();
+        AdaptiveTimeout adaptive = new AdaptiveTimeout(0.99, 2, Duration.ofMillis(200), Duration.ofSeconds(5));
+        client.setTimeoutPolicy(new TimeoutPolicy(Duration.ofSeconds(30), null, adaptive));
+        for (int i = 0; i < AdaptiveTimeout.MIN_SAMPLES; i++) {
+            client.getUser("someJwt");
+        }
+        Assertions.assertNotNull(adaptive.getLatency("GET /user"));
+        Assertions.assertEquals(Duration.ofMillis(200), adaptive.timeoutFor("GET /user", null));
+    }
+
+    @Test
+    void adaptiveTimeout_recordTimeout() {
+        AdaptiveTimeout adaptive = new AdaptiveTimeout(0.9, 2, Duration.ofMillis(10), Duration.ofSeconds(5));
+        for (int i = 0; i < AdaptiveTimeout.MIN_SAMPLES; i++) {
+            adaptive.record("GET /user", Duration.ofMillis(5).toNanos());
+        }
+        Assertions.assertEquals(Duration.ofMillis(10), adaptive.timeoutFor("GET /user", null));
+
+        // the expired attempts count as twice the time waited, each round doubles the timeout at least
+        Duration timeout = adaptive.timeoutFor("GET /user", null);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < AdaptiveTimeout.RECOMPUTE_EVERY; i++) {
+                adaptive.recordTimeout("GET /user", timeout.toNanos());
+            }
+            Duration grown = adaptive.timeoutFor("GET /user", null);
+            Assertions.assertTrue(grown.compareTo(timeout.multipliedBy(2)) >= 0, () -> grown.toString());
+            timeout = grown;
+        }
+    }
+
+    @Test
+    void adaptiveTimeout_latencyShift() throws Exception {
+        GoTrueClient client = client();
+        AdaptiveTimeout adaptive = new AdaptiveTimeout(0.9, 2, Duration.ofMillis(20), Duration.ofSeconds(5));
+        client.setTimeoutPolicy(new TimeoutPolicy(Duration.ofSeconds(30), null, adaptive));
+        for (int i = 0; i < AdaptiveTimeout.MIN_SAMPLES; i++) {
+            client.getUser("someJwt");
+        }
+        Assertions.assertTrue(adaptive.timeoutFor("GET /user", null).toMillis() < 100);
+
+        // GoTrue slows down beyond the adapted timeout, the expirations grow it until the responses fit again
+        userDelayMillis = 150;
+        int timeouts = 0;
+        while (true) {
+            try {
+                client.getUser("someJwt");
+                break;
+            } catch (GotrueException e) {
+                Assertions.assertEquals(FailureHint.Reason.Offline, e.getReason());
+                Assertions.assertTrue(++timeouts < 200, "the timeout did not recover");
+            }
+        }
+        Assertions.assertTrue(timeouts > 0);
+        Assertions.assertTrue(adaptive.timeoutFor("GET /user", null).toMillis() > 150);
+    }
+
+    @Test
+    void endpoint() {
+        Assertions.assertEquals("GET /user", new TransportRequest("GET", URI.create("http://localhost/user"), Map.of(), null).endpoint());
+        Assertions.assertEquals("POST /token?grant_type=password", new TransportRequest("POST", URI.create("http://localhost/token?grant_type=password"), Map.of(), null).endpoint());
+        Assertions.assertEquals("GET /auth/v1/admin/users/{id}", new TransportRequest("GET", URI.create("http://localhost/auth/v1/admin/users/a942b3d1-3a52-4457-8c4f-88d07c2dbe30"), Map.of(), null).endpoint());
+    }
+}
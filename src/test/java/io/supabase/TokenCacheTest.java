@@ -0,0 +1,101 @@
+package io.supabase;
+
+import io.jsonwebtoken.MalformedJwtException;
+import io.supabase.data.jwt.ParsedToken;
+import io.supabase.jwt.JwtVerifier;
+import io.supabase.jwt.TokenCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+class TokenCacheTest {
+
+    private static ParsedToken parsed(Date exp) {
+        ParsedToken token = new ParsedToken();
+        token.setExp(exp);
+        token.setSub("a942b3d1-3a52-4457-8c4f-88d07c2dbe30");
+        return token;
+    }
+
+    @Test
+    void constructor_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TokenCache(0));
+    }
+
+    @Test
+    void get_put() {
+        TokenCache cache = new TokenCache(10);
+        ParsedToken token = parsed(JwtVerifierTest.inOneHour());
+
+        Assertions.assertNull(cache.get("a.b.c"));
+        cache.put("a.b.c", token, 0);
+        Assertions.assertSame(token, cache.get("a.b.c"));
+        Assertions.assertNull(cache.get("a.b.d"));
+
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(2, cache.getMissCount());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    void put_expired() {
+        TokenCache cache = new TokenCache(10);
+        cache.put("a.b.c", parsed(new Date(System.currentTimeMillis() - 1000)), 0);
+        cache.put("a.b.d", parsed(null), 0);
+        Assertions.assertEquals(0, cache.size());
+
+        // still valid thanks to the clock skew
+        cache.put("a.b.e", parsed(new Date(System.currentTimeMillis() - 1000)), 60);
+        Assertions.assertNotNull(cache.get("a.b.e"));
+    }
+
+    @Test
+    void get_evictsAtExpiry() throws InterruptedException {
+        TokenCache cache = new TokenCache(10);
+        cache.put("a.b.c", parsed(new Date(System.currentTimeMillis() + 50)), 0);
+        Assertions.assertNotNull(cache.get("a.b.c"));
+        Thread.sleep(100);
+        Assertions.assertNull(cache.get("a.b.c"));
+        Assertions.assertEquals(1, cache.getEvictionCount());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_sizeBound() {
+        TokenCache cache = new TokenCache(20);
+        for (int i = 0; i < 100; i++) {
+            cache.put("a.b." + i, parsed(JwtVerifierTest.inOneHour()), 0);
+        }
+        Assertions.assertTrue(cache.size() <= 20);
+        Assertions.assertTrue(cache.getEvictionCount() >= 80);
+    }
+
+    @Test
+    void clear() {
+        TokenCache cache = new TokenCache(10);
+        cache.put("a.b.c", parsed(JwtVerifierTest.inOneHour()), 0);
+        cache.clear();
+        Assertions.assertNull(cache.get("a.b.c"));
+    }
+
+    @Test
+    void client_validate_malformed() throws Exception {
+        GoTrueClient client = new GoTrueClient("http://localhost:9999");
+        client.setJwtVerifier(new JwtVerifier("superSecretJwtToken"));
+        String jwt = JwtVerifierTest.token(JwtVerifierTest.inOneHour());
+        String[] parts = jwt.split("\\.");
+        String[] malformed = {"ü" + jwt, parts[0] + "." + parts[1] + ".ü" + parts[2], parts[0] + "." + parts[1] + "." + parts[2] + "="};
+
+        // the cache does not change the result for tokens the parser cannot decode
+        for (TokenCache cache : new TokenCache[]{null, new TokenCache(10)}) {
+            client.setTokenCache(cache);
+            Assertions.assertTrue(client.validate(jwt));
+            for (String token : malformed) {
+                Assertions.assertFalse(client.validate(token), token);
+                Assertions.assertThrows(MalformedJwtException.class, () -> client.parseJwt(token), token);
+            }
+        }
+        Assertions.assertEquals(1, client.getTokenCache().size());
+    }
+}
@@ -0,0 +1,213 @@
+package io.supabase;
+
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.supabase.data.dto.Session;
+import io.supabase.data.dto.UserAttributesDto;
+import io.supabase.exceptions.GotrueException;
+import io.supabase.jwt.UserCache;
+import io.supabase.schemas.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class UserCacheTest {
+    private static final String SECRET = "superSecretJwtToken";
+    private static final String USER_ID = "a942b3d1-3a52-4457-8c4f-88d07c2dbe30";
+    private static final String USER = "{\"id\":\"" + USER_ID + "\",\"email\":\"%s\",\"role\":\"authenticated\"}";
+    private static final String SESSION = "{\"access_token\":\"%s\",\"refresh_token\":\"refreshToken\",\"token_type\":\"bearer\",\"expires_in\":3600,\"user\":%s}";
+    private HttpServer server;
+    // the GET requests of /user
+    private final AtomicInteger userRequests = new AtomicInteger();
+    private volatile String email = "email@example.com";
+    private volatile String accessToken;
+    private volatile int status = 200;
+    private GoTrueClient client;
+
+    @BeforeEach
+    void setup() throws Exception {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/logout")) {
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+                return;
+            }
+            String user = String.format(USER, email);
+            String body;
+            if (path.equals("/token") || path.equals("/signup")) {
+                body = String.format(SESSION, accessToken, user);
+            } else {
+                if (exchange.getRequestMethod().equals("GET")) {
+                    userRequests.incrementAndGet();
+                }
+                body = status == 200 ? user : "{\"msg\":\"failed\"}";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(path.equals("/user") ? status : 200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        client = new GoTrueClient("http://localhost:" + server.getAddress().getPort(), Map.of("apikey", "anonKey"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private static String token(String sessionId, long expiresInMillis) {
+        return Jwts.builder()
+                .setSubject(USER_ID)
+                .setExpiration(new Date(System.currentTimeMillis() + expiresInMillis))
+                .claim("session_id", sessionId)
+                .signWith(SignatureAlgorithm.HS256, SECRET.getBytes(StandardCharsets.UTF_8))
+                .compact();
+    }
+
+    @Test
+    void cache_invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new UserCache(0));
+    }
+
+    @Test
+    void getUser() throws Exception {
+        UserCache cache = new UserCache(100);
+        client.setUserCache(cache);
+        String jwt = token("session", 60_000);
+
+        User user = client.getUser(jwt);
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertSame(user, client.getUser(jwt));
+            Assertions.assertSame(user, client.getUserAsync(jwt).get(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(1, userRequests.get());
+        Assertions.assertEquals(20, cache.getHitCount());
+
+        // another token of the same session, or a forged one, is not answered from the cache
+        String other = token("session", 120_000);
+        client.getUser(other);
+        client.getUserAsync(jwt.substring(0, jwt.lastIndexOf('.') + 1) + "forged").get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals(3, userRequests.get());
+        Assertions.assertEquals(1, cache.size());
+
+        // without a cache every call asks the server
+        client.setUserCache(null);
+        client.getUser(jwt);
+        Assertions.assertEquals(4, userRequests.get());
+    }
+
+    @Test
+    void seed() throws Exception {
+        client.setUserCache(new UserCache(100));
+        accessToken = token("signIn", 60_000);
+        Session session = client.signIn("email@example.com", "secret");
+        Assertions.assertSame(session.getUser(), client.getUser(session.getAccessToken()));
+
+        accessToken = token("refresh", 60_000);
+        session = client.refresh("refreshToken");
+        Assertions.assertSame(session.getUser(), client.getUser(session.getAccessToken()));
+
+        accessToken = token("refreshAsync", 60_000);
+        session = client.refreshAsync("refreshToken").get(5, TimeUnit.SECONDS);
+        Assertions.assertSame(session.getUser(), client.getUserAsync(session.getAccessToken()).get(5, TimeUnit.SECONDS));
+
+        accessToken = token("signUpAsync", 60_000);
+        session = client.signUpAsync("email@example.com", "secret").get(5, TimeUnit.SECONDS);
+        Assertions.assertSame(session.getUser(), client.getUser(session.getAccessToken()));
+        Assertions.assertEquals(0, userRequests.get());
+    }
+
+    @Test
+    void update() throws Exception {
+        client.setUserCache(new UserCache(100));
+        String jwt = token("first", 60_000);
+        String other = token("second", 60_000);
+        client.getUser(jwt);
+        client.getUser(other);
+
+        email = "changed@example.com";
+        UserAttributesDto attributes = new UserAttributesDto();
+        attributes.setEmail(email);
+        User updated = client.update(jwt, attributes);
+
+        // the updated session holds the returned user, the other sessions of the user load it again
+        Assertions.assertSame(updated, client.getUser(jwt));
+        Assertions.assertEquals("changed@example.com", client.getUser(other).getEmail());
+        Assertions.assertEquals(3, userRequests.get());
+
+        email = "again@example.com";
+        attributes.setEmail(email);
+        updated = client.updateAsync(other, attributes).get(5, TimeUnit.SECONDS);
+        Assertions.assertSame(updated, client.getUser(other));
+        Assertions.assertEquals("again@example.com", client.getUser(jwt).getEmail());
+        Assertions.assertEquals(4, userRequests.get());
+    }
+
+    @Test
+    void signOut() throws Exception {
+        client.setUserCache(new UserCache(100));
+        String jwt = token("session", 60_000);
+        client.getUser(jwt);
+        client.signOut(jwt);
+
+        // the signed out session is asked for again, and rejected
+        status = 401;
+        GotrueException e = Assertions.assertThrows(GotrueException.class, () -> client.getUser(jwt));
+        Assertions.assertEquals(401, e.getStatusCode());
+        Assertions.assertEquals(2, userRequests.get());
+    }
+
+    @Test
+    void expiry() throws Exception {
+        UserCache cache = new UserCache(100);
+        client.setUserCache(cache);
+
+        // expired tokens are not cached
+        String expired = token("expired", -1000);
+        client.getUser(expired);
+        client.getUser(expired);
+        Assertions.assertEquals(2, userRequests.get());
+
+        // the expiration is in whole seconds, so the token expires 500 to 1500 ms from now
+        String jwt = token("session", 1500);
+        client.getUser(jwt);
+        client.getUser(jwt);
+        Assertions.assertEquals(3, userRequests.get());
+        Thread.sleep(1600);
+        client.getUser(jwt);
+        Assertions.assertEquals(4, userRequests.get());
+        Assertions.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void maximumSize() {
+        UserCache cache = new UserCache(10);
+        User user = new User();
+        for (int i = 0; i < 50; i++) {
+            cache.put(token("session" + i, 60_000), user);
+        }
+        Assertions.assertTrue(cache.size() <= 10);
+        Assertions.assertEquals(50 - cache.size(), cache.getEvictionCount());
+
+        // tokens without a subject are not cached
+        cache.clear();
+        cache.put(Jwts.builder().setExpiration(new Date(System.currentTimeMillis() + 60_000)).compact() + "signature", user);
+        Assertions.assertEquals(0, cache.size());
+    }
+}